@@ -0,0 +1,100 @@
+/*
+ * Copyright (c) 2008-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.cometd.benchmark.jmh;
+
+import java.util.concurrent.TimeUnit;
+import org.cometd.bayeux.Promise;
+import org.cometd.bayeux.server.BayeuxServer;
+import org.cometd.bayeux.server.LocalSession;
+import org.cometd.bayeux.server.ServerMessage;
+import org.cometd.bayeux.server.ServerSession;
+import org.cometd.server.BayeuxServerImpl;
+import org.cometd.server.ServerSessionImpl;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * <p>Measures the throughput of {@link BayeuxServerImpl#handle(ServerSessionImpl, ServerMessage.Mutable, Promise)}
+ * for a publish message, with synchronous or asynchronous extensions.</p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@Fork(1)
+@Warmup(iterations = 2, time = 5, timeUnit = TimeUnit.SECONDS)
+@Measurement(iterations = 3, time = 5, timeUnit = TimeUnit.SECONDS)
+public class BayeuxServerHandleBenchmark {
+    @Param({"0", "4"})
+    public int extensions;
+    @Param({"true", "false"})
+    public boolean synchronous;
+    private BayeuxServerImpl bayeux;
+    private ServerSessionImpl session;
+
+    @Setup
+    public void setup() throws Exception {
+        bayeux = new BayeuxServerImpl();
+        bayeux.start();
+        for (int i = 0; i < extensions; ++i) {
+            bayeux.addExtension(synchronous ? new SyncExtension() : new AsyncExtension());
+        }
+        LocalSession localSession = bayeux.newLocalSession("benchmark");
+        localSession.handshake();
+        session = (ServerSessionImpl)localSession.getServerSession();
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        bayeux.stop();
+    }
+
+    @Benchmark
+    public void handlePublish(Blackhole blackhole) {
+        ServerMessage.Mutable message = bayeux.newMessage();
+        message.setChannel("/benchmark");
+        message.setClientId(session.getId());
+        message.setData("data");
+        bayeux.handle(session, message, Promise.from(blackhole::consume, blackhole::consume));
+    }
+
+    private static class SyncExtension implements BayeuxServer.Extension {
+        @Override
+        public boolean rcv(ServerSession from, ServerMessage.Mutable message) {
+            return true;
+        }
+    }
+
+    private static class AsyncExtension implements BayeuxServer.Extension {
+        @Override
+        public void incoming(ServerSession from, ServerMessage.Mutable message, Promise<Boolean> promise) {
+            promise.succeed(true);
+        }
+
+        @Override
+        public void outgoing(ServerSession from, ServerSession to, ServerMessage.Mutable message, Promise<Boolean> promise) {
+            promise.succeed(true);
+        }
+    }
+}
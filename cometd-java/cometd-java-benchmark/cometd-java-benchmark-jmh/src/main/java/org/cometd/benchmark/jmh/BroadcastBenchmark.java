@@ -0,0 +1,90 @@
+/*
+ * Copyright (c) 2008-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.cometd.benchmark.jmh;
+
+import java.util.concurrent.TimeUnit;
+import org.cometd.bayeux.Promise;
+import org.cometd.bayeux.server.LocalSession;
+import org.cometd.bayeux.server.ServerChannel;
+import org.cometd.server.BayeuxServerImpl;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * <p>Measures the throughput of the broadcast fan-out of a message to the
+ * subscribers of a channel and of its wild ancestors.</p>
+ * <p>The subscribers are handshaken local sessions spread evenly across the channel and the
+ * {@code /**} channels of its ancestors; the messages are enqueued and then flushed to the
+ * {@link LocalSession}s, which drains the queues so that they do not grow.</p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@Fork(1)
+@Warmup(iterations = 2, time = 5, timeUnit = TimeUnit.SECONDS)
+@Measurement(iterations = 3, time = 5, timeUnit = TimeUnit.SECONDS)
+public class BroadcastBenchmark {
+    @Param({"1", "100", "1000"})
+    public int subscribers;
+    @Param({"1", "4"})
+    public int depth;
+    private BayeuxServerImpl bayeux;
+    private LocalSession publisher;
+    private ServerChannel channel;
+
+    @Setup
+    public void setup() throws Exception {
+        bayeux = new BayeuxServerImpl();
+        bayeux.start();
+
+        StringBuilder channelName = new StringBuilder();
+        String[] channelNames = new String[depth + 1];
+        channelNames[0] = "/**";
+        for (int i = 1; i <= depth; ++i) {
+            channelName.append("/segment").append(i);
+            channelNames[i] = i == depth ? channelName.toString() : channelName + "/**";
+        }
+        channel = bayeux.createChannelIfAbsent(channelNames[depth]).getReference();
+
+        for (int i = 0; i < subscribers; ++i) {
+            LocalSession subscriber = bayeux.newLocalSession("subscriber" + i);
+            subscriber.handshake();
+            bayeux.createChannelIfAbsent(channelNames[i % channelNames.length]).getReference().subscribe(subscriber.getServerSession());
+        }
+
+        publisher = bayeux.newLocalSession("publisher");
+        publisher.handshake();
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        bayeux.stop();
+    }
+
+    @Benchmark
+    public void publish(Blackhole blackhole) {
+        channel.publish(publisher, "data", Promise.from(blackhole::consume, blackhole::consume));
+    }
+}
@@ -0,0 +1,77 @@
+/*
+ * Copyright (c) 2008-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.cometd.benchmark.jmh;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.cometd.bayeux.ChannelId;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * <p>Measures the throughput of {@link ChannelId} parsing and matching.</p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@Fork(1)
+@Warmup(iterations = 2, time = 5, timeUnit = TimeUnit.SECONDS)
+@Measurement(iterations = 3, time = 5, timeUnit = TimeUnit.SECONDS)
+public class ChannelIdBenchmark {
+    @Param({"/foo", "/foo/bar/baz/qux"})
+    public String channel;
+    private ChannelId channelId;
+    private ChannelId wildId;
+    private ChannelId deepWildId;
+
+    @Setup
+    public void setup() {
+        channelId = new ChannelId(channel);
+        channelId.depth();
+        wildId = new ChannelId(channel.substring(0, channel.lastIndexOf('/')) + "/*");
+        wildId.depth();
+        deepWildId = new ChannelId("/**");
+        deepWildId.depth();
+    }
+
+    @Benchmark
+    public int parse() {
+        // The segments are parsed lazily.
+        return new ChannelId(channel).depth();
+    }
+
+    @Benchmark
+    public boolean matchWild() {
+        return wildId.matches(channelId);
+    }
+
+    @Benchmark
+    public boolean matchDeepWild() {
+        return deepWildId.matches(channelId);
+    }
+
+    @Benchmark
+    public List<String> allIds() {
+        return new ChannelId(channel).getAllIds();
+    }
+}
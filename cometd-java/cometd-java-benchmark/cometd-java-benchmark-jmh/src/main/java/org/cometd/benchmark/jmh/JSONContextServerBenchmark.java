@@ -0,0 +1,74 @@
+/*
+ * Copyright (c) 2008-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.cometd.benchmark.jmh;
+
+import java.text.ParseException;
+import java.util.concurrent.TimeUnit;
+import org.cometd.bayeux.server.ServerMessage;
+import org.cometd.server.JSONContextServer;
+import org.cometd.server.JacksonJSONContextServer;
+import org.cometd.server.JettyJSONContextServer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * <p>Measures the throughput of {@link JSONContextServer} parsing and
+ * generation of messages, for the Jetty and Jackson implementations.</p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@Fork(1)
+@Warmup(iterations = 2, time = 5, timeUnit = TimeUnit.SECONDS)
+@Measurement(iterations = 3, time = 5, timeUnit = TimeUnit.SECONDS)
+public class JSONContextServerBenchmark {
+    private static final String JSON = "[{" +
+            "\"id\":\"1\"," +
+            "\"channel\":\"/chat/room\"," +
+            "\"clientId\":\"31e4ohoemyd4pi5dxh3wkc4w8n\"," +
+            "\"data\":{\"user\":\"cometd\",\"text\":\"Hello, World\",\"timestamp\":1700000000000,\"tags\":[\"a\",\"b\",\"c\"]}," +
+            "\"ext\":{\"ack\":true}" +
+            "}]";
+
+    @Param({"jetty", "jackson"})
+    public String json;
+    private JSONContextServer jsonContext;
+    private ServerMessage.Mutable message;
+
+    @Setup
+    public void setup() throws Exception {
+        jsonContext = "jackson".equals(json) ? new JacksonJSONContextServer() : new JettyJSONContextServer();
+        // The message is not frozen, so it is generated every time.
+        message = jsonContext.parse(JSON)[0];
+    }
+
+    @Benchmark
+    public ServerMessage.Mutable[] parse() throws ParseException {
+        return jsonContext.parse(JSON);
+    }
+
+    @Benchmark
+    public String generate() {
+        return jsonContext.generate(message);
+    }
+}
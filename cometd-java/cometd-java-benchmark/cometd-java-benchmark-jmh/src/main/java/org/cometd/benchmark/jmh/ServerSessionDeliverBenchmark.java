@@ -0,0 +1,78 @@
+/*
+ * Copyright (c) 2008-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.cometd.benchmark.jmh;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.cometd.bayeux.Promise;
+import org.cometd.bayeux.server.ServerMessage;
+import org.cometd.server.BayeuxServerImpl;
+import org.cometd.server.ServerSessionImpl;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * <p>Measures the throughput of {@link ServerSessionImpl#deliver(org.cometd.bayeux.Session, ServerMessage.Mutable, Promise)}
+ * followed by {@link ServerSessionImpl#takeQueue(List)}, with the default and the lock-free session queue.</p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@Fork(1)
+@Warmup(iterations = 2, time = 5, timeUnit = TimeUnit.SECONDS)
+@Measurement(iterations = 3, time = 5, timeUnit = TimeUnit.SECONDS)
+public class ServerSessionDeliverBenchmark {
+    private static final int MESSAGES = 16;
+
+    @Param({"false", "true"})
+    public boolean lockFreeQueue;
+    private BayeuxServerImpl bayeux;
+    private ServerSessionImpl session;
+
+    @Setup
+    public void setup() throws Exception {
+        bayeux = new BayeuxServerImpl();
+        bayeux.setOption(BayeuxServerImpl.LOCK_FREE_SESSION_QUEUE_OPTION, lockFreeQueue);
+        bayeux.start();
+        session = bayeux.newServerSession();
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        bayeux.stop();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(MESSAGES)
+    public List<ServerMessage> deliverAndTakeQueue() {
+        for (int i = 0; i < MESSAGES; ++i) {
+            ServerMessage.Mutable message = bayeux.newMessage();
+            message.setChannel("/benchmark");
+            message.setData("data");
+            session.deliver(null, message, Promise.noop());
+        }
+        return session.takeQueue(List.of());
+    }
+}
@@ -99,6 +99,19 @@ import org.slf4j.LoggerFactory;
 public class BayeuxClient extends AbstractClientSession implements Bayeux {
     public static final String BACKOFF_INCREMENT_OPTION = "backoffIncrement";
     public static final String MAX_BACKOFF_OPTION = "maxBackoff";
+    /**
+     * <p>The window, in microseconds, during which the messages sent outside
+     * of {@link #batch(Runnable) batches} are coalesced and sent together.</p>
+     * <p>Non-positive values, the default, disable auto-batching.</p>
+     * <p>The window delays the send of the messages, and it is not accounted
+     * in the {@link ClientTransport#MAX_NETWORK_DELAY_OPTION maxNetworkDelay}.</p>
+     */
+    public static final String AUTO_BATCH_WINDOW_OPTION = "autoBatchWindow";
+    /**
+     * <p>The max number of messages coalesced by auto-batching, after which
+     * they are sent without waiting for the {@link #AUTO_BATCH_WINDOW_OPTION window} to expire.</p>
+     */
+    public static final String AUTO_BATCH_MAX_MESSAGES_OPTION = "autoBatchMaxMessages";
     public static final String BAYEUX_VERSION = "1.0";
 
     private final Logger logger = LoggerFactory.getLogger(getClass().getName() + "." + Integer.toHexString(System.identityHashCode(this)));
@@ -114,6 +127,9 @@ public class BayeuxClient extends AbstractClientSession implements Bayeux {
     private ScheduledExecutorService scheduler;
     private boolean ownScheduler;
     private BackOffStrategy backOffStrategy = new BackOffStrategy.Linear();
+    private volatile long autoBatchWindow;
+    private volatile int autoBatchMaxMessages;
+    private boolean autoBatchScheduled;
 
     /**
      * <p>Creates a BayeuxClient that will connect to the Bayeux server at the given URL
@@ -903,6 +919,11 @@ public class BayeuxClient extends AbstractClientSession implements Bayeux {
             }
         }
 
+        Number value = (Number)getOption(AUTO_BATCH_WINDOW_OPTION);
+        autoBatchWindow = value == null ? 0 : value.longValue();
+        value = (Number)getOption(AUTO_BATCH_MAX_MESSAGES_OPTION);
+        autoBatchMaxMessages = value == null ? 64 : value.intValue();
+
         if (scheduler == null) {
             scheduler = new Scheduler(1);
             ownScheduler = true;
@@ -957,12 +978,17 @@ public class BayeuxClient extends AbstractClientSession implements Bayeux {
 
     protected void enqueueSend(Message.Mutable message) {
         if (canSend()) {
-            List<Message.Mutable> messages = List.of(message);
-            sendMessages(messages, Promise.complete((r, x) -> {
-                if (logger.isDebugEnabled()) {
-                    logger.debug("{} message {}", x == null ? "Sent" : "Failed", message);
-                }
-            }));
+            long window = autoBatchWindow;
+            if (window > 0) {
+                autoBatch(message, window);
+            } else {
+                List<Message.Mutable> messages = List.of(message);
+                sendMessages(messages, Promise.complete((r, x) -> {
+                    if (logger.isDebugEnabled()) {
+                        logger.debug("{} message {}", x == null ? "Sent" : "Failed", message);
+                    }
+                }));
+            }
         } else {
             try (AutoLock l = lock.lock()) {
                 messageQueue.add(message);
@@ -973,6 +999,45 @@ public class BayeuxClient extends AbstractClientSession implements Bayeux {
         }
     }
 
+    private void autoBatch(Message.Mutable message, long window) {
+        boolean flush;
+        boolean schedule = false;
+        try (AutoLock l = lock.lock()) {
+            // Auto-batched messages share the queue of batches,
+            // so that the order of the messages is preserved.
+            messageQueue.add(message);
+            // Meta messages are not delayed, and flush the previous messages.
+            flush = message.isMeta() || messageQueue.size() >= autoBatchMaxMessages;
+            if (!flush && !autoBatchScheduled) {
+                autoBatchScheduled = schedule = true;
+            }
+        }
+        if (logger.isDebugEnabled()) {
+            logger.debug("Auto-batched message {} (flush: {})", message, flush);
+        }
+        if (flush) {
+            sendBatch();
+        } else if (schedule) {
+            ScheduledExecutorService scheduler = this.scheduler;
+            try {
+                if (scheduler == null) {
+                    autoFlush();
+                } else {
+                    scheduler.schedule(this::autoFlush, window, TimeUnit.MICROSECONDS);
+                }
+            } catch (RejectedExecutionException x) {
+                autoFlush();
+            }
+        }
+    }
+
+    private void autoFlush() {
+        try (AutoLock l = lock.lock()) {
+            autoBatchScheduled = false;
+        }
+        sendBatch();
+    }
+
     private boolean canSend() {
         State state = getState();
         boolean handshaking = state == State.HANDSHAKING || state == State.REHANDSHAKING;
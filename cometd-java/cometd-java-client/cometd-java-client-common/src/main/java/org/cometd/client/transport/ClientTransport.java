@@ -35,12 +35,14 @@ public abstract class ClientTransport extends AbstractTransport {
     public static final String MAX_NETWORK_DELAY_OPTION = "maxNetworkDelay";
     public static final String JSON_CONTEXT_OPTION = "jsonContext";
     public static final String SCHEDULER_OPTION = "scheduler";
+    public static final String TIMER_WHEEL_OPTION = "timerWheel";
     public static final String MAX_SEND_BAYEUX_MESSAGE_SIZE_OPTION = "maxSendBayeuxMessageSize";
     public static final String MAX_MESSAGE_SIZE_OPTION = "maxMessageSize";
 
     private String url;
     private ScheduledExecutorService scheduler;
     private SchedulerSource schedulerSource = SchedulerSource.UNKNOWN;
+    private TimerWheel timerWheel;
     private long maxNetworkDelay;
     private JSONContext.Client jsonContext;
     private int maxSendBayeuxMessageSize;
@@ -112,6 +114,12 @@ public abstract class ClientTransport extends AbstractTransport {
                 schedulerSource = SchedulerSource.INTERNAL;
             }
         }
+        if (timerWheel == null) {
+            timerWheel = (TimerWheel)getOption(TIMER_WHEEL_OPTION);
+            if (timerWheel == null) {
+                timerWheel = new TimerWheel(scheduler);
+            }
+        }
     }
 
     protected void shutdownScheduler() {
@@ -122,12 +130,21 @@ public abstract class ClientTransport extends AbstractTransport {
             scheduler = null;
             schedulerSource = SchedulerSource.UNKNOWN;
         }
+        timerWheel = null;
     }
 
     protected ScheduledExecutorService getScheduler() {
         return scheduler;
     }
 
+    /**
+     * @return the timer wheel that expires the messages that wait for a reply
+     * for longer than the {@link #MAX_NETWORK_DELAY_OPTION maxNetworkDelay}
+     */
+    protected TimerWheel getTimerWheel() {
+        return timerWheel;
+    }
+
     /**
      * Aborts this transport, usually by cancelling all pending Bayeux messages that require a response,
      * such as {@code /meta/connect}s, without waiting for a response.
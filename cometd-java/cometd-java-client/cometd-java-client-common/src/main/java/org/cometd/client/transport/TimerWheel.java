@@ -0,0 +1,239 @@
+/*
+ * Copyright (c) 2008-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.cometd.client.transport;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import org.eclipse.jetty.util.thread.AutoLock;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * <p>A hashed timer wheel that expires timeouts with a precision of one tick.</p>
+ * <p>Scheduling and cancelling a timeout are O(1) operations, while the
+ * {@link ScheduledExecutorService} is only used to run one task per tick,
+ * and only while there are pending timeouts.</p>
+ * <p>The timeouts never expire earlier than their delay, but they may
+ * expire up to one tick later.</p>
+ * <p>A timer wheel may be shared among {@link ClientTransport}s via the
+ * {@link ClientTransport#TIMER_WHEEL_OPTION} option.</p>
+ */
+public class TimerWheel {
+    private static final Logger LOGGER = LoggerFactory.getLogger(TimerWheel.class);
+
+    private final AutoLock lock = new AutoLock();
+    private final ScheduledExecutorService scheduler;
+    private final long tick;
+    private final Timeout[] buckets;
+    private final int mask;
+    private final long start = System.nanoTime();
+    private long currentTick;
+    private int pending;
+    private boolean ticking;
+
+    public TimerWheel(ScheduledExecutorService scheduler) {
+        this(scheduler, 50, 512);
+    }
+
+    /**
+     * @param scheduler the scheduler that runs the ticks
+     * @param tick      the tick duration in milliseconds
+     * @param buckets   the number of buckets of the wheel, rounded up to a power of 2
+     */
+    public TimerWheel(ScheduledExecutorService scheduler, long tick, int buckets) {
+        if (tick <= 0) {
+            throw new IllegalArgumentException("Invalid tick " + tick);
+        }
+        if (buckets <= 0 || buckets > 1 << 30) {
+            throw new IllegalArgumentException("Invalid buckets " + buckets);
+        }
+        this.scheduler = scheduler;
+        this.tick = TimeUnit.MILLISECONDS.toNanos(tick);
+        int size = Integer.highestOneBit(buckets);
+        if (size < buckets) {
+            size <<= 1;
+        }
+        this.buckets = new Timeout[size];
+        this.mask = size - 1;
+    }
+
+    /**
+     * @return the tick duration in milliseconds
+     */
+    public long getTick() {
+        return TimeUnit.NANOSECONDS.toMillis(tick);
+    }
+
+    /**
+     * @return the number of timeouts not yet expired nor cancelled
+     */
+    public int getPending() {
+        try (AutoLock l = lock.lock()) {
+            return pending;
+        }
+    }
+
+    /**
+     * <p>Schedules the given task to run after the given delay.</p>
+     *
+     * @param task  the task to run when the timeout expires
+     * @param delay the delay
+     * @param unit  the unit of the delay
+     * @return the timeout that can be cancelled
+     */
+    public Timeout schedule(Runnable task, long delay, TimeUnit unit) {
+        long deadline = System.nanoTime() - start + Math.max(0, unit.toNanos(delay));
+        Timeout timeout = new Timeout(task, deadline);
+        boolean schedule;
+        try (AutoLock l = lock.lock()) {
+            // Round up, so that the timeout never expires early.
+            long deadlineTick = Math.max(currentTick + 1, (deadline + tick - 1) / tick);
+            timeout.bucket = (int)(deadlineTick & mask);
+            link(timeout);
+            ++pending;
+            schedule = !ticking;
+            ticking = true;
+        }
+        if (schedule) {
+            scheduleTick();
+        }
+        return timeout;
+    }
+
+    private void link(Timeout timeout) {
+        Timeout head = buckets[timeout.bucket];
+        timeout.next = head;
+        if (head != null) {
+            head.prev = timeout;
+        }
+        buckets[timeout.bucket] = timeout;
+    }
+
+    private void unlink(Timeout timeout) {
+        if (timeout.prev == null) {
+            buckets[timeout.bucket] = timeout.next;
+        } else {
+            timeout.prev.next = timeout.next;
+        }
+        if (timeout.next != null) {
+            timeout.next.prev = timeout.prev;
+        }
+        timeout.prev = null;
+        timeout.next = null;
+        timeout.bucket = -1;
+    }
+
+    private void scheduleTick() {
+        try {
+            scheduler.schedule(this::tick, getTick(), TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException x) {
+            // The scheduler has been shut down, so
+            // the pending timeouts will never expire.
+            if (LOGGER.isDebugEnabled()) {
+                LOGGER.debug("Could not schedule tick for {}", this, x);
+            }
+            try (AutoLock l = lock.lock()) {
+                ticking = false;
+            }
+        }
+    }
+
+    private void tick() {
+        List<Timeout> expired = new ArrayList<>();
+        boolean schedule;
+        try (AutoLock l = lock.lock()) {
+            long now = System.nanoTime() - start;
+            long nowTick = now / tick;
+            // Process all the buckets since the last tick,
+            // in case the scheduler ran this tick late.
+            long ticks = Math.min(nowTick - currentTick, buckets.length);
+            for (long t = 1; t <= ticks; ++t) {
+                Timeout timeout = buckets[(int)((currentTick + t) & mask)];
+                while (timeout != null) {
+                    Timeout next = timeout.next;
+                    if (timeout.deadline <= now) {
+                        unlink(timeout);
+                        --pending;
+                        expired.add(timeout);
+                    }
+                    timeout = next;
+                }
+            }
+            currentTick = Math.max(currentTick, nowTick);
+            schedule = pending > 0;
+            ticking = schedule;
+        }
+        if (schedule) {
+            scheduleTick();
+        }
+        for (Timeout timeout : expired) {
+            timeout.expire();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s@%x[tick=%dms,buckets=%d,pending=%d]", getClass().getSimpleName(), hashCode(), getTick(), buckets.length, getPending());
+    }
+
+    /**
+     * <p>A timeout scheduled in a {@link TimerWheel}.</p>
+     */
+    public class Timeout {
+        private final Runnable task;
+        private final long deadline;
+        private int bucket;
+        private Timeout prev;
+        private Timeout next;
+
+        private Timeout(Runnable task, long deadline) {
+            this.task = task;
+            this.deadline = deadline;
+        }
+
+        /**
+         * <p>Cancels this timeout.</p>
+         *
+         * @return whether this timeout was cancelled before it expired
+         */
+        public boolean cancel() {
+            try (AutoLock l = lock.lock()) {
+                if (bucket < 0) {
+                    return false;
+                }
+                unlink(this);
+                --pending;
+                return true;
+            }
+        }
+
+        private void expire() {
+            try {
+                task.run();
+            } catch (Throwable x) {
+                LOGGER.info("Failure while expiring " + this, x);
+            }
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s@%x", getClass().getSimpleName(), hashCode());
+        }
+    }
+}
@@ -24,7 +24,6 @@ import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicReference;
@@ -32,6 +31,7 @@ import org.cometd.bayeux.Message;
 import org.cometd.bayeux.Promise;
 import org.cometd.client.http.common.AbstractHttpClientTransport;
 import org.cometd.client.transport.ClientTransport;
+import org.cometd.client.transport.TimerWheel;
 import org.cometd.client.transport.TransportListener;
 import org.cometd.common.BufferingJSONAsyncParser;
 import org.cometd.common.JSONContext;
@@ -138,22 +138,22 @@ public class JettyHttpClientTransport extends AbstractHttpClientTransport {
         // Disable the idle timeout.
         request.idleTimeout(0, TimeUnit.MILLISECONDS);
         // Schedule a task to timeout the request.
-        AtomicReference<ScheduledFuture<?>> timeoutTaskRef = new AtomicReference<>();
-        ScheduledExecutorService scheduler = getScheduler();
-        if (scheduler != null) {
-            ScheduledFuture<?> newTask = scheduler.schedule(() -> onTimeout(listener, messages, request, maxNetworkDelay, timeoutTaskRef), maxNetworkDelay, TimeUnit.MILLISECONDS);
-            timeoutTaskRef.set(newTask);
+        AtomicReference<TimerWheel.Timeout> timeoutTaskRef = new AtomicReference<>();
+        TimerWheel timerWheel = getTimerWheel();
+        if (timerWheel != null) {
+            TimerWheel.Timeout newTimeout = timerWheel.schedule(() -> onTimeout(listener, messages, request, maxNetworkDelay, timeoutTaskRef), maxNetworkDelay, TimeUnit.MILLISECONDS);
+            timeoutTaskRef.set(newTimeout);
             if (LOGGER.isDebugEnabled()) {
-                LOGGER.debug("Started waiting for message replies, {} ms, task@{}", maxNetworkDelay, Integer.toHexString(newTask.hashCode()));
+                LOGGER.debug("Started waiting for message replies, {} ms, {}", maxNetworkDelay, newTimeout);
             }
         }
 
         request.onComplete(result -> {
-            ScheduledFuture<?> task = timeoutTaskRef.get();
-            if (task != null) {
-                task.cancel(false);
+            TimerWheel.Timeout timeout = timeoutTaskRef.get();
+            if (timeout != null) {
+                timeout.cancel();
                 if (LOGGER.isDebugEnabled()) {
-                    LOGGER.debug("Cancelled waiting for message replies, task@{}", Integer.toHexString(task.hashCode()));
+                    LOGGER.debug("Cancelled waiting for message replies, {}", timeout);
                 }
             }
         });
@@ -167,15 +167,15 @@ public class JettyHttpClientTransport extends AbstractHttpClientTransport {
         request.send(new ResponseListener(listener, messages, cookieURI));
     }
 
-    private void onTimeout(TransportListener listener, List<? extends Message> messages, Request request, long delay, AtomicReference<ScheduledFuture<?>> timeoutTaskRef) {
+    private void onTimeout(TransportListener listener, List<? extends Message> messages, Request request, long delay, AtomicReference<TimerWheel.Timeout> timeoutTaskRef) {
         listener.onTimeout(messages, Promise.from(result -> {
             if (result > 0) {
-                ScheduledExecutorService scheduler = getScheduler();
-                if (scheduler != null) {
-                    ScheduledFuture<?> newTask = scheduler.schedule(() -> onTimeout(listener, messages, request, delay + result, timeoutTaskRef), result, TimeUnit.MILLISECONDS);
-                    ScheduledFuture<?> oldTask = timeoutTaskRef.getAndSet(newTask);
+                TimerWheel timerWheel = getTimerWheel();
+                if (timerWheel != null) {
+                    TimerWheel.Timeout newTimeout = timerWheel.schedule(() -> onTimeout(listener, messages, request, delay + result, timeoutTaskRef), result, TimeUnit.MILLISECONDS);
+                    TimerWheel.Timeout oldTimeout = timeoutTaskRef.getAndSet(newTimeout);
                     if (LOGGER.isDebugEnabled()) {
-                        LOGGER.debug("Extended waiting for message replies, {} ms, oldTask@{}, newTask@{}", result, Integer.toHexString(oldTask.hashCode()), Integer.toHexString(newTask.hashCode()));
+                        LOGGER.debug("Extended waiting for message replies, {} ms, {}, {}", result, oldTimeout, newTimeout);
                     }
                 }
             } else {
@@ -21,7 +21,6 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.stream.Collectors;
@@ -40,6 +39,7 @@ import org.cometd.bayeux.Message;
 import org.cometd.bayeux.Promise;
 import org.cometd.client.http.common.AbstractHttpClientTransport;
 import org.cometd.client.transport.ClientTransport;
+import org.cometd.client.transport.TimerWheel;
 import org.cometd.client.transport.TransportListener;
 import org.eclipse.jetty.util.component.ContainerLifeCycle;
 import org.eclipse.jetty.util.thread.AutoLock;
@@ -138,13 +138,13 @@ public class OkHttpClientTransport extends AbstractHttpClientTransport {
         Request request = requestBuilder.build();
         Call call = client.newCall(request);
 
-        AtomicReference<ScheduledFuture<?>> timeoutRef = new AtomicReference<>();
-        ScheduledExecutorService scheduler = getScheduler();
-        if (scheduler != null) {
-            ScheduledFuture<?> newTask = scheduler.schedule(() -> onTimeout(listener, messages, call, maxNetworkDelay, timeoutRef), maxNetworkDelay, TimeUnit.MILLISECONDS);
-            timeoutRef.set(newTask);
+        AtomicReference<TimerWheel.Timeout> timeoutRef = new AtomicReference<>();
+        TimerWheel timerWheel = getTimerWheel();
+        if (timerWheel != null) {
+            TimerWheel.Timeout newTimeout = timerWheel.schedule(() -> onTimeout(listener, messages, call, maxNetworkDelay, timeoutRef), maxNetworkDelay, TimeUnit.MILLISECONDS);
+            timeoutRef.set(newTimeout);
             if (LOGGER.isDebugEnabled()) {
-                LOGGER.debug("Started waiting for message replies, {} ms, task@{}", maxNetworkDelay, Integer.toHexString(newTask.hashCode()));
+                LOGGER.debug("Started waiting for message replies, {} ms, {}", maxNetworkDelay, newTimeout);
             }
         }
 
@@ -193,30 +193,30 @@ public class OkHttpClientTransport extends AbstractHttpClientTransport {
                 listener.onFailure(e, messages);
             }
 
-            private void cancelTimeoutTask(AtomicReference<ScheduledFuture<?>> timeoutRef) {
-                ScheduledFuture<?> task = timeoutRef.get();
-                if (task != null) {
-                    task.cancel(false);
+            private void cancelTimeoutTask(AtomicReference<TimerWheel.Timeout> timeoutRef) {
+                TimerWheel.Timeout timeout = timeoutRef.get();
+                if (timeout != null) {
+                    timeout.cancel();
                     if (LOGGER.isDebugEnabled()) {
-                        LOGGER.debug("Cancelled request timeout task@{}", Integer.toHexString(task.hashCode()));
+                        LOGGER.debug("Cancelled request timeout {}", timeout);
                     }
                 }
             }
         });
     }
 
-    private void onTimeout(TransportListener listener, List<? extends Message> messages, Call call, long delay, AtomicReference<ScheduledFuture<?>> timeoutRef) {
+    private void onTimeout(TransportListener listener, List<? extends Message> messages, Call call, long delay, AtomicReference<TimerWheel.Timeout> timeoutRef) {
         try (AutoLock l = lock.lock()) {
             calls.remove(call);
         }
         listener.onTimeout(messages, Promise.from(result -> {
             if (result > 0) {
-                ScheduledExecutorService scheduler = getScheduler();
-                if (scheduler != null) {
-                    ScheduledFuture<?> newTask = scheduler.schedule(() -> onTimeout(listener, messages, call, delay + result, timeoutRef), result, TimeUnit.MILLISECONDS);
-                    ScheduledFuture<?> oldTask = timeoutRef.getAndSet(newTask);
+                TimerWheel timerWheel = getTimerWheel();
+                if (timerWheel != null) {
+                    TimerWheel.Timeout newTimeout = timerWheel.schedule(() -> onTimeout(listener, messages, call, delay + result, timeoutRef), result, TimeUnit.MILLISECONDS);
+                    TimerWheel.Timeout oldTimeout = timeoutRef.getAndSet(newTimeout);
                     if (LOGGER.isDebugEnabled()) {
-                        LOGGER.debug("Extended waiting for message replies, {} ms, oldTask@{}, newTask@{}", result, Integer.toHexString(oldTask.hashCode()), Integer.toHexString(newTask.hashCode()));
+                        LOGGER.debug("Extended waiting for message replies, {} ms, {}, {}", result, oldTimeout, newTimeout);
                     }
                 }
             } else {
@@ -0,0 +1,129 @@
+/*
+ * Copyright (c) 2008-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.cometd.client.http;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.cometd.bayeux.Message;
+import org.cometd.client.BayeuxClient;
+import org.cometd.client.transport.TransportListener;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class AutoBatchTest extends ClientServerTest {
+    @Test
+    public void testPublishesWithinWindowAreSentTogether() throws Exception {
+        start(null);
+
+        BayeuxClient client = newBayeuxClient();
+        client.setOption(BayeuxClient.AUTO_BATCH_WINDOW_OPTION, TimeUnit.MILLISECONDS.toMicros(500));
+        List<Integer> sends = recordPublishSends(client);
+        client.handshake();
+        Assertions.assertTrue(client.waitFor(5000, BayeuxClient.State.CONNECTED));
+
+        int count = 10;
+        CountDownLatch latch = new CountDownLatch(count);
+        List<Object> published = new CopyOnWriteArrayList<>();
+        for (int i = 0; i < count; ++i) {
+            client.getChannel("/auto").publish(i, reply -> {
+                if (reply.isSuccessful()) {
+                    published.add(reply.getId());
+                    latch.countDown();
+                }
+            });
+        }
+
+        // Each publish has its own callback, but they are all sent together.
+        Assertions.assertTrue(latch.await(5, TimeUnit.SECONDS));
+        Assertions.assertEquals(count, published.size());
+        Assertions.assertEquals(List.of(count), sends);
+
+        disconnectBayeuxClient(client);
+    }
+
+    @Test
+    public void testMaxMessagesSendsWithoutWaitingForWindow() throws Exception {
+        start(null);
+
+        BayeuxClient client = newBayeuxClient();
+        // A window so long that only the max messages triggers the sends.
+        client.setOption(BayeuxClient.AUTO_BATCH_WINDOW_OPTION, TimeUnit.SECONDS.toMicros(60));
+        client.setOption(BayeuxClient.AUTO_BATCH_MAX_MESSAGES_OPTION, 4);
+        List<Integer> sends = recordPublishSends(client);
+        client.handshake();
+        Assertions.assertTrue(client.waitFor(5000, BayeuxClient.State.CONNECTED));
+
+        int count = 8;
+        CountDownLatch latch = new CountDownLatch(count);
+        for (int i = 0; i < count; ++i) {
+            client.getChannel("/auto").publish(i, reply -> latch.countDown());
+        }
+
+        Assertions.assertTrue(latch.await(5, TimeUnit.SECONDS));
+        Assertions.assertEquals(List.of(4, 4), sends);
+
+        disconnectBayeuxClient(client);
+    }
+
+    @Test
+    public void testMetaMessageFlushesAutoBatch() throws Exception {
+        start(null);
+
+        BayeuxClient client = newBayeuxClient();
+        client.setOption(BayeuxClient.AUTO_BATCH_WINDOW_OPTION, TimeUnit.SECONDS.toMicros(60));
+        client.handshake();
+        Assertions.assertTrue(client.waitFor(5000, BayeuxClient.State.CONNECTED));
+
+        List<String> channels = new CopyOnWriteArrayList<>();
+        CountDownLatch latch = new CountDownLatch(2);
+        client.getChannel("/auto").publish("data", reply -> {
+            channels.add(reply.getChannel());
+            latch.countDown();
+        });
+        client.getChannel("/auto").subscribe((channel, message) -> {}, reply -> {
+            channels.add(reply.getChannel());
+            latch.countDown();
+        });
+
+        // The publish is sent before the subscribe, without waiting for the window.
+        Assertions.assertTrue(latch.await(5, TimeUnit.SECONDS));
+        Assertions.assertEquals(List.of("/auto", "/meta/subscribe"), channels);
+
+        disconnectBayeuxClient(client);
+    }
+
+    private List<Integer> recordPublishSends(BayeuxClient client) {
+        List<Integer> sends = new CopyOnWriteArrayList<>();
+        client.addTransportListener(new TransportListener() {
+            @Override
+            public void onSending(List<? extends Message> messages) {
+                List<Message> publishes = new ArrayList<>();
+                for (Message message : messages) {
+                    if (!message.isMeta()) {
+                        publishes.add(message);
+                    }
+                }
+                if (!publishes.isEmpty()) {
+                    sends.add(publishes.size());
+                }
+            }
+        });
+        return sends;
+    }
+}
@@ -15,9 +15,13 @@
  */
 package org.cometd.client.http;
 
+import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.TimeUnit;
 import org.cometd.bayeux.Channel;
+import org.cometd.bayeux.Message;
+import org.cometd.bayeux.Promise;
 import org.cometd.bayeux.client.ClientSessionChannel;
 import org.cometd.client.BayeuxClient;
 import org.junit.jupiter.api.Assertions;
@@ -251,4 +255,46 @@ public class ChannelReleaseTest extends ClientServerTest {
 
         disconnectBayeuxClient(client);
     }
+
+    @Test
+    public void testChannelsCreatedAndReleasedAfterMessagesAreNotified() throws Exception {
+        start(null);
+
+        BayeuxClient client = newBayeuxClient();
+        client.handshake();
+        Assertions.assertTrue(client.waitFor(5000, BayeuxClient.State.CONNECTED));
+
+        BlockingQueue<Message> wildMessages = new LinkedBlockingQueue<>();
+        CountDownLatch wildLatch = new CountDownLatch(1);
+        client.getChannel("/foo/*").subscribe((c, m) -> wildMessages.offer(m), r -> wildLatch.countDown());
+        Assertions.assertTrue(wildLatch.await(5, TimeUnit.SECONDS));
+
+        String channelName = "/foo/bar";
+        bayeux.createChannelIfAbsent(channelName).getReference().publish(null, "1", Promise.noop());
+        Assertions.assertNotNull(wildMessages.poll(5, TimeUnit.SECONDS));
+
+        // Create the channel after a message for it has been received.
+        BlockingQueue<Message> messages = new LinkedBlockingQueue<>();
+        ClientSessionChannel channel = client.getChannel(channelName);
+        ClientSessionChannel.MessageListener listener = (c, m) -> messages.offer(m);
+        CountDownLatch subscribeLatch = new CountDownLatch(1);
+        channel.subscribe(listener, r -> subscribeLatch.countDown());
+        Assertions.assertTrue(subscribeLatch.await(5, TimeUnit.SECONDS));
+
+        bayeux.createChannelIfAbsent(channelName).getReference().publish(null, "2", Promise.noop());
+        Assertions.assertNotNull(wildMessages.poll(5, TimeUnit.SECONDS));
+        Assertions.assertNotNull(messages.poll(5, TimeUnit.SECONDS));
+
+        // Release the channel, it must not be notified anymore.
+        CountDownLatch unsubscribeLatch = new CountDownLatch(1);
+        channel.unsubscribe(listener, r -> unsubscribeLatch.countDown());
+        Assertions.assertTrue(unsubscribeLatch.await(5, TimeUnit.SECONDS));
+        Assertions.assertTrue(channel.release());
+
+        bayeux.createChannelIfAbsent(channelName).getReference().publish(null, "3", Promise.noop());
+        Assertions.assertNotNull(wildMessages.poll(5, TimeUnit.SECONDS));
+        Assertions.assertNull(messages.poll(1, TimeUnit.SECONDS));
+
+        disconnectBayeuxClient(client);
+    }
 }
@@ -0,0 +1,105 @@
+/*
+ * Copyright (c) 2008-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.cometd.client.http;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import org.cometd.client.transport.TimerWheel;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class TimerWheelTest {
+    private ScheduledThreadPoolExecutor scheduler;
+
+    @BeforeEach
+    public void setUp() {
+        scheduler = new ScheduledThreadPoolExecutor(1);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        scheduler.shutdownNow();
+    }
+
+    @Test
+    public void testTimeoutDoesNotExpireEarly() throws Exception {
+        TimerWheel timerWheel = new TimerWheel(scheduler, 10, 8);
+
+        long delay = 500;
+        AtomicLong elapsed = new AtomicLong();
+        CountDownLatch latch = new CountDownLatch(1);
+        long begin = System.nanoTime();
+        timerWheel.schedule(() -> {
+            elapsed.set(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - begin));
+            latch.countDown();
+        }, delay, TimeUnit.MILLISECONDS);
+
+        Assertions.assertTrue(latch.await(5, TimeUnit.SECONDS));
+        Assertions.assertTrue(elapsed.get() >= delay, "elapsed " + elapsed.get());
+        Assertions.assertEquals(0, timerWheel.getPending());
+    }
+
+    @Test
+    public void testCancelledTimeoutDoesNotExpire() throws Exception {
+        TimerWheel timerWheel = new TimerWheel(scheduler, 10, 8);
+
+        AtomicInteger expired = new AtomicInteger();
+        TimerWheel.Timeout timeout = timerWheel.schedule(expired::incrementAndGet, 100, TimeUnit.MILLISECONDS);
+        Assertions.assertEquals(1, timerWheel.getPending());
+        Assertions.assertTrue(timeout.cancel());
+        Assertions.assertFalse(timeout.cancel());
+        Assertions.assertEquals(0, timerWheel.getPending());
+
+        Thread.sleep(500);
+        Assertions.assertEquals(0, expired.get());
+    }
+
+    @Test
+    public void testManyTimeouts() throws Exception {
+        // Few buckets, so that timeouts wrap around the wheel.
+        TimerWheel timerWheel = new TimerWheel(scheduler, 5, 4);
+
+        int count = 1000;
+        CountDownLatch latch = new CountDownLatch(count / 2);
+        AtomicInteger expired = new AtomicInteger();
+        List<TimerWheel.Timeout> timeouts = new ArrayList<>();
+        for (int i = 0; i < count; ++i) {
+            timeouts.add(timerWheel.schedule(() -> {
+                expired.incrementAndGet();
+                latch.countDown();
+            }, 1000 + i % 200, TimeUnit.MILLISECONDS));
+        }
+        // Cancel half of the timeouts, before they expire.
+        for (int i = 0; i < count; i += 2) {
+            Assertions.assertTrue(timeouts.get(i).cancel());
+        }
+
+        Assertions.assertTrue(latch.await(5, TimeUnit.SECONDS));
+        Thread.sleep(100);
+        Assertions.assertEquals(count / 2, expired.get());
+        Assertions.assertEquals(0, timerWheel.getPending());
+        for (TimerWheel.Timeout timeout : timeouts) {
+            Assertions.assertFalse(timeout.cancel());
+        }
+    }
+}
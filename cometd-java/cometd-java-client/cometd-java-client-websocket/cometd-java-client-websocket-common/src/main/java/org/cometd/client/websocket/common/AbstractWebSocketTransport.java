@@ -17,16 +17,15 @@ package org.cometd.client.websocket.common;
 
 import java.io.EOFException;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.text.ParseException;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
-import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Supplier;
 import org.cometd.bayeux.Channel;
 import org.cometd.bayeux.Message;
@@ -34,7 +33,9 @@ import org.cometd.bayeux.Message.Mutable;
 import org.cometd.bayeux.Promise;
 import org.cometd.client.transport.HttpClientTransport;
 import org.cometd.client.transport.MessageClientTransport;
+import org.cometd.client.transport.TimerWheel;
 import org.cometd.client.transport.TransportListener;
+import org.eclipse.jetty.util.BufferUtil;
 import org.eclipse.jetty.util.thread.AutoLock;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -43,6 +44,7 @@ public abstract class AbstractWebSocketTransport extends HttpClientTransport imp
     public static final String PREFIX = "ws";
     public static final String NAME = "websocket";
     public static final String PROTOCOL_OPTION = "protocol";
+    public static final String BINARY_PROTOCOL_OPTION = "binaryProtocol";
     public static final String PERMESSAGE_DEFLATE_OPTION = "permessageDeflate";
     public static final String CONNECT_TIMEOUT_OPTION = "connectTimeout";
     public static final String IDLE_TIMEOUT_OPTION = "idleTimeout";
@@ -55,6 +57,7 @@ public abstract class AbstractWebSocketTransport extends HttpClientTransport imp
     private final AutoLock lock = new AutoLock();
     private boolean _open;
     private String _protocol;
+    private String _binaryProtocol;
     private boolean _perMessageDeflate;
     private long _connectTimeout;
     private long _idleTimeout;
@@ -82,6 +85,7 @@ public abstract class AbstractWebSocketTransport extends HttpClientTransport imp
     public void init() {
         super.init();
         _protocol = getOption(PROTOCOL_OPTION, _protocol);
+        _binaryProtocol = getOption(BINARY_PROTOCOL_OPTION, _binaryProtocol);
         _perMessageDeflate = getOption(PERMESSAGE_DEFLATE_OPTION, false);
         setMaxNetworkDelay(15000L);
         _connectTimeout = 30000L;
@@ -110,6 +114,30 @@ public abstract class AbstractWebSocketTransport extends HttpClientTransport imp
         return _protocol;
     }
 
+    /**
+     * <p>Returns the WebSocket subprotocol to request to the server
+     * so that it sends messages in binary frames.</p>
+     *
+     * @return the binary WebSocket subprotocol, or null to receive messages in text frames
+     */
+    public String getBinaryProtocol() {
+        return _binaryProtocol;
+    }
+
+    /**
+     * @return the WebSocket subprotocols to request to the server, in order of preference
+     */
+    protected List<String> getProtocols() {
+        List<String> protocols = new ArrayList<>(2);
+        if (_binaryProtocol != null) {
+            protocols.add(_binaryProtocol);
+        }
+        if (_protocol != null) {
+            protocols.add(_protocol);
+        }
+        return protocols;
+    }
+
     public boolean isPerMessageDeflateEnabled() {
         return _perMessageDeflate;
     }
@@ -235,6 +263,10 @@ public abstract class AbstractWebSocketTransport extends HttpClientTransport imp
             }
         }
 
+        protected void onData(ByteBuffer data) {
+            onData(BufferUtil.toUTF8String(data));
+        }
+
         protected void onMessages(List<Mutable> messages) {
             for (Mutable message : messages) {
                 if (isReply(message)) {
@@ -321,19 +353,18 @@ public abstract class AbstractWebSocketTransport extends HttpClientTransport imp
                 _connected = true;
             }
 
-            // Schedule a task to expire if the maxNetworkDelay elapses.
+            WebSocketExchange exchange = new WebSocketExchange(message, listener);
+
+            // Schedule a timeout to expire if the maxNetworkDelay elapses.
             long delay = maxNetworkDelay;
-            AtomicReference<ScheduledFuture<?>> timeoutTaskRef = new AtomicReference<>();
-            ScheduledFuture<?> newTask = getScheduler().schedule(() -> onTimeout(listener, message, delay, timeoutTaskRef), maxNetworkDelay, TimeUnit.MILLISECONDS);
-            timeoutTaskRef.set(newTask);
+            exchange.timeout = getTimerWheel().schedule(() -> onTimeout(exchange, delay), delay, TimeUnit.MILLISECONDS);
             if (LOGGER.isDebugEnabled()) {
-                LOGGER.debug("Started waiting for message reply, {} ms, task@{}", maxNetworkDelay, Integer.toHexString(newTask.hashCode()));
+                LOGGER.debug("Started waiting for message reply, {} ms, {}", delay, exchange.timeout);
             }
 
             // Register the exchange
             // Message responses must have the same messageId as the requests
 
-            WebSocketExchange exchange = new WebSocketExchange(message, listener, timeoutTaskRef);
             if (LOGGER.isDebugEnabled()) {
                 LOGGER.debug("Registering {}", exchange);
             }
@@ -344,13 +375,17 @@ public abstract class AbstractWebSocketTransport extends HttpClientTransport imp
             }
         }
 
-        private void onTimeout(TransportListener listener, Message message, long delay, AtomicReference<ScheduledFuture<?>> timeoutTaskRef) {
-            listener.onTimeout(List.of(message), Promise.from(result -> {
+        private void onTimeout(WebSocketExchange exchange, long delay) {
+            exchange.listener.onTimeout(List.of(exchange.message), Promise.from(result -> {
                 if (result > 0) {
-                    ScheduledFuture<?> newTask = getScheduler().schedule(() -> onTimeout(listener, message, delay + result, timeoutTaskRef), result, TimeUnit.MILLISECONDS);
-                    ScheduledFuture<?> oldTask = timeoutTaskRef.getAndSet(newTask);
+                    TimerWheel.Timeout newTimeout = getTimerWheel().schedule(() -> onTimeout(exchange, delay + result), result, TimeUnit.MILLISECONDS);
+                    exchange.timeout = newTimeout;
                     if (LOGGER.isDebugEnabled()) {
-                        LOGGER.debug("Extended waiting for message reply, {} ms, oldTask@{}, newTask@{}", result, Integer.toHexString(oldTask.hashCode()), Integer.toHexString(newTask.hashCode()));
+                        LOGGER.debug("Extended waiting for message reply, {} ms, {}", result, newTimeout);
+                    }
+                    // The reply may have arrived in the meantime.
+                    if (_exchanges.get(exchange.message.getId()) != exchange) {
+                        newTimeout.cancel();
                     }
                 } else {
                     fail(new TimeoutException("Network delay expired: " + delay + " ms"), "Expired");
@@ -375,10 +410,10 @@ public abstract class AbstractWebSocketTransport extends HttpClientTransport imp
             }
 
             if (exchange != null) {
-                ScheduledFuture<?> task = exchange.taskRef.get();
-                task.cancel(false);
+                TimerWheel.Timeout timeout = exchange.timeout;
+                timeout.cancel();
                 if (LOGGER.isDebugEnabled()) {
-                    LOGGER.debug("Cancelled waiting for message replies, task@{}", Integer.toHexString(task.hashCode()));
+                    LOGGER.debug("Cancelled waiting for message replies, {}", timeout);
                 }
             }
 
@@ -451,12 +486,11 @@ public abstract class AbstractWebSocketTransport extends HttpClientTransport imp
     private static class WebSocketExchange {
         private final Mutable message;
         private final TransportListener listener;
-        private final AtomicReference<ScheduledFuture<?>> taskRef;
+        private volatile TimerWheel.Timeout timeout;
 
-        private WebSocketExchange(Mutable message, TransportListener listener, AtomicReference<ScheduledFuture<?>> taskRef) {
+        private WebSocketExchange(Mutable message, TransportListener listener) {
             this.message = message;
             this.listener = listener;
-            this.taskRef = taskRef;
         }
 
         @Override
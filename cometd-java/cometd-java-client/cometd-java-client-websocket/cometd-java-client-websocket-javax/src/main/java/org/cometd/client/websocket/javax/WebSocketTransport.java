@@ -22,6 +22,7 @@ import java.net.SocketTimeoutException;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.net.UnknownHostException;
+import java.nio.ByteBuffer;
 import java.nio.channels.UnresolvedAddressException;
 import java.util.ArrayList;
 import java.util.List;
@@ -79,6 +80,7 @@ public class WebSocketTransport extends AbstractWebSocketTransport {
         _webSocketContainer.setDefaultMaxSessionIdleTimeout(getIdleTimeout());
         int maxMessageSize = getOption(MAX_MESSAGE_SIZE_OPTION, _webSocketContainer.getDefaultMaxTextMessageBufferSize());
         _webSocketContainer.setDefaultMaxTextMessageBufferSize(maxMessageSize);
+        _webSocketContainer.setDefaultMaxBinaryMessageBufferSize(maxMessageSize);
 
         _webSocketSupported = true;
         _webSocketConnected = false;
@@ -92,9 +94,9 @@ public class WebSocketTransport extends AbstractWebSocketTransport {
             }
             _webSocketContainer.setDefaultMaxSessionIdleTimeout(getIdleTimeout());
             ClientEndpointConfig.Builder config = ClientEndpointConfig.Builder.create();
-            String protocol = getProtocol();
-            if (protocol != null) {
-                config = config.preferredSubprotocols(List.of(protocol));
+            List<String> protocols = getProtocols();
+            if (!protocols.isEmpty()) {
+                config = config.preferredSubprotocols(protocols);
             }
             ClientEndpointConfig.Configurator configurator = new Configurator();
             config = config.configurator(configurator);
@@ -171,6 +173,7 @@ public class WebSocketTransport extends AbstractWebSocketTransport {
         private void onOpen(Session session) {
             locked(() -> _session = session);
             session.addMessageHandler(this);
+            session.addMessageHandler(ByteBuffer.class, this::onData);
             if (LOGGER.isDebugEnabled()) {
                 LOGGER.debug("Opened websocket session {}", session);
             }
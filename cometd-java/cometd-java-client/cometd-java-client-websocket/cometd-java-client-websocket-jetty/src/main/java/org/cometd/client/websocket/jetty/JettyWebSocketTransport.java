@@ -21,6 +21,7 @@ import java.net.SocketTimeoutException;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.net.UnknownHostException;
+import java.nio.ByteBuffer;
 import java.nio.channels.UnresolvedAddressException;
 import java.time.Duration;
 import java.util.HashMap;
@@ -79,6 +80,7 @@ public class JettyWebSocketTransport extends AbstractWebSocketTransport implemen
         _webSocketClient.setIdleTimeout(Duration.ofMillis(getIdleTimeout()));
         long maxMessageSize = getOption(MAX_MESSAGE_SIZE_OPTION, _webSocketClient.getMaxTextMessageSize());
         _webSocketClient.setMaxTextMessageSize(maxMessageSize);
+        _webSocketClient.setMaxBinaryMessageSize(maxMessageSize);
 
         _webSocketSupported = true;
         _webSocketConnected = false;
@@ -92,9 +94,9 @@ public class JettyWebSocketTransport extends AbstractWebSocketTransport implemen
             }
             ClientUpgradeRequest request = new ClientUpgradeRequest();
             request.setCookies(getCookieStore().get(URI.create(uri)));
-            String protocol = getProtocol();
-            if (protocol != null) {
-                request.setSubProtocols(protocol);
+            List<String> protocols = getProtocols();
+            if (!protocols.isEmpty()) {
+                request.setSubProtocols(protocols);
             }
             if (isPerMessageDeflateEnabled()) {
                 request.addExtensions("permessage-deflate");
@@ -187,6 +189,7 @@ public class JettyWebSocketTransport extends AbstractWebSocketTransport implemen
 
         @Override
         public void onWebSocketBinary(byte[] payload, int offset, int len) {
+            onData(ByteBuffer.wrap(payload, offset, len));
         }
 
         @Override
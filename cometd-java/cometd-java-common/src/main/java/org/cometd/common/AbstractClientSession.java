@@ -16,6 +16,7 @@
 package org.cometd.common;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -46,6 +47,7 @@ import org.slf4j.LoggerFactory;
 public abstract class AbstractClientSession implements ClientSession, Dumpable {
     private static final Logger _logger = LoggerFactory.getLogger(ClientSession.class);
     private static final AtomicLong _idGen = new AtomicLong(0);
+    private static final int MAX_DISPATCH_ENTRIES = 1024;
 
     private final List<Extension> _extensions = new CopyOnWriteArrayList<>();
     private final AttributesMap _attributes = new AttributesMap();
@@ -54,6 +56,7 @@ public abstract class AbstractClientSession implements ClientSession, Dumpable {
     private final Map<String, ClientSessionChannel.MessageListener> _subscribers = new ConcurrentHashMap<>();
     private final Map<String, MessageListener> _remoteCalls = new ConcurrentHashMap<>();
     private final AtomicInteger _batch = new AtomicInteger();
+    private volatile ConcurrentMap<String, AbstractSessionChannel[]> _dispatch = new ConcurrentHashMap<>();
 
     protected AbstractClientSession() {
     }
@@ -140,6 +143,7 @@ public abstract class AbstractClientSession implements ClientSession, Dumpable {
         channel = _channels.putIfAbsent(channelId.getId(), newChannel);
         if (channel == null) {
             channel = newChannel;
+            invalidateDispatch();
         }
         return channel;
     }
@@ -304,17 +308,51 @@ public abstract class AbstractClientSession implements ClientSession, Dumpable {
             }
         }
 
-        ChannelId channelId = newChannelId(message.getChannel());
-        for (String channelName : channelId.getAllIds()) {
-            MarkedReference<AbstractSessionChannel> channelRef = getReleasableChannel(channelName);
-            AbstractSessionChannel channel = channelRef.getReference();
-            channel.notifyMessageListeners(message);
-            if (channelRef.isMarked()) {
-                channel.release();
+        for (AbstractSessionChannel channel : getDispatchChannels(message.getChannel())) {
+            // The channel may have been released concurrently.
+            if (!channel.isReleased()) {
+                channel.notifyMessageListeners(message);
             }
         }
     }
 
+    /**
+     * <p>Returns the existing channels that match the given channel name,
+     * that is the channel itself and its wildcard channels.</p>
+     * <p>The result is cached until a channel is created or released,
+     * so that the channels that have no subscribers and no listeners
+     * are not created just to be notified and then released.</p>
+     *
+     * @param channelName the name of the channel of a message
+     * @return the channels to notify of a message on the given channel
+     */
+    private AbstractSessionChannel[] getDispatchChannels(String channelName) {
+        // Read the table before computing the entry, so that if the
+        // channels change concurrently the entry is stored in the
+        // table that has been discarded by the change.
+        ConcurrentMap<String, AbstractSessionChannel[]> dispatch = _dispatch;
+        AbstractSessionChannel[] channels = dispatch.get(channelName);
+        if (channels == null) {
+            List<AbstractSessionChannel> matches = new ArrayList<>();
+            for (String id : newChannelId(channelName).getAllIds()) {
+                // Meta channels are always created, as getReleasableChannel() does.
+                AbstractSessionChannel channel = ChannelId.isMeta(id) ? (AbstractSessionChannel)getChannel(id) : _channels.get(id);
+                if (channel != null) {
+                    matches.add(channel);
+                }
+            }
+            channels = matches.toArray(new AbstractSessionChannel[0]);
+            if (dispatch.size() < MAX_DISPATCH_ENTRIES) {
+                dispatch.put(channelName, channels);
+            }
+        }
+        return channels;
+    }
+
+    private void invalidateDispatch() {
+        _dispatch = new ConcurrentHashMap<>();
+    }
+
     protected void notifyCallback(ClientSession.MessageListener callback, Message.Mutable message) {
         try {
             callback.onMessage(message);
@@ -535,6 +573,9 @@ public abstract class AbstractClientSession implements ClientSession, Dumpable {
             if (_subscriptions.isEmpty() && _listeners.isEmpty()) {
                 boolean removed = _channels.remove(getId(), this);
                 _released = removed;
+                if (removed) {
+                    invalidateDispatch();
+                }
                 return removed;
             }
             return false;
@@ -15,11 +15,12 @@
  */
 package org.cometd.common;
 
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
 import java.util.Iterator;
 import java.util.List;
 import java.util.ListIterator;
 import java.util.NoSuchElementException;
-import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.IntFunction;
 import org.cometd.bayeux.Promise;
 
@@ -183,15 +184,31 @@ public class AsyncFoldLeft {
         LOOP, ASYNC, PROCEED, LEAVE, FAIL
     }
 
+    // The loop updates the state and the failure via VarHandles to save
+    // the allocation of AtomicReferences, and stores the result in a plain
+    // field that is published by the state transitions.
     private static abstract class AbstractLoop<T, R> implements Loop<R> {
-        private final AtomicReference<State> state = new AtomicReference<>(State.LOOP);
-        private final AtomicReference<Throwable> failure = new AtomicReference<>();
-        private final AtomicReference<R> result;
+        private static final VarHandle STATE;
+        private static final VarHandle FAILURE;
+
+        static {
+            try {
+                MethodHandles.Lookup lookup = MethodHandles.lookup();
+                STATE = lookup.findVarHandle(AbstractLoop.class, "state", State.class);
+                FAILURE = lookup.findVarHandle(AbstractLoop.class, "failure", Throwable.class);
+            } catch (ReflectiveOperationException x) {
+                throw new ExceptionInInitializerError(x);
+            }
+        }
+
         private final Operation<T, R> operation;
         private final Promise<R> promise;
+        private volatile State state = State.LOOP;
+        private volatile Throwable failure;
+        private R result;
 
         private AbstractLoop(R zero, Operation<T, R> operation, Promise<R> promise) {
-            this.result = new AtomicReference<>(zero);
+            this.result = zero;
             this.operation = operation;
             this.promise = promise;
         }
@@ -204,14 +221,14 @@ public class AsyncFoldLeft {
 
         void run() {
             while (hasCurrent()) {
-                state.set(State.LOOP);
-                operation.apply(result.get(), current(), this);
+                state = State.LOOP;
+                operation.apply(result, current(), this);
                 loop:
                 while (true) {
-                    State current = state.get();
+                    State current = state;
                     switch (current) {
                         case LOOP:
-                            if (state.compareAndSet(current, State.ASYNC)) {
+                            if (STATE.compareAndSet(this, current, State.ASYNC)) {
                                 return;
                             }
                             break;
@@ -219,32 +236,32 @@ public class AsyncFoldLeft {
                             next();
                             break loop;
                         case LEAVE:
-                            promise.succeed(result.get());
+                            promise.succeed(result);
                             return;
                         case FAIL:
-                            promise.fail(failure.get());
+                            promise.fail(failure);
                             return;
                         default:
                             throw new IllegalStateException("Could not run loop in state " + current);
                     }
                 }
             }
-            promise.succeed(result.get());
+            promise.succeed(result);
         }
 
         @Override
         public void proceed(R r) {
-            result.set(r);
+            result = r;
             while (true) {
-                State current = state.get();
+                State current = state;
                 switch (current) {
                     case LOOP:
-                        if (state.compareAndSet(current, State.PROCEED)) {
+                        if (STATE.compareAndSet(this, current, State.PROCEED)) {
                             return;
                         }
                         break;
                     case ASYNC:
-                        if (state.compareAndSet(current, State.PROCEED)) {
+                        if (STATE.compareAndSet(this, current, State.PROCEED)) {
                             next();
                             run();
                             return;
@@ -258,18 +275,18 @@ public class AsyncFoldLeft {
 
         @Override
         public void leave(R r) {
-            result.set(r);
+            result = r;
             while (true) {
-                State current = state.get();
+                State current = state;
                 switch (current) {
                     case LOOP:
-                        if (state.compareAndSet(current, State.LEAVE)) {
+                        if (STATE.compareAndSet(this, current, State.LEAVE)) {
                             return;
                         }
                         break;
                     case ASYNC:
-                        if (state.compareAndSet(current, State.LEAVE)) {
-                            promise.succeed(result.get());
+                        if (STATE.compareAndSet(this, current, State.LEAVE)) {
+                            promise.succeed(result);
                             return;
                         }
                         break;
@@ -281,17 +298,17 @@ public class AsyncFoldLeft {
 
         @Override
         public void fail(Throwable x) {
-            failure.compareAndSet(null, x);
+            FAILURE.compareAndSet(this, null, x);
             while (true) {
-                State current = state.get();
+                State current = state;
                 switch (current) {
                     case LOOP:
-                        if (state.compareAndSet(current, State.FAIL)) {
+                        if (STATE.compareAndSet(this, current, State.FAIL)) {
                             return;
                         }
                         break;
                     case ASYNC:
-                        if (state.compareAndSet(current, State.FAIL)) {
+                        if (STATE.compareAndSet(this, current, State.FAIL)) {
                             promise.fail(x);
                             return;
                         }
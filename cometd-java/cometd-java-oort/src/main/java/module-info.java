@@ -22,6 +22,8 @@ module org.cometd.oort {
     requires transitive org.cometd.server;
     requires org.slf4j;
 
+    // Only required when using the default resolver of OortSrvDiscovery.
+    requires static java.naming;
     // Only required when using JMX.
     requires static org.eclipse.jetty.jmx;
 }
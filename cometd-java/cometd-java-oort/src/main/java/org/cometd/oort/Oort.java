@@ -52,6 +52,7 @@ import org.cometd.bayeux.server.ServerSession;
 import org.cometd.client.ext.AckExtension;
 import org.cometd.client.http.jetty.JettyHttpClientTransport;
 import org.cometd.client.transport.ClientTransport;
+import org.cometd.client.transport.TimerWheel;
 import org.cometd.client.websocket.javax.WebSocketTransport;
 import org.cometd.common.JSONContext;
 import org.cometd.server.ext.AcknowledgedMessagesExtension;
@@ -91,6 +92,8 @@ public class Oort extends ContainerLifeCycle {
     public static final String EXT_OORT_SECRET_FIELD = "oortSecret";
     public static final String EXT_COMET_URL_FIELD = "cometURL";
     public static final String EXT_OORT_ALIAS_URL_FIELD = "oortAliasURL";
+    public static final String EXT_OORT_TIMESTAMP_FIELD = "oortTimestamp";
+    public static final String EXT_OORT_LINK_FIELD = "oortLink";
     public static final String OORT_CLOUD_CHANNEL = "/oort/cloud";
     public static final String OORT_SERVICE_CHANNEL = "/service/oort";
     static final String COMET_URL_ATTRIBUTE = EXT_OORT_FIELD + "." + EXT_COMET_URL_FIELD;
@@ -108,7 +111,9 @@ public class Oort extends ContainerLifeCycle {
     private final Logger _logger;
     private final LocalSession _oortSession;
     private final OortMembership _membership;
+    private final OortMetrics _metrics = new OortMetrics();
     private ScheduledExecutorService _scheduler;
+    private TimerWheel _timerWheel;
     private String _secret;
     private boolean _ackExtensionEnabled = true;
     private Extension _ackExtension;
@@ -117,6 +122,9 @@ public class Oort extends ContainerLifeCycle {
     private ClientSession.Extension _binaryExtension;
     private JSONContext.Client _jsonContext;
     private Collection<String> _exactSubscriptions;
+    private boolean _metricsEnabled;
+    private Extension _metricsExtension;
+    private int _cometLinks = 1;
 
     public Oort(BayeuxServer bayeux, String url) {
         _bayeux = bayeux;
@@ -135,6 +143,8 @@ public class Oort extends ContainerLifeCycle {
         scheduler.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
         scheduler.setRemoveOnCancelPolicy(true);
         _scheduler = scheduler;
+        // All the comets share the same timer wheel to expire their messages.
+        _timerWheel = new TimerWheel(scheduler);
 
         if (_transportFactories.isEmpty()) {
             _transportFactories.add(new WebSocketTransport.Factory());
@@ -171,6 +181,10 @@ public class Oort extends ContainerLifeCycle {
             }
         }
 
+        if (isMetricsEnabled()) {
+            _bayeux.addExtension(_metricsExtension = new MetricsExtension());
+        }
+
         _bayeux.addListener(_allChannelsFilter);
 
         ServerChannel oortCloudChannel = _bayeux.createChannelIfAbsent(OORT_CLOUD_CHANNEL).getReference();
@@ -199,6 +213,12 @@ public class Oort extends ContainerLifeCycle {
 
         _bayeux.removeListener(_allChannelsFilter);
 
+        Extension metricsExtension = _metricsExtension;
+        _metricsExtension = null;
+        if (metricsExtension != null) {
+            _bayeux.removeExtension(metricsExtension);
+        }
+
         Extension binaryExtension = _serverBinaryExtension;
         _serverBinaryExtension = null;
         if (binaryExtension != null) {
@@ -282,6 +302,65 @@ public class Oort extends ContainerLifeCycle {
         _binaryExtensionEnabled = value;
     }
 
+    @ManagedAttribute("Whether the metrics of the messages forwarded among comets are enabled")
+    public boolean isMetricsEnabled() {
+        return _metricsEnabled;
+    }
+
+    /**
+     * <p>Enables the collection of the metrics of the messages forwarded among comets.</p>
+     * <p>When enabled, the messages published to broadcast channels carry the
+     * timestamp of the publish in the {@link #EXT_OORT_TIMESTAMP_FIELD ext field},
+     * so that the comets that receive them can measure the forwarding delay.
+     * This must be configured before starting this Oort.</p>
+     *
+     * @param value whether the metrics are enabled
+     * @see #getMetrics()
+     */
+    public void setMetricsEnabled(boolean value) {
+        _metricsEnabled = value;
+    }
+
+    /**
+     * @return the metrics of the messages forwarded among comets, by observed channel
+     * @see #setMetricsEnabled(boolean)
+     */
+    public OortMetrics getMetrics() {
+        return _metrics;
+    }
+
+    @ManagedOperation(value = "Resets the metrics of the messages forwarded among comets", impact = "ACTION")
+    public void resetMetrics() {
+        _metrics.reset();
+    }
+
+    @ManagedAttribute("The number of links to each comet")
+    public int getCometLinks() {
+        return _cometLinks;
+    }
+
+    /**
+     * <p>Sets the number of links, each with its own connection, to each comet.</p>
+     * <p>The messages of the observed channels and the messages published via
+     * {@link #getComet(String, String)} are spread across the links by channel,
+     * so that the messages of a channel are always carried by the same link
+     * and their order is preserved, while the messages of different channels
+     * are carried in parallel.
+     * This must be configured before connecting to other comets.</p>
+     *
+     * @param cometLinks the number of links to each comet
+     */
+    public void setCometLinks(int cometLinks) {
+        if (cometLinks < 1) {
+            throw new IllegalArgumentException("Invalid comet links " + cometLinks);
+        }
+        _cometLinks = cometLinks;
+    }
+
+    int getCometLink(String channel) {
+        return Math.floorMod(channel.hashCode(), getCometLinks());
+    }
+
     public JSONContext.Client getJSONContextClient() {
         return _jsonContext;
     }
@@ -314,6 +393,7 @@ public class Oort extends ContainerLifeCycle {
     protected OortComet newOortComet(String cometURL) {
         Map<String, Object> options = new HashMap<>(4);
         options.put(ClientTransport.SCHEDULER_OPTION, _scheduler);
+        options.put(ClientTransport.TIMER_WHEEL_OPTION, _timerWheel);
 
         JSONContext.Client jsonContext = getJSONContextClient();
         if (jsonContext != null) {
@@ -426,6 +506,18 @@ public class Oort extends ContainerLifeCycle {
         return _membership.getComet(cometURL);
     }
 
+    /**
+     * @param cometURL the URL of a Oort comet
+     * @param channel  the channel to publish messages to
+     * @return the OortComet instance connected with the Oort comet with the given URL
+     * that carries the messages of the given channel; it may not be handshook yet,
+     * in which case it queues the messages until it is handshook
+     * @see #setCometLinks(int)
+     */
+    public OortComet getComet(String cometURL, String channel) {
+        return _membership.getComet(cometURL, channel);
+    }
+
     /**
      * @param cometURL the URL of a Oort comet
      * @return the OortComet instance connecting or connected with the Oort comet with the given URL
@@ -771,6 +863,18 @@ public class Oort extends ContainerLifeCycle {
         }
     }
 
+    private class MetricsExtension implements Extension {
+        @Override
+        public boolean send(ServerSession from, ServerSession to, Mutable message) {
+            // Only stamp the messages published in this comet, not those
+            // republished from other comets that already have the timestamp.
+            if (to == null && ChannelId.isBroadcast(message.getChannel()) && !isOort(from)) {
+                message.getExt(true).putIfAbsent(EXT_OORT_TIMESTAMP_FIELD, System.currentTimeMillis());
+            }
+            return true;
+        }
+    }
+
     private class OortAuthorizer implements Authorizer {
         @Override
         public Result authorize(Operation operation, ChannelId channel, ServerSession session, ServerMessage message) {
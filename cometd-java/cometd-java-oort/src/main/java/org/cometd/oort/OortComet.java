@@ -22,7 +22,9 @@ import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.atomic.AtomicBoolean;
 import org.cometd.bayeux.ChannelId;
+import org.cometd.bayeux.Message;
 import org.cometd.bayeux.client.ClientSession;
 import org.cometd.bayeux.client.ClientSessionChannel;
 import org.cometd.client.BayeuxClient;
@@ -39,6 +41,8 @@ public class OortComet extends BayeuxClient {
     private final Oort _oort;
     private final String _cometURL;
     private volatile boolean _subscriptionsAllowed;
+    private final AtomicBoolean _linkPending = new AtomicBoolean();
+    private volatile int _link;
 
     public OortComet(Oort oort, String cometURL, ScheduledExecutorService scheduler, ClientTransport transport, ClientTransport... transports) {
         super(cometURL, scheduler, transport, transports);
@@ -57,6 +61,11 @@ public class OortComet extends BayeuxClient {
                 continue;
             }
 
+            // The messages of this channel are carried by another link.
+            if (_oort.getCometLink(channel) != _link) {
+                continue;
+            }
+
             ClientSessionChannel.MessageListener listener = (subscription, message) -> {
                 String messageChannel = message.getChannel();
                 if (_oort.isExactSubscription(messageChannel)) {
@@ -73,6 +82,9 @@ public class OortComet extends BayeuxClient {
                     logger.debug("Received (republish={}) message {} from comet {}", republish, message, _cometURL);
                 }
                 if (republish) {
+                    if (_oort.isMetricsEnabled()) {
+                        received(subscription.getId(), message);
+                    }
                     // BayeuxServer may sweep channels, so calling bayeux.getChannel(...)
                     // may return null, and therefore we use the client to send the message.
                     _oort.getOortSession().getChannel(messageChannel).publish(message);
@@ -92,6 +104,17 @@ public class OortComet extends BayeuxClient {
         }
     }
 
+    private void received(String channel, Message message) {
+        long latency = -1;
+        Map<String, Object> ext = message.getExt();
+        Object timestamp = ext == null ? null : ext.get(Oort.EXT_OORT_TIMESTAMP_FIELD);
+        if (timestamp instanceof Number) {
+            // Clocks may be skewed, so the latency may be negative.
+            latency = System.currentTimeMillis() - ((Number)timestamp).longValue();
+        }
+        _oort.getMetrics().received(channel, _cometURL, latency);
+    }
+
     protected void unsubscribe(String channel) {
         ClientSessionChannel.MessageListener listener = _subscriptions.remove(channel);
         if (listener != null) {
@@ -108,6 +131,30 @@ public class OortComet extends BayeuxClient {
         }
     }
 
+    int getLink() {
+        return _link;
+    }
+
+    void setLink(int link) {
+        _link = link;
+        // Hold the messages until the link is handshook, so that the
+        // messages of a channel are never sent on another connection.
+        if (link > 0 && _linkPending.compareAndSet(false, true)) {
+            startBatch();
+        }
+    }
+
+    void openLink() {
+        batch(() -> {
+            clearSubscriptions();
+            _subscriptionsAllowed = true;
+            subscribe(_oort.getObservedChannels());
+        });
+        if (_linkPending.compareAndSet(true, false)) {
+            endBatch();
+        }
+    }
+
     void open(ClientSession.MessageListener callback) {
         batch(() -> {
             // Subscribe to cloud notifications
@@ -150,6 +197,10 @@ public class OortComet extends BayeuxClient {
 
     @Override
     public String toString() {
+        int link = getLink();
+        if (link > 0) {
+            return String.format("%s[%s#%d]", super.toString(), _cometURL, link);
+        }
         return String.format("%s[%s]", super.toString(), _cometURL);
     }
 }
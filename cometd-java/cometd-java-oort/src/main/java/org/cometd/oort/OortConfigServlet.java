@@ -54,6 +54,8 @@ public abstract class OortConfigServlet extends HttpServlet {
     public static final String OORT_CHANNELS_PARAM = "oort.channels";
     public static final String OORT_ENABLE_ACK_EXTENSION_PARAM = "enableAckExtension";
     public static final String OORT_ENABLE_BINARY_EXTENSION_PARAM = "enableBinaryExtension";
+    public static final String OORT_ENABLE_METRICS_PARAM = "enableMetrics";
+    public static final String OORT_COMET_LINKS_PARAM = "cometLinks";
     public static final String OORT_JSON_CONTEXT_PARAM = "jsonContext";
     public static final String OORT_CLIENT_TRANSPORT_FACTORIES_PARAM = "clientTransportFactories";
     private static final Logger LOGGER = LoggerFactory.getLogger(OortConfigServlet.class);
@@ -133,6 +135,14 @@ public abstract class OortConfigServlet extends HttpServlet {
         }
         oort.setBinaryExtensionEnabled(Boolean.parseBoolean(enableBinaryExtension));
 
+        String enableMetrics = config.getInitParameter(OORT_ENABLE_METRICS_PARAM);
+        oort.setMetricsEnabled(Boolean.parseBoolean(enableMetrics));
+
+        String cometLinks = config.getInitParameter(OORT_COMET_LINKS_PARAM);
+        if (cometLinks != null) {
+            oort.setCometLinks(Integer.parseInt(cometLinks));
+        }
+
         String jsonContext = config.getInitParameter(OORT_JSON_CONTEXT_PARAM);
         if (jsonContext != null) {
             Class<?> klass = getClass().getClassLoader().loadClass(jsonContext);
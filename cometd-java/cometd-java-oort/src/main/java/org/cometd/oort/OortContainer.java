@@ -15,30 +15,118 @@
  */
 package org.cometd.oort;
 
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Comparator;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.PriorityQueue;
 import java.util.Queue;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+import org.cometd.bayeux.Promise;
+import org.eclipse.jetty.util.thread.AutoLock;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+/**
+ * <p>A specialized oort object whose entity is a container of items,
+ * such as the entries of a map or the elements of a list.</p>
+ * <p>Item updates are replicated individually, and when a node needs to
+ * resynchronize its copy of a remote container, only the items that differ
+ * are sent: the items are hashed into buckets, and the digest of the buckets
+ * of the copy is compared with the digest of the buckets of the original.</p>
+ * <p>Item updates may be batched with a {@link #setBatchWindow(long) batch window}:
+ * the updates performed within the window are coalesced and shared in a single message,
+ * that other nodes apply atomically.</p>
+ *
+ * @param <T> the container type
+ */
 public abstract class OortContainer<T> extends OortObject<T> {
     private static final Map<String, Object> STALE_UPDATE = new HashMap<>();
+    private static final String DELTA_BUCKETS_FIELD = "buckets";
+    private static final String DELTA_DIVERGENT_FIELD = "divergent";
+    private static final int ITEMS_PER_BUCKET = 16;
+    private static final String TYPE_FIELD_BATCH_VALUE = "oort.container.batch";
 
     private final Map<String, Updater> updaters = new ConcurrentHashMap<>();
+    private final ConcurrentMap<Object, Set<String>> index = new ConcurrentHashMap<>();
+    private final AutoLock lock = new AutoLock();
     private final Logger logger;
+    private int maxDigestBuckets = 1024;
+    private long batchWindow;
+    private List<Data<?>> batch = new ArrayList<>();
 
     public OortContainer(Oort oort, String name, Factory<T> factory) {
         super(oort, name, factory);
         this.logger = LoggerFactory.getLogger(Oort.loggerName(getClass(), oort.getURL(), name));
     }
 
+    /**
+     * @return the max number of buckets of the digests used to resynchronize containers
+     */
+    public int getMaxDigestBuckets() {
+        return maxDigestBuckets;
+    }
+
+    /**
+     * <p>Sets the max number of buckets of the digests used to resynchronize containers.</p>
+     * <p>More buckets make digests larger, but fewer items are sent when only a few items differ.</p>
+     *
+     * @param maxDigestBuckets the max number of digest buckets, rounded down to a power of 2
+     */
+    public void setMaxDigestBuckets(int maxDigestBuckets) {
+        this.maxDigestBuckets = Integer.highestOneBit(Math.max(1, maxDigestBuckets));
+    }
+
+    /**
+     * @return the batch window in milliseconds, or 0 if item updates are not batched
+     */
+    public long getBatchWindow() {
+        return batchWindow;
+    }
+
+    /**
+     * <p>Sets the window of time in which item updates are batched.</p>
+     * <p>Item updates performed within the window are shared in a single message
+     * when the window expires, and updates to the same item are coalesced.</p>
+     *
+     * @param batchWindow the batch window in milliseconds, or 0 to share item updates immediately
+     */
+    public void setBatchWindow(long batchWindow) {
+        this.batchWindow = batchWindow;
+    }
+
+    @Override
+    protected void doStart() {
+        super.doStart();
+        Info<T> info = getInfo(getOort().getURL());
+        if (info != null) {
+            reindex(info.getOortURL(), List.of(), indexedItems(info.getObject()));
+        }
+    }
+
     @Override
     protected void doStop() {
+        flush();
         super.doStop();
         updaters.clear();
+        index.clear();
+    }
+
+    @Override
+    public void setAndShare(T newObject, Result<T> callback) {
+        // Share pending item updates first, so that they
+        // are not applied after the whole object update.
+        flush();
+        super.setAndShare(newObject, callback);
     }
 
     @Override
@@ -51,14 +139,14 @@ public abstract class OortContainer<T> extends OortObject<T> {
     protected void onObject(Map<String, Object> data) {
         String oortURL = (String)data.get(Info.OORT_URL_FIELD);
         Updater updater = updater(oortURL);
-        if (isItemUpdate(data)) {
+        if (isItemUpdate(data) || isBatchUpdate(data)) {
             Info<T> info = getInfo(oortURL);
             if (info == null) {
                 updater.enqueue(data);
                 pullInfo(oortURL);
             } else {
                 if (info.isLocal()) {
-                    onItem(info, data);
+                    onItemUpdate(info, data);
                 } else {
                     updater.enqueue(data);
                     process(info, updater);
@@ -76,6 +164,181 @@ public abstract class OortContainer<T> extends OortObject<T> {
         }
     }
 
+    @Override
+    protected void notifyUpdated(Info<T> oldInfo, Info<T> newInfo) {
+        // Update the index before notifying, so that listeners see a consistent index.
+        Collection<?> oldItems = oldInfo == null ? List.of() : indexedItems(oldInfo.getObject());
+        reindex(newInfo.getOortURL(), oldItems, indexedItems(newInfo.getObject()));
+        super.notifyUpdated(oldInfo, newInfo);
+    }
+
+    @Override
+    protected void notifyRemoved(Info<T> info) {
+        reindex(info.getOortURL(), indexedItems(info.getObject()), List.of());
+        super.notifyRemoved(info);
+    }
+
+    private Collection<?> indexedItems(T object) {
+        Collection<?> items = getItems(object);
+        return items == null ? List.of() : items;
+    }
+
+    private void reindex(String oortURL, Collection<?> oldItems, Collection<?> newItems) {
+        Set<Object> removed = new HashSet<>(oldItems);
+        for (Object item : newItems) {
+            if (!removed.remove(item)) {
+                indexItem(item, oortURL);
+            }
+        }
+        for (Object item : removed) {
+            deindexItem(item, oortURL);
+        }
+    }
+
+    /**
+     * <p>Records that the entity of the given node contains the given item.</p>
+     *
+     * @param item    the item, such as a map key or a list element
+     * @param oortURL the oort URL of the node whose entity contains the item
+     * @see #deindexItem(Object, String)
+     */
+    protected void indexItem(Object item, String oortURL) {
+        // The sets are replaced rather than modified, so that readers do not need locking.
+        index.compute(item, (k, oortURLs) -> {
+            if (oortURLs == null) {
+                return Set.of(oortURL);
+            }
+            if (oortURLs.contains(oortURL)) {
+                return oortURLs;
+            }
+            Set<String> result = new HashSet<>(oortURLs);
+            result.add(oortURL);
+            return result;
+        });
+    }
+
+    /**
+     * <p>Records that the entity of the given node does not contain the given item anymore.</p>
+     *
+     * @param item    the item, such as a map key or a list element
+     * @param oortURL the oort URL of the node whose entity does not contain the item anymore
+     * @see #indexItem(Object, String)
+     */
+    protected void deindexItem(Object item, String oortURL) {
+        index.computeIfPresent(item, (k, oortURLs) -> {
+            if (!oortURLs.contains(oortURL)) {
+                return oortURLs;
+            }
+            if (oortURLs.size() == 1) {
+                return null;
+            }
+            Set<String> result = new HashSet<>(oortURLs);
+            result.remove(oortURL);
+            return result;
+        });
+    }
+
+    /**
+     * <p>Returns the oort URLs of the nodes whose entity contains the given item,
+     * without scanning the entities of all nodes.</p>
+     * <p>The index is only updated by shared operations, so items added to or
+     * removed from an entity without sharing the change are not reflected.</p>
+     * <p>Items are only indexed if {@link #getItems(Object)} is overridden,
+     * otherwise the entities of all nodes must be scanned to find an item.</p>
+     *
+     * @param item the item, such as a map key or a list element
+     * @return the oort URLs of the nodes whose entity contains the given item
+     */
+    protected Set<String> getOortURLs(Object item) {
+        return index.getOrDefault(item, Set.of());
+    }
+
+    @Override
+    protected Object digest(T object) {
+        Collection<?> items = getItems(object);
+        if (items == null) {
+            return null;
+        }
+        int buckets = Math.min(getMaxDigestBuckets(), Integer.highestOneBit(Math.max(1, items.size() / ITEMS_PER_BUCKET)));
+        long[] hashes = hash(object, items, buckets);
+        List<Long> result = new ArrayList<>(buckets);
+        for (long hash : hashes) {
+            result.add(hash);
+        }
+        return result;
+    }
+
+    @Override
+    protected Map<String, Object> diff(T object, Object digest) {
+        List<?> remoteHashes = digest instanceof Object[] ? List.of((Object[])digest) : (List<?>)digest;
+        int buckets = remoteHashes.size();
+        if (Integer.bitCount(buckets) != 1) {
+            return null;
+        }
+        Collection<?> items = getItems(object);
+        if (items == null) {
+            return null;
+        }
+        long[] hashes = hash(object, items, buckets);
+        Set<Integer> divergent = new HashSet<>();
+        for (int i = 0; i < buckets; ++i) {
+            if (hashes[i] != ((Number)remoteHashes.get(i)).longValue()) {
+                divergent.add(i);
+            }
+        }
+        // Not worth it, send the whole object.
+        if (divergent.size() > buckets / 2) {
+            return null;
+        }
+        Map<String, Object> delta = new HashMap<>(2);
+        delta.put(DELTA_BUCKETS_FIELD, buckets);
+        delta.put(DELTA_DIVERGENT_FIELD, new ArrayList<>(divergent));
+        Object partial = filterItems(object, item -> divergent.contains(bucket(item, buckets)));
+        if (partial == null) {
+            return null;
+        }
+        Map<String, Object> result = new HashMap<>(2);
+        result.put(Info.OBJECT_FIELD, partial);
+        result.put(Info.DELTA_FIELD, delta);
+        if (logger.isDebugEnabled()) {
+            logger.debug("Diff of {}/{} buckets", divergent.size(), buckets);
+        }
+        return result;
+    }
+
+    @Override
+    protected Object patch(T object, Object partial, Object delta) {
+        @SuppressWarnings("unchecked")
+        Map<String, Object> fields = (Map<String, Object>)delta;
+        int buckets = ((Number)fields.get(DELTA_BUCKETS_FIELD)).intValue();
+        Object value = fields.get(DELTA_DIVERGENT_FIELD);
+        List<?> list = value instanceof Object[] ? List.of((Object[])value) : (List<?>)value;
+        Set<Integer> divergent = new HashSet<>();
+        for (Object bucket : list) {
+            divergent.add(((Number)bucket).intValue());
+        }
+        return patchItems(object, partial, item -> divergent.contains(bucket(item, buckets)));
+    }
+
+    private long[] hash(T object, Collection<?> items, int buckets) {
+        long[] result = new long[buckets];
+        for (Object item : items) {
+            // Summing makes the digest independent of the iteration order.
+            result[bucket(item, buckets)] += mix(hashItem(object, item));
+        }
+        return result;
+    }
+
+    private static int bucket(Object item, int buckets) {
+        return (int)(mix(Objects.hashCode(item)) & (buckets - 1));
+    }
+
+    private static long mix(long hash) {
+        hash = (hash ^ (hash >>> 30)) * 0xBF58476D1CE4E5B9L;
+        hash = (hash ^ (hash >>> 27)) * 0x94D049BB133111EBL;
+        return hash ^ (hash >>> 31);
+    }
+
     private Updater updater(String oortURL) {
         Updater updater = updaters.get(oortURL);
         if (updater == null) {
@@ -98,7 +361,122 @@ public abstract class OortContainer<T> extends OortObject<T> {
                 }
                 return;
             }
+            onItemUpdate(info, data);
+        }
+    }
+
+    /**
+     * <p>Shares the given item update with the other nodes, either immediately
+     * or, if a {@link #setBatchWindow(long) batch window} is configured, when
+     * the batch window expires.</p>
+     *
+     * @param data the item update to share
+     */
+    protected void share(Data<?> data) {
+        long window = getBatchWindow();
+        if (window > 0) {
+            boolean schedule;
+            try (AutoLock l = lock.lock()) {
+                batch.add(data);
+                schedule = batch.size() == 1;
+            }
+            if (schedule) {
+                try {
+                    getOort().getScheduler().schedule(this::flush, window, TimeUnit.MILLISECONDS);
+                } catch (RejectedExecutionException x) {
+                    flush();
+                }
+            }
+        } else {
+            publish(data);
+        }
+    }
+
+    private void flush() {
+        List<Data<?>> updates;
+        try (AutoLock l = lock.lock()) {
+            if (batch.isEmpty()) {
+                return;
+            }
+            updates = batch;
+            batch = new ArrayList<>();
+        }
+
+        if (updates.size() == 1) {
+            publish(updates.get(0));
+            return;
+        }
+
+        Batch data = new Batch(updates);
+        data.put(Info.OORT_URL_FIELD, getOort().getURL());
+        data.put(Info.NAME_FIELD, getName());
+        data.put(Info.OBJECT_FIELD, coalesce(updates));
+        data.put(Info.TYPE_FIELD, TYPE_FIELD_BATCH_VALUE);
+        if (logger.isDebugEnabled()) {
+            logger.debug("Sharing batch of {} updates {}", updates.size(), data);
+        }
+        publish(data);
+    }
+
+    private void publish(Data<?> data) {
+        getOort().getBayeuxServer().getChannel(getChannelName()).publish(getLocalSession(), data, Promise.noop());
+    }
+
+    /**
+     * <p>Coalesces the given item updates into the item updates that are shared with other nodes.</p>
+     * <p>The returned item updates must only contain the {@link Info#OBJECT_FIELD object}
+     * and the {@link Info#ACTION_FIELD action} fields, and must have the same effect
+     * of the given item updates when applied in order.</p>
+     *
+     * @param updates the item updates in the order they were performed
+     * @return the coalesced item updates
+     */
+    protected List<Map<String, Object>> coalesce(List<? extends Map<String, Object>> updates) {
+        List<Map<String, Object>> result = new ArrayList<>(updates.size());
+        for (Map<String, Object> update : updates) {
+            result.add(newItemUpdate(update.get(Info.OBJECT_FIELD), (String)update.get(Info.ACTION_FIELD)));
+        }
+        return result;
+    }
+
+    /**
+     * @param object the item update object
+     * @param action the item update action
+     * @return a new item update suitable to be returned by {@link #coalesce(List)}
+     */
+    protected Map<String, Object> newItemUpdate(Object object, String action) {
+        Map<String, Object> result = new HashMap<>(2);
+        result.put(Info.OBJECT_FIELD, object);
+        result.put(Info.ACTION_FIELD, action);
+        return result;
+    }
+
+    private boolean isBatchUpdate(Map<String, Object> data) {
+        return TYPE_FIELD_BATCH_VALUE.equals(data.get(Info.TYPE_FIELD));
+    }
+
+    private void onItemUpdate(Info<T> info, Map<String, Object> data) {
+        if (!isBatchUpdate(data)) {
             onItem(info, data);
+            return;
+        }
+
+        Object version = data.get(Info.VERSION_FIELD);
+        if (data instanceof Batch) {
+            // Apply the original updates, to notify each update result.
+            for (Data<?> update : ((Batch)data).updates) {
+                update.put(Info.VERSION_FIELD, version);
+                onItem(info, update);
+            }
+        } else {
+            Object object = data.get(Info.OBJECT_FIELD);
+            List<?> updates = object instanceof Object[] ? List.of((Object[])object) : (List<?>)object;
+            for (Object element : updates) {
+                @SuppressWarnings("unchecked")
+                Map<String, Object> update = new HashMap<>((Map<String, Object>)element);
+                update.put(Info.VERSION_FIELD, version);
+                onItem(info, update);
+            }
         }
     }
 
@@ -106,6 +484,59 @@ public abstract class OortContainer<T> extends OortObject<T> {
 
     protected abstract void onItem(Info<T> info, Map<String, Object> data);
 
+    /**
+     * <p>Returns the items of the given entity object, such as map keys or list elements,
+     * that are indexed and that are used to resynchronize containers.</p>
+     * <p>This implementation returns null, so that items are not indexed, and lookups
+     * must scan the entities of all nodes, and containers are resynchronized
+     * by sending the whole entity object.</p>
+     *
+     * @param object the entity object
+     * @return the items of the given entity object, or null if the items are not indexed
+     */
+    protected Collection<?> getItems(T object) {
+        return null;
+    }
+
+    /**
+     * <p>Returns the hash of the given item, computed from its {@code hashCode()},
+     * including the hash of the value associated with the item, if any.</p>
+     * <p>Items with different hashes are considered different when the container
+     * is resynchronized, so the hash must be the same on all nodes.</p>
+     * <p>This implementation returns the hash of the item only.</p>
+     *
+     * @param object the entity object
+     * @param item   the item of the entity object
+     * @return the hash of the given item
+     */
+    protected long hashItem(T object, Object item) {
+        return Objects.hashCode(item);
+    }
+
+    /**
+     * <p>This implementation returns null, so that the whole entity object
+     * is sent when the container is resynchronized.</p>
+     *
+     * @param object the entity object
+     * @param filter the filter for the items
+     * @return a representation of the entity object with only the items that match the filter,
+     * or null to send the whole entity object
+     */
+    protected Object filterItems(T object, Predicate<Object> filter) {
+        return null;
+    }
+
+    /**
+     * @param object  the entity object, not to be modified
+     * @param partial the representation returned by {@link #filterItems(Object, Predicate)} on another node
+     * @param filter  the filter for the items to replace
+     * @return a representation of the entity object with the items that match the filter
+     * replaced by the items of the partial representation, or null if the items could not be replaced
+     */
+    protected Object patchItems(T object, Object partial, Predicate<Object> filter) {
+        return null;
+    }
+
     /**
      * Item updates from other nodes may arrive out-of-order.
      * This class queues the updates, so that they can
@@ -145,6 +576,18 @@ public abstract class OortContainer<T> extends OortObject<T> {
         }
     }
 
+    /**
+     * The item updates shared together during a batch window.
+     */
+    private static class Batch extends Data<Object> {
+        private final List<Data<?>> updates;
+
+        private Batch(List<Data<?>> updates) {
+            super(4, null);
+            this.updates = updates;
+        }
+    }
+
     private static class VersionComparator implements Comparator<Map<String, Object>> {
         @Override
         public int compare(Map<String, Object> o1, Map<String, Object> o2) {
@@ -0,0 +1,114 @@
+/*
+ * Copyright (c) 2008-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.cometd.oort;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import org.eclipse.jetty.util.component.AbstractLifeCycle;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * <p>Base class for the components that discover the comets of an Oort cloud.</p>
+ * <p>Implementations report membership changes incrementally via
+ * {@link #cometDiscovered(String)} and {@link #cometLost(String)}, or
+ * report the whole membership via {@link #update(Collection)}, and
+ * this class observes or deobserves the comets accordingly.</p>
+ * <p>Differently from {@link OortMulticastConfigurer}, implementations
+ * are not required to periodically advertise the URL of the comet.</p>
+ *
+ * @see OortFileDiscovery
+ * @see OortSrvDiscovery
+ */
+public abstract class OortDiscovery extends AbstractLifeCycle {
+    private final Set<String> cometURLs = ConcurrentHashMap.newKeySet();
+    protected final Logger logger;
+    private final Oort oort;
+
+    protected OortDiscovery(Oort oort) {
+        this.logger = LoggerFactory.getLogger(getClass().getName() + "." + Oort.replacePunctuation(oort.getURL(), '_'));
+        this.oort = oort;
+    }
+
+    public Oort getOort() {
+        return oort;
+    }
+
+    /**
+     * @return the URLs of the comets currently discovered
+     */
+    public Set<String> getCometURLs() {
+        return Set.copyOf(cometURLs);
+    }
+
+    @Override
+    protected void doStop() throws Exception {
+        cometURLs.clear();
+        super.doStop();
+    }
+
+    /**
+     * <p>Replaces the membership with the given comet URLs, observing
+     * the new comets and deobserving the comets that are not present
+     * anymore.</p>
+     *
+     * @param cometURLs the URLs of all the comets currently discovered
+     */
+    protected void update(Collection<String> cometURLs) {
+        Set<String> newCometURLs = new HashSet<>(cometURLs);
+        for (String cometURL : this.cometURLs) {
+            if (!newCometURLs.contains(cometURL)) {
+                cometLost(cometURL);
+            }
+        }
+        for (String cometURL : newCometURLs) {
+            cometDiscovered(cometURL);
+        }
+    }
+
+    /**
+     * <p>Observes the given comet, if it was not already discovered.</p>
+     *
+     * @param cometURL the URL of the comet that has been discovered
+     */
+    protected void cometDiscovered(String cometURL) {
+        if (oort.getURL().equals(cometURL)) {
+            return;
+        }
+        if (cometURLs.add(cometURL)) {
+            if (logger.isDebugEnabled()) {
+                logger.debug("Discovered comet {}", cometURL);
+            }
+            oort.observeComet(cometURL);
+        }
+    }
+
+    /**
+     * <p>Deobserves the given comet, if it was discovered.</p>
+     *
+     * @param cometURL the URL of the comet that has been lost
+     */
+    protected void cometLost(String cometURL) {
+        if (cometURLs.remove(cometURL)) {
+            if (logger.isDebugEnabled()) {
+                logger.debug("Lost comet {}", cometURL);
+            }
+            oort.deobserveComet(cometURL);
+        }
+    }
+}
@@ -0,0 +1,280 @@
+/*
+ * Copyright (c) 2008-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.cometd.oort;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.FileTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import org.eclipse.jetty.util.thread.AutoLock;
+
+/**
+ * <p>Discovers the comets of an Oort cloud via files in a directory shared by all the comets.</p>
+ * <p>Each comet writes its URL in a file in the shared directory when it starts,
+ * and deletes it when it stops.
+ * The changes to the directory are detected with a {@link WatchService} that is
+ * polled periodically by the Oort scheduler, so that no thread is dedicated
+ * to the discovery and only the comets that changed are processed.</p>
+ * <p>Each comet periodically renews the last modified time of its file, so that
+ * the files of comets that crashed without deleting their file are ignored and
+ * deleted after the {@link #getLeaseTimeout() lease timeout}; the clocks of the
+ * hosts must therefore be synchronized.</p>
+ * <p>Note that the {@link WatchService} of some network file systems may not
+ * report the changes made by other hosts.</p>
+ */
+public class OortFileDiscovery extends OortDiscovery {
+    private static final String SUFFIX = ".oort";
+
+    private final AutoLock lock = new AutoLock();
+    private final Map<Path, String> files = new HashMap<>();
+    private final Path directory;
+    private long scanInterval = 1000;
+    private long leaseTimeout = 30000;
+    private long renewed;
+    private Path file;
+    private WatchService watcher;
+    private ScheduledFuture<?> task;
+
+    public OortFileDiscovery(Oort oort, Path directory) {
+        super(oort);
+        this.directory = directory;
+    }
+
+    /**
+     * @return the directory shared by the comets of the cloud
+     */
+    public Path getDirectory() {
+        return directory;
+    }
+
+    /**
+     * @return the interval in milliseconds at which the changes to the directory are processed
+     */
+    public long getScanInterval() {
+        return scanInterval;
+    }
+
+    /**
+     * @param scanInterval the interval in milliseconds at which the changes to the directory are processed
+     */
+    public void setScanInterval(long scanInterval) {
+        this.scanInterval = scanInterval;
+    }
+
+    /**
+     * @return the time in milliseconds after which the file of a comet that
+     * has not been renewed is considered stale, and is ignored and deleted
+     */
+    public long getLeaseTimeout() {
+        return leaseTimeout;
+    }
+
+    /**
+     * <p>Sets the lease timeout, which should be several times the
+     * {@link #getScanInterval() scan interval}, since the file of
+     * this comet is renewed every third of the lease timeout.</p>
+     *
+     * @param leaseTimeout the time in milliseconds after which the file of a comet
+     * that has not been renewed is considered stale, and is ignored and deleted
+     */
+    public void setLeaseTimeout(long leaseTimeout) {
+        this.leaseTimeout = leaseTimeout;
+    }
+
+    @Override
+    protected void doStart() throws Exception {
+        super.doStart();
+        Files.createDirectories(directory);
+        watcher = directory.getFileSystem().newWatchService();
+        directory.register(watcher, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE);
+
+        file = directory.resolve(Oort.replacePunctuation(getOort().getURL(), '_') + SUFFIX);
+        try (AutoLock l = lock.lock()) {
+            write();
+            scan();
+        }
+        long interval = getScanInterval();
+        task = getOort().getScheduler().scheduleWithFixedDelay(this::poll, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    protected void doStop() throws Exception {
+        task.cancel(false);
+        watcher.close();
+        Files.deleteIfExists(file);
+        try (AutoLock l = lock.lock()) {
+            files.clear();
+        }
+        super.doStop();
+    }
+
+    private void write() throws IOException {
+        // Write to a temporary file and rename it, so that
+        // other comets never read a partially written URL.
+        String cometURL = getOort().getURL();
+        Path temp = directory.resolve(Oort.replacePunctuation(cometURL, '_') + ".tmp");
+        Files.writeString(temp, cometURL, StandardCharsets.UTF_8);
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        renewed = System.currentTimeMillis();
+    }
+
+    private void poll() {
+        try (AutoLock l = lock.lock()) {
+            renew();
+            boolean overflow = false;
+            WatchKey key;
+            while ((key = watcher.poll()) != null) {
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    WatchEvent.Kind<?> kind = event.kind();
+                    if (kind == StandardWatchEventKinds.OVERFLOW) {
+                        overflow = true;
+                    } else {
+                        Path path = directory.resolve((Path)event.context());
+                        if (kind == StandardWatchEventKinds.ENTRY_DELETE) {
+                            removed(path);
+                        } else {
+                            added(path);
+                        }
+                    }
+                }
+                if (!key.reset()) {
+                    logger.warn("Could not watch directory {} anymore", directory);
+                }
+            }
+            // Events have been lost, so the directory must be scanned.
+            if (overflow) {
+                scan();
+            }
+            expire();
+        } catch (Throwable x) {
+            logger.info("Could not process changes of directory " + directory, x);
+        }
+    }
+
+    private void renew() throws IOException {
+        long now = System.currentTimeMillis();
+        if (now - renewed < getLeaseTimeout() / 3) {
+            return;
+        }
+        try {
+            Files.setLastModifiedTime(file, FileTime.fromMillis(now));
+            renewed = now;
+        } catch (NoSuchFileException x) {
+            // Another comet deleted the file, for example
+            // because this comet could not renew it in time.
+            write();
+        }
+    }
+
+    private void expire() {
+        for (Path path : List.copyOf(files.keySet())) {
+            if (isExpired(path)) {
+                delete(path);
+                removed(path);
+            }
+        }
+    }
+
+    private void delete(Path path) {
+        if (logger.isDebugEnabled()) {
+            logger.debug("Deleting expired {}", path);
+        }
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException x) {
+            if (logger.isDebugEnabled()) {
+                logger.debug("Could not delete " + path, x);
+            }
+        }
+    }
+
+    private boolean isExpired(Path path) {
+        if (path.equals(file)) {
+            return false;
+        }
+        try {
+            long lastModified = Files.getLastModifiedTime(path).toMillis();
+            return System.currentTimeMillis() - lastModified > getLeaseTimeout();
+        } catch (IOException x) {
+            // The file may have been deleted in the meantime.
+            return false;
+        }
+    }
+
+    private void scan() throws IOException {
+        Map<Path, String> removed = new HashMap<>(files);
+        try (DirectoryStream<Path> paths = Files.newDirectoryStream(directory, "*" + SUFFIX)) {
+            for (Path path : paths) {
+                removed.remove(path);
+                added(path);
+            }
+        }
+        removed.keySet().forEach(this::removed);
+    }
+
+    private void added(Path path) {
+        if (!path.getFileName().toString().endsWith(SUFFIX)) {
+            return;
+        }
+        // The file of a comet that crashed without deleting it.
+        if (isExpired(path)) {
+            delete(path);
+            removed(path);
+            return;
+        }
+        String cometURL = read(path);
+        if (cometURL == null || cometURL.isEmpty()) {
+            return;
+        }
+        String oldCometURL = files.put(path, cometURL);
+        if (oldCometURL != null && !oldCometURL.equals(cometURL)) {
+            cometLost(oldCometURL);
+        }
+        cometDiscovered(cometURL);
+    }
+
+    private void removed(Path path) {
+        String cometURL = files.remove(path);
+        if (cometURL != null) {
+            cometLost(cometURL);
+        }
+    }
+
+    private String read(Path path) {
+        try {
+            return Files.readString(path, StandardCharsets.UTF_8).trim();
+        } catch (IOException x) {
+            // The file may have been deleted in the meantime.
+            if (logger.isDebugEnabled()) {
+                logger.debug("Could not read " + path, x);
+            }
+            return null;
+        }
+    }
+}
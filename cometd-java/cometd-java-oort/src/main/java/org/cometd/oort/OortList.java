@@ -16,12 +16,14 @@
 package org.cometd.oort;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.EventListener;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.concurrent.CopyOnWriteArrayList;
-import org.cometd.bayeux.Promise;
-import org.cometd.bayeux.server.BayeuxServer;
+import java.util.function.Predicate;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -44,6 +46,9 @@ public class OortList<E> extends OortContainer<List<E>> {
     private static final String TYPE_FIELD_ELEMENT_VALUE = "oort.list.element";
     private static final String ACTION_FIELD_ADD_VALUE = "oort.list.add";
     private static final String ACTION_FIELD_REMOVE_VALUE = "oort.list.remove";
+    private static final String PARTIAL_POSITIONS_FIELD = "positions";
+    private static final String PARTIAL_ELEMENTS_FIELD = "elements";
+    private static final String PARTIAL_HASH_FIELD = "hash";
 
     private final List<ElementListener<E>> listeners = new CopyOnWriteArrayList<>();
     private final Logger logger;
@@ -78,18 +83,14 @@ public class OortList<E> extends OortContainer<List<E>> {
 
     /**
      * Returns whether the given {@code element} is present in one of the entity lists of all nodes.
-     * Differently from {@link #contains(Object)} entity lists of all nodes are scanned.
+     * Differently from {@link #contains(Object)} entity lists of all nodes are searched,
+     * using an index of the elements that does not depend on the number of nodes or the list sizes.
      *
      * @param element the element to test for presence
      * @return true if the {@code element} is contained in one of the entity lists of all nodes, false otherwise
      */
     public boolean isPresent(E element) {
-        for (Info<List<E>> info : this) {
-            if (info.getObject().contains(element)) {
-                return true;
-            }
-        }
-        return false;
+        return !getOortURLs(element).isEmpty();
     }
 
     /**
@@ -115,8 +116,7 @@ public class OortList<E> extends OortContainer<List<E>> {
         if (logger.isDebugEnabled()) {
             logger.debug("Sharing list add {}", data);
         }
-        BayeuxServer bayeuxServer = getOort().getBayeuxServer();
-        bayeuxServer.getChannel(getChannelName()).publish(getLocalSession(), data, Promise.noop());
+        share(data);
     }
 
     /**
@@ -142,8 +142,7 @@ public class OortList<E> extends OortContainer<List<E>> {
         if (logger.isDebugEnabled()) {
             logger.debug("Sharing list remove {}", data);
         }
-        BayeuxServer bayeuxServer = getOort().getBayeuxServer();
-        bayeuxServer.getChannel(getChannelName()).publish(getLocalSession(), data, Promise.noop());
+        share(data);
     }
 
     @Override
@@ -151,6 +150,87 @@ public class OortList<E> extends OortContainer<List<E>> {
         return TYPE_FIELD_ELEMENT_VALUE.equals(data.get(Info.TYPE_FIELD));
     }
 
+    @Override
+    protected Collection<?> getItems(List<E> object) {
+        return object;
+    }
+
+    @Override
+    protected List<Map<String, Object>> coalesce(List<? extends Map<String, Object>> updates) {
+        // Merge consecutive updates with the same action.
+        List<Map<String, Object>> result = new ArrayList<>();
+        String lastAction = null;
+        List<Object> lastElements = null;
+        for (Map<String, Object> update : updates) {
+            String action = (String)update.get(Info.ACTION_FIELD);
+            Object object = update.get(Info.OBJECT_FIELD);
+            List<?> elements = object instanceof Object[] ? List.of((Object[])object) : (List<?>)object;
+            if (!action.equals(lastAction)) {
+                lastAction = action;
+                lastElements = new ArrayList<>();
+                result.add(newItemUpdate(lastElements, action));
+            }
+            lastElements.addAll(elements);
+        }
+        return result;
+    }
+
+    @Override
+    protected long hashItem(List<E> object, Object item) {
+        return Objects.hashCode(item);
+    }
+
+    @Override
+    protected Object filterItems(List<E> object, Predicate<Object> filter) {
+        // Lists are ordered, but the digest is not: send the positions of the
+        // elements, and the hash of the whole list to verify the patched list.
+        List<E> list = new ArrayList<>(object);
+        List<Integer> positions = new ArrayList<>();
+        List<E> elements = new ArrayList<>();
+        for (int i = 0; i < list.size(); ++i) {
+            E element = list.get(i);
+            if (filter.test(element)) {
+                positions.add(i);
+                elements.add(element);
+            }
+        }
+        Map<String, Object> result = new HashMap<>(3);
+        result.put(PARTIAL_POSITIONS_FIELD, positions);
+        result.put(PARTIAL_ELEMENTS_FIELD, elements);
+        result.put(PARTIAL_HASH_FIELD, list.hashCode());
+        return result;
+    }
+
+    @Override
+    protected Object patchItems(List<E> object, Object partial, Predicate<Object> filter) {
+        @SuppressWarnings("unchecked")
+        Map<String, Object> fields = (Map<String, Object>)partial;
+        List<?> positions = toList(fields.get(PARTIAL_POSITIONS_FIELD));
+        List<?> elements = toList(fields.get(PARTIAL_ELEMENTS_FIELD));
+        List<Object> result = new ArrayList<>(object);
+        result.removeIf(filter);
+        for (int i = 0; i < positions.size(); ++i) {
+            int position = ((Number)positions.get(i)).intValue();
+            if (position > result.size()) {
+                return null;
+            }
+            result.add(position, elements.get(i));
+        }
+        // The elements not sent may be in a different order,
+        // in which case the whole list needs to be pulled.
+        if (result.hashCode() != ((Number)fields.get(PARTIAL_HASH_FIELD)).intValue()) {
+            if (logger.isDebugEnabled()) {
+                logger.debug("Could not patch {} with {}", object, partial);
+            }
+            return null;
+        }
+        return result;
+    }
+
+    private static List<?> toList(Object value) {
+        return value instanceof Object[] ? List.of((Object[])value) : (List<?>)value;
+    }
+
     @Override
     protected void onItem(Info<List<E>> info, Map<String, Object> data) {
         // Retrieve elements.
@@ -179,6 +259,15 @@ public class OortList<E> extends OortContainer<List<E>> {
         // Update the version.
         info.put(Info.VERSION_FIELD, data.get(Info.VERSION_FIELD));
 
+        // Update the index.
+        for (E element : elements) {
+            if (ACTION_FIELD_ADD_VALUE.equals(action)) {
+                indexItem(element, info.getOortURL());
+            } else {
+                deindexItem(element, info.getOortURL());
+            }
+        }
+
         // Notify.
         if (logger.isDebugEnabled()) {
             logger.debug("{} list {} of {}", info.isLocal() ? "Local" : "Remote", action, elements);
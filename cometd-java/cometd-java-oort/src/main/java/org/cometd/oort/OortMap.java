@@ -15,14 +15,17 @@
  */
 package org.cometd.oort;
 
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.EventListener;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.CopyOnWriteArrayList;
-import org.cometd.bayeux.Promise;
-import org.cometd.bayeux.server.BayeuxServer;
+import java.util.function.Predicate;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -111,8 +114,7 @@ public abstract class OortMap<K, V> extends OortContainer<ConcurrentMap<K, V>> {
         if (logger.isDebugEnabled()) {
             logger.debug("Sharing map put {}", data);
         }
-        BayeuxServer bayeuxServer = getOort().getBayeuxServer();
-        bayeuxServer.getChannel(getChannelName()).publish(getLocalSession(), data, Promise.noop());
+        share(data);
     }
 
     /**
@@ -144,8 +146,7 @@ public abstract class OortMap<K, V> extends OortContainer<ConcurrentMap<K, V>> {
         if (logger.isDebugEnabled()) {
             logger.debug("Sharing map putIfAbsent {}", data);
         }
-        BayeuxServer bayeuxServer = getOort().getBayeuxServer();
-        bayeuxServer.getChannel(getChannelName()).publish(getLocalSession(), data, Promise.noop());
+        share(data);
     }
 
     /**
@@ -174,8 +175,7 @@ public abstract class OortMap<K, V> extends OortContainer<ConcurrentMap<K, V>> {
         if (logger.isDebugEnabled()) {
             logger.debug("Sharing map remove {}", data);
         }
-        BayeuxServer bayeuxServer = getOort().getBayeuxServer();
-        bayeuxServer.getChannel(getChannelName()).publish(getLocalSession(), data, Promise.noop());
+        share(data);
     }
 
     /**
@@ -193,7 +193,8 @@ public abstract class OortMap<K, V> extends OortContainer<ConcurrentMap<K, V>> {
 
     /**
      * Returns the first non-null value mapped to the given key from the entity maps of all nodes.
-     * Differently from {@link #get(Object)}, entity maps of all nodes are scanned.
+     * Differently from {@link #get(Object)}, entity maps of all nodes are searched,
+     * using an index of the keys that does not depend on the number of nodes.
      *
      * @param key the key mapped to the value to return
      * @return the value mapped to the given key, or
@@ -201,10 +202,13 @@ public abstract class OortMap<K, V> extends OortContainer<ConcurrentMap<K, V>> {
      * @see #get(Object)
      */
     public V find(K key) {
-        for (Info<ConcurrentMap<K, V>> info : this) {
-            V result = info.getObject().get(key);
-            if (result != null) {
-                return result;
+        for (String oortURL : getOortURLs(key)) {
+            Info<ConcurrentMap<K, V>> info = getInfo(oortURL);
+            if (info != null) {
+                V result = info.getObject().get(key);
+                if (result != null) {
+                    return result;
+                }
             }
         }
         return null;
@@ -215,8 +219,9 @@ public abstract class OortMap<K, V> extends OortContainer<ConcurrentMap<K, V>> {
      * @return the first {@link Info} whose entity map contains the given key.
      */
     public Info<ConcurrentMap<K, V>> findInfo(K key) {
-        for (Info<ConcurrentMap<K, V>> info : this) {
-            if (info.getObject().get(key) != null) {
+        for (String oortURL : getOortURLs(key)) {
+            Info<ConcurrentMap<K, V>> info = getInfo(oortURL);
+            if (info != null && info.getObject().get(key) != null) {
                 return info;
             }
         }
@@ -228,6 +233,58 @@ public abstract class OortMap<K, V> extends OortContainer<ConcurrentMap<K, V>> {
         return TYPE_FIELD_ENTRY_VALUE.equals(data.get(Info.TYPE_FIELD));
     }
 
+    @Override
+    protected Collection<?> getItems(ConcurrentMap<K, V> object) {
+        return object.keySet();
+    }
+
+    @Override
+    protected List<Map<String, Object>> coalesce(List<? extends Map<String, Object>> updates) {
+        // Only the last update to a key matters, unless it is a putIfAbsent.
+        Map<Object, Map<String, Object>> result = new LinkedHashMap<>();
+        for (Map<String, Object> update : updates) {
+            @SuppressWarnings("unchecked")
+            Map<String, Object> entry = (Map<String, Object>)update.get(Info.OBJECT_FIELD);
+            Object key = entry.get(KEY_FIELD);
+            String action = (String)update.get(Info.ACTION_FIELD);
+            Map<String, Object> previous = result.get(key);
+            if (previous == null || !ACTION_FIELD_PUT_ABSENT_VALUE.equals(action)) {
+                result.put(key, newItemUpdate(entry, action));
+            } else if (ACTION_FIELD_REMOVE_VALUE.equals(previous.get(Info.ACTION_FIELD))) {
+                // A putIfAbsent after a remove always puts.
+                result.put(key, newItemUpdate(entry, ACTION_FIELD_PUT_VALUE));
+            }
+            // A putIfAbsent after a put or a putIfAbsent does nothing.
+        }
+        return new ArrayList<>(result.values());
+    }
+
+    @Override
+    protected long hashItem(ConcurrentMap<K, V> object, Object item) {
+        return 31L * Objects.hashCode(item) + Objects.hashCode(object.get(item));
+    }
+
+    @Override
+    protected Object filterItems(ConcurrentMap<K, V> object, Predicate<Object> filter) {
+        Map<K, V> result = new HashMap<>();
+        object.forEach((key, value) -> {
+            if (filter.test(key)) {
+                result.put(key, value);
+            }
+        });
+        return result;
+    }
+
+    @Override
+    protected Object patchItems(ConcurrentMap<K, V> object, Object partial, Predicate<Object> filter) {
+        Map<K, V> result = new HashMap<>(object);
+        result.keySet().removeIf(filter);
+        @SuppressWarnings("unchecked")
+        Map<K, V> entries = (Map<K, V>)partial;
+        result.putAll(entries);
+        return result;
+    }
+
     @Override
     protected void onItem(Info<ConcurrentMap<K, V>> info, Map<String, Object> data) {
         // Retrieve entry.
@@ -259,6 +316,13 @@ public abstract class OortMap<K, V> extends OortContainer<ConcurrentMap<K, V>> {
         // Update the version.
         info.put(Info.VERSION_FIELD, data.get(Info.VERSION_FIELD));
 
+        // Update the index.
+        if (map.containsKey(key)) {
+            indexItem(key, info.getOortURL());
+        } else {
+            deindexItem(key, info.getOortURL());
+        }
+
         // Notify.
         Entry<K, V> entry = new Entry<>(key, result, value);
         if (logger.isDebugEnabled()) {
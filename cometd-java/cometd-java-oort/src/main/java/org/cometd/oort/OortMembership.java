@@ -40,6 +40,7 @@ import org.cometd.bayeux.server.ConfigurableServerChannel;
 import org.cometd.bayeux.server.ServerChannel;
 import org.cometd.bayeux.server.ServerMessage;
 import org.cometd.bayeux.server.ServerSession;
+import org.cometd.server.ServerMessageImpl;
 import org.eclipse.jetty.util.component.AbstractLifeCycle;
 import org.eclipse.jetty.util.component.Dumpable;
 import org.eclipse.jetty.util.component.DumpableCollection;
@@ -104,6 +105,7 @@ class OortMembership extends AbstractLifeCycle implements Dumpable {
             pendingComets.clear();
             for (ClientCometInfo cometInfo : clientComets.values()) {
                 comets.add(cometInfo.oortComet);
+                comets.addAll(cometInfo.links);
             }
             clientComets.clear();
             serverComets.clear();
@@ -138,8 +140,8 @@ class OortMembership extends AbstractLifeCycle implements Dumpable {
                     if (logger.isDebugEnabled()) {
                         logger.debug("Disconnecting comet {}", cometInfo);
                     }
-                    comet = cometInfo.oortComet;
-                    comets.add(comet);
+                    comets.add(cometInfo.oortComet);
+                    comets.addAll(cometInfo.links);
                     cometInfos.remove();
                 }
             }
@@ -172,6 +174,18 @@ class OortMembership extends AbstractLifeCycle implements Dumpable {
         }
     }
 
+    OortComet getComet(String cometURL, String channel) {
+        int link = oort.getCometLink(channel);
+        try (AutoLock l = lock.lock()) {
+            for (ClientCometInfo cometInfo : clientComets.values()) {
+                if (cometInfo.matchesURL(cometURL)) {
+                    return cometInfo.getComet(link);
+                }
+            }
+            return null;
+        }
+    }
+
     OortComet findComet(String cometURL) {
         try (AutoLock l = lock.lock()) {
             OortComet result = pendingComets.get(cometURL);
@@ -243,11 +257,40 @@ class OortMembership extends AbstractLifeCycle implements Dumpable {
         }
     }
 
+    private OortComet createLink(String cometURL, int link) {
+        assert !lock.isHeldByCurrentThread();
+        OortComet oortComet = oort.newOortComet(cometURL);
+        oort.configureOortComet(oortComet);
+        oortComet.setLink(link);
+        // Links do not take part in the membership protocol,
+        // they only subscribe to the observed channels.
+        oortComet.getChannel(Channel.META_HANDSHAKE).addListener((ClientSessionChannel.MessageListener)(channel, message) -> {
+            if (message.isSuccessful()) {
+                oortComet.openLink();
+            }
+        });
+        return oortComet;
+    }
+
+    private void connectLink(String cometURL, OortComet oortComet) {
+        if (logger.isDebugEnabled()) {
+            logger.debug("Connecting link to comet {} with {}", cometURL, oortComet);
+        }
+        Map<String, Object> fields = oort.newOortHandshakeFields(cometURL, null);
+        @SuppressWarnings("unchecked")
+        Map<String, Object> ext = (Map<String, Object>)fields.get(Message.EXT_FIELD);
+        @SuppressWarnings("unchecked")
+        Map<String, Object> oortExt = (Map<String, Object>)ext.get(Oort.EXT_OORT_FIELD);
+        oortExt.put(Oort.EXT_OORT_LINK_FIELD, oortComet.getLink());
+        oort.connectComet(oortComet, fields);
+    }
+
     void observeChannels(Set<String> channels) {
         List<OortComet> oortComets = new ArrayList<>();
         try (AutoLock l = lock.lock()) {
             for (ClientCometInfo cometInfo : clientComets.values()) {
                 oortComets.add(cometInfo.oortComet);
+                oortComets.addAll(cometInfo.links);
             }
         }
         for (OortComet oortComet : oortComets) {
@@ -260,6 +303,7 @@ class OortMembership extends AbstractLifeCycle implements Dumpable {
         try (AutoLock l = lock.lock()) {
             for (ClientCometInfo cometInfo : clientComets.values()) {
                 oortComets.add(cometInfo.oortComet);
+                oortComets.addAll(cometInfo.links);
             }
         }
         for (OortComet oortComet : oortComets) {
@@ -359,6 +403,7 @@ class OortMembership extends AbstractLifeCycle implements Dumpable {
     private static class ClientCometInfo extends CometInfo {
         private final OortComet oortComet;
         private final Set<String> aliases = Collections.newSetFromMap(new ConcurrentHashMap<>(1));
+        private final List<OortComet> links = new ArrayList<>();
         private LocalState state = LocalState.HANDSHAKE_SENT;
 
         private ClientCometInfo(String oortId, String oortURL, OortComet oortComet) {
@@ -370,6 +415,15 @@ class OortMembership extends AbstractLifeCycle implements Dumpable {
             aliases.add(url);
         }
 
+        private OortComet getComet(int link) {
+            if (link == 0 || links.isEmpty()) {
+                return oortComet;
+            }
+            // Always use the link, even when it is not handshook:
+            // it queues the messages until it is handshook again.
+            return links.get(link - 1);
+        }
+
         private boolean matchesURL(String url) {
             if (oortURL.equals(url)) {
                 return true;
@@ -379,7 +433,7 @@ class OortMembership extends AbstractLifeCycle implements Dumpable {
 
         @Override
         public String toString() {
-            return String.format("%s[%s,%s,aliases=%s]", super.toString(), state, oortComet, Objects.toString(aliases, "[]"));
+            return String.format("%s[%s,%s,aliases=%s,links=%s]", super.toString(), state, oortComet, Objects.toString(aliases, "[]"), links);
         }
     }
 
@@ -412,6 +466,7 @@ class OortMembership extends AbstractLifeCycle implements Dumpable {
             String oortURL = (String)oortExt.get(Oort.EXT_OORT_URL_FIELD);
 
             List<ClientCometInfo> staleClientCometInfos = new ArrayList<>();
+            List<OortComet> links = List.of();
             ClientCometInfo clientCometInfo;
             ServerCometInfo serverCometInfo;
             boolean notify = false;
@@ -423,7 +478,13 @@ class OortMembership extends AbstractLifeCycle implements Dumpable {
                     clientCometInfo = iterator.next();
                     if (clientCometInfo.matchesURL(cometURL) || clientCometInfo.matchesURL(oortURL)) {
                         iterator.remove();
-                        staleClientCometInfos.add(clientCometInfo);
+                        if (clientCometInfo.oortComet == oortComet) {
+                            // The same comet rehandshook, keep its links:
+                            // they rehandshake independently, if necessary.
+                            links = clientCometInfo.links;
+                        } else {
+                            staleClientCometInfos.add(clientCometInfo);
+                        }
                         if (logger.isDebugEnabled()) {
                             logger.debug("Unregistered client comet {}", clientCometInfo);
                         }
@@ -448,6 +509,7 @@ class OortMembership extends AbstractLifeCycle implements Dumpable {
                             logger.debug("Added comet alias {}", clientCometInfo);
                         }
                     }
+                    clientCometInfo.links.addAll(links);
                     if (serverCometInfo != null) {
                         clientCometInfo.state = LocalState.JOIN_SENT;
                         notify = serverCometInfo.state == RemoteState.JOIN_RECEIVED;
@@ -458,7 +520,12 @@ class OortMembership extends AbstractLifeCycle implements Dumpable {
                 }
             }
 
+            if (!message.isSuccessful()) {
+                links.forEach(OortComet::disconnect);
+            }
+
             for (ClientCometInfo info : staleClientCometInfos) {
+                info.links.forEach(OortComet::disconnect);
                 OortComet comet = info.oortComet;
                 if (comet != oortComet) {
                     if (logger.isDebugEnabled()) {
@@ -469,6 +536,9 @@ class OortMembership extends AbstractLifeCycle implements Dumpable {
             }
 
             if (message.isSuccessful()) {
+                if (links.isEmpty()) {
+                    connectLinks(cometURL, clientCometInfo);
+                }
                 if (serverCometInfo != null) {
                     oortComet.open(new JoinCallback(oortComet));
                     if (notify) {
@@ -488,6 +558,27 @@ class OortMembership extends AbstractLifeCycle implements Dumpable {
         }
     }
 
+    private void connectLinks(String cometURL, ClientCometInfo clientCometInfo) {
+        // Create the links outside the lock, as creating a comet calls application code.
+        List<OortComet> links = new ArrayList<>();
+        for (int link = 1; link < oort.getCometLinks(); ++link) {
+            links.add(createLink(cometURL, link));
+        }
+        if (links.isEmpty()) {
+            return;
+        }
+        try (AutoLock l = lock.lock()) {
+            // The comet may have been replaced or removed concurrently.
+            if (clientComets.get(clientCometInfo.oortId) != clientCometInfo) {
+                return;
+            }
+            clientCometInfo.links.addAll(links);
+        }
+        for (OortComet link : links) {
+            connectLink(cometURL, link);
+        }
+    }
+
     private class OortExtension implements BayeuxServer.Extension {
         @Override
         public boolean sendMeta(ServerSession session, ServerMessage.Mutable reply) {
@@ -537,6 +628,13 @@ class OortMembership extends AbstractLifeCycle implements Dumpable {
                     logger.debug("Detected self connect from {} to {}, disconnecting", remoteOortURL, cometURL);
                 }
                 disconnect(session, reply);
+            } else if (messageOortExt.get(Oort.EXT_OORT_LINK_FIELD) != null) {
+                // Links carry only the messages of the observed channels,
+                // the membership is managed by the main comet.
+                if (logger.isDebugEnabled()) {
+                    logger.debug("Link {} from {} to {}", messageOortExt.get(Oort.EXT_OORT_LINK_FIELD), remoteOortURL, cometURL);
+                }
+                session.addListener(new OortCometLoopListener());
             } else {
                 boolean sendJoin = false;
                 ClientCometInfo clientCometInfo;
@@ -642,12 +740,14 @@ class OortMembership extends AbstractLifeCycle implements Dumpable {
 
                 if (!timeout) {
                     OortComet oortComet;
+                    List<OortComet> links = List.of();
                     try (AutoLock l = lock.lock()) {
                         oortComet = pendingComets.remove(remoteOortURL);
                         if (oortComet == null) {
                             ClientCometInfo clientCometInfo = clientComets.remove(remoteOortId);
                             if (clientCometInfo != null) {
                                 oortComet = clientCometInfo.oortComet;
+                                links = clientCometInfo.links;
                             }
                         }
                     }
@@ -657,6 +757,7 @@ class OortMembership extends AbstractLifeCycle implements Dumpable {
                         }
                         oortComet.disconnect();
                     }
+                    links.forEach(OortComet::disconnect);
                 }
 
                 // Do not notify if we are stopping.
@@ -680,8 +781,31 @@ class OortMembership extends AbstractLifeCycle implements Dumpable {
             if (logger.isDebugEnabled()) {
                 logger.debug("Allowed {} from {} to {}", message, sender, session);
             }
+            if (oort.isMetricsEnabled() && ChannelId.isBroadcast(message.getChannel())) {
+                forwarded(session, message);
+            }
             return true;
         }
+
+        private void forwarded(ServerSession session, ServerMessage message) {
+            // Group the metrics by the channel the remote comet observes.
+            ChannelId channelId = new ChannelId(message.getChannel());
+            String observed = null;
+            for (ServerChannel subscription : session.getSubscriptions()) {
+                ChannelId subscriptionId = subscription.getChannelId();
+                if (subscriptionId.equals(channelId)) {
+                    observed = subscription.getId();
+                    break;
+                }
+                if (subscriptionId.matches(channelId)) {
+                    observed = subscription.getId();
+                }
+            }
+            if (observed != null) {
+                byte[] bytes = message instanceof ServerMessageImpl ? ((ServerMessageImpl)message).getJSONBytes() : null;
+                oort.getMetrics().forwarded(observed, bytes == null ? 0 : bytes.length);
+            }
+        }
     }
 
     private class JoinListener implements ServerChannel.MessageListener {
@@ -0,0 +1,223 @@
+/*
+ * Copyright (c) 2008-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.cometd.oort;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * <p>The metrics of the messages forwarded among the comets of an Oort cloud,
+ * grouped by the channel observed by the comets.</p>
+ * <p>The metrics are collected only if {@link Oort#isMetricsEnabled()} and
+ * are pulled by applications via {@link Oort#getMetrics()}.</p>
+ */
+public class OortMetrics {
+    private final ConcurrentMap<String, ChannelMetrics> channels = new ConcurrentHashMap<>();
+
+    /**
+     * @param channel the observed channel
+     * @return the metrics of the given observed channel, or null if there are no metrics for that channel
+     */
+    public ChannelMetrics getChannelMetrics(String channel) {
+        return channels.get(channel);
+    }
+
+    /**
+     * @return the metrics of all the observed channels, by channel
+     */
+    public Map<String, ChannelMetrics> getChannelMetrics() {
+        return new TreeMap<>(channels);
+    }
+
+    /**
+     * <p>Discards all the metrics.</p>
+     */
+    public void reset() {
+        channels.clear();
+    }
+
+    void forwarded(String channel, int bytes) {
+        ChannelMetrics metrics = channels.computeIfAbsent(channel, ChannelMetrics::new);
+        metrics.forwarded.increment();
+        metrics.bytesForwarded.add(bytes);
+    }
+
+    void received(String channel, String cometURL, long latency) {
+        ChannelMetrics metrics = channels.computeIfAbsent(channel, ChannelMetrics::new);
+        metrics.received.computeIfAbsent(cometURL, key -> new LongAdder()).increment();
+        if (latency >= 0) {
+            metrics.latency.record(latency);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s@%x%s", getClass().getSimpleName(), hashCode(), channels.values());
+    }
+
+    /**
+     * <p>The metrics of an observed channel.</p>
+     */
+    public static class ChannelMetrics {
+        private final LongAdder forwarded = new LongAdder();
+        private final LongAdder bytesForwarded = new LongAdder();
+        private final ConcurrentMap<String, LongAdder> received = new ConcurrentHashMap<>();
+        private final Histogram latency = new Histogram();
+        private final String channel;
+
+        private ChannelMetrics(String channel) {
+            this.channel = channel;
+        }
+
+        /**
+         * @return the observed channel
+         */
+        public String getChannel() {
+            return channel;
+        }
+
+        /**
+         * @return the number of messages forwarded to other comets
+         */
+        public long getMessagesForwarded() {
+            return forwarded.sum();
+        }
+
+        /**
+         * @return the number of JSON bytes of the messages forwarded to other comets
+         */
+        public long getBytesForwarded() {
+            return bytesForwarded.sum();
+        }
+
+        /**
+         * @return the number of messages received from other comets
+         */
+        public long getMessagesReceived() {
+            return received.values().stream().mapToLong(LongAdder::sum).sum();
+        }
+
+        /**
+         * @return the number of messages received from other comets, by comet URL
+         */
+        public Map<String, Long> getMessagesReceivedByComet() {
+            Map<String, Long> result = new TreeMap<>();
+            received.forEach((cometURL, count) -> result.put(cometURL, count.sum()));
+            return result;
+        }
+
+        /**
+         * @return the histogram of the delays, in milliseconds, between the publish
+         * of a message in the origin comet and its reception in this comet
+         */
+        public Histogram getLatency() {
+            return latency;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s[forwarded=%d/%dB,received=%s,latency=%s]",
+                    channel, getMessagesForwarded(), getBytesForwarded(), getMessagesReceivedByComet(), latency);
+        }
+    }
+
+    /**
+     * <p>A histogram of values with buckets of exponentially increasing size,
+     * where the bucket {@code i} counts the values less than {@code 2^i}.</p>
+     * <p>The delays measured across comets depend on the synchronization
+     * of the clocks of the hosts the comets run on.</p>
+     */
+    public static class Histogram {
+        private static final int BUCKETS = 32;
+
+        private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+        private final LongAdder count = new LongAdder();
+        private final LongAdder total = new LongAdder();
+        private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+        private void record(long value) {
+            int bucket = Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(value));
+            buckets.incrementAndGet(bucket);
+            count.increment();
+            total.add(value);
+            max.accumulate(value);
+        }
+
+        /**
+         * @return the number of recorded values
+         */
+        public long getCount() {
+            return count.sum();
+        }
+
+        /**
+         * @return the max recorded value
+         */
+        public long getMax() {
+            return max.get();
+        }
+
+        /**
+         * @return the mean of the recorded values
+         */
+        public double getMean() {
+            long count = getCount();
+            return count == 0 ? 0 : (double)total.sum() / count;
+        }
+
+        /**
+         * @param percentile the percentile, between 0 and 100
+         * @return the upper bound of the bucket containing the given percentile of the recorded values
+         */
+        public long getPercentile(double percentile) {
+            long count = getCount();
+            if (count == 0) {
+                return 0;
+            }
+            long rank = (long)Math.ceil(count * percentile / 100);
+            long sum = 0;
+            for (int i = 0; i < BUCKETS; ++i) {
+                sum += buckets.get(i);
+                if (sum >= rank) {
+                    return Math.min(getMax(), (1L << i) - 1);
+                }
+            }
+            return getMax();
+        }
+
+        /**
+         * @return the counts of the buckets
+         */
+        public long[] getBuckets() {
+            long[] result = new long[BUCKETS];
+            for (int i = 0; i < BUCKETS; ++i) {
+                result[i] = buckets.get(i);
+            }
+            return result;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("[count=%d,mean=%.1f,p50=%d,p99=%d,max=%d]",
+                    getCount(), getMean(), getPercentile(50), getPercentile(99), getMax());
+        }
+    }
+}
@@ -290,6 +290,50 @@ public class OortObject<T> extends AbstractLifeCycle implements ConfigurableServ
         return object;
     }
 
+    /**
+     * <p>Returns a digest of the given object, sent to the node that owns the object
+     * so that it can reply with only the differences between its object and the given one,
+     * rather than with its whole object.</p>
+     * <p>By default, returns {@code null} and the whole object is always sent.</p>
+     *
+     * @param object the local copy of an object owned by another node
+     * @return a JSON-serializable digest of the given object, or null if differences are not supported
+     * @see #diff(Object, Object)
+     */
+    protected Object digest(T object) {
+        return null;
+    }
+
+    /**
+     * <p>Returns the fields that describe the differences between the given object
+     * and the remote copy of it described by the given digest.</p>
+     * <p>The returned fields must contain the {@link Info#OBJECT_FIELD partial object}
+     * and the {@link Info#DELTA_FIELD delta metadata} that {@link #patch(Object, Object, Object)}
+     * uses to apply the partial object to the remote copy.</p>
+     *
+     * @param object the local object
+     * @param digest the digest of the remote copy of the local object
+     * @return the fields describing the differences, or null to send the whole object
+     * @see #digest(Object)
+     */
+    protected Map<String, Object> diff(T object, Object digest) {
+        return null;
+    }
+
+    /**
+     * <p>Applies the given partial object to the given object.</p>
+     * <p>By default, returns {@code null} and the whole object is pulled.</p>
+     *
+     * @param object  the local copy of an object owned by another node, not to be modified
+     * @param partial the {@link #deserialize(Object) deserialized} partial object
+     * @param delta   the delta metadata returned by {@link #diff(Object, Object)}
+     * @return the representation of the patched object, passed to the {@link Factory},
+     * or null if the partial object could not be applied and the whole object must be pulled
+     */
+    protected Object patch(T object, Object partial, Object delta) {
+        return null;
+    }
+
     protected Info<T> newInfo(T local) {
         if (local == null) {
             throw new NullPointerException();
@@ -425,6 +469,22 @@ public class OortObject<T> extends AbstractLifeCycle implements ConfigurableServ
         Object object = data.get(Info.OBJECT_FIELD);
         if (!local) {
             object = deserialize(object);
+            Object delta = data.get(Info.DELTA_FIELD);
+            if (delta != null) {
+                Info<T> info = getInfo(oortURL);
+                if (info == null) {
+                    // The copy the delta applies to is gone, pull the whole object.
+                    pullInfo(oortURL);
+                    return;
+                }
+                object = patch(info.getObject(), object, delta);
+                if (object == null) {
+                    // Pull the whole object, without a digest
+                    // that would produce the same delta again.
+                    pullInfo(oortURL, false);
+                    return;
+                }
+            }
             // Convert the object, for example from a
             // JSON serialized Map to a ConcurrentMap.
             object = getFactory().newObject(object);
@@ -432,6 +492,8 @@ public class OortObject<T> extends AbstractLifeCycle implements ConfigurableServ
 
         Info<T> newInfo = new Info<>(oort.getURL(), data);
         newInfo.put(Info.OBJECT_FIELD, object);
+        newInfo.remove(Info.DIGEST_FIELD);
+        newInfo.remove(Info.DELTA_FIELD);
 
         ObjectPart part = part(oortURL);
         Info<T> oldInfo = part.update(newInfo);
@@ -454,7 +516,7 @@ public class OortObject<T> extends AbstractLifeCycle implements ConfigurableServ
             // Therefore we add a "peer" field, that tells whether the push
             // of the info comes from, and we skip the extra push.
             if (!oort.getURL().equals(data.get(Info.PEER_FIELD))) {
-                pushInfoReply(oortURL);
+                pushInfoReply(oortURL, null);
             }
         }
 
@@ -480,6 +542,10 @@ public class OortObject<T> extends AbstractLifeCycle implements ConfigurableServ
     }
 
     protected void pushInfo(String oortURL, Map<String, Object> fields) {
+        pushInfo(oortURL, fields, null);
+    }
+
+    private void pushInfo(String oortURL, Map<String, Object> fields, Object remoteDigest) {
         OortComet oortComet = oort.findComet(oortURL);
         Info<T> info = getInfo(oort.getURL());
         if (oortComet != null && info != null) {
@@ -488,6 +554,18 @@ public class OortObject<T> extends AbstractLifeCycle implements ConfigurableServ
                 message = new HashMap<>();
             }
             message.putAll(info);
+            if (remoteDigest != null) {
+                // The remote node has a copy of the local object,
+                // so try to send only what differs from that copy.
+                Map<String, Object> diff = diff(info.getObject(), remoteDigest);
+                if (diff != null) {
+                    message.putAll(diff);
+                }
+            }
+            if (!message.containsKey(Info.PEER_FIELD)) {
+                // Allow the reply to be a diff of the local copy of the remote object.
+                putDigest(message, oortURL);
+            }
             message.put(Info.ACTION_FIELD, ACTION_FIELD_PUSH_VALUE);
             if (logger.isDebugEnabled()) {
                 logger.debug("Pushing (to {}): {}", oortURL, message);
@@ -496,19 +574,36 @@ public class OortObject<T> extends AbstractLifeCycle implements ConfigurableServ
         }
     }
 
-    private void pushInfoReply(String oortURL) {
+    private void pushInfoReply(String oortURL, Object remoteDigest) {
         Map<String, Object> fields = new HashMap<>();
         fields.put(Info.PEER_FIELD, oortURL);
-        pushInfo(oortURL, fields);
+        pushInfo(oortURL, fields, remoteDigest);
+    }
+
+    private void putDigest(Map<String, Object> message, String oortURL) {
+        Info<T> info = getInfo(oortURL);
+        if (info != null) {
+            Object digest = digest(info.getObject());
+            if (digest != null) {
+                message.put(Info.DIGEST_FIELD, digest);
+            }
+        }
     }
 
     protected void pullInfo(String oortURL) {
+        pullInfo(oortURL, true);
+    }
+
+    private void pullInfo(String oortURL, boolean digest) {
         OortComet oortComet = oort.getComet(oortURL);
         if (oortComet != null) {
             Map<String, Object> message = new HashMap<>();
             message.put(Info.OORT_URL_FIELD, getOort().getURL());
             message.put(Info.NAME_FIELD, getName());
             message.put(Info.ACTION_FIELD, ACTION_FIELD_PULL_VALUE);
+            if (digest) {
+                putDigest(message, oortURL);
+            }
             if (logger.isDebugEnabled()) {
                 logger.debug("Pulling (from {}): {}", oortURL, message);
             }
@@ -550,6 +645,8 @@ public class OortObject<T> extends AbstractLifeCycle implements ConfigurableServ
         public static final String TYPE_FIELD = "oort.info.type";
         public static final String ACTION_FIELD = "oort.info.action";
         public static final String PEER_FIELD = "oort.info.peer";
+        public static final String DIGEST_FIELD = "oort.info.digest";
+        public static final String DELTA_FIELD = "oort.info.delta";
 
         // The local Oort URL.
         private final String oortURL;
@@ -859,14 +956,14 @@ public class OortObject<T> extends AbstractLifeCycle implements ConfigurableServ
                 String oortURL = (String)data.get(Info.OORT_URL_FIELD);
 
                 if (ACTION_FIELD_PULL_VALUE.equals(data.get(Info.ACTION_FIELD))) {
-                    pushInfoReply(oortURL);
+                    pushInfoReply(oortURL, data.get(Info.DIGEST_FIELD));
                     continue;
                 }
 
                 if (ACTION_FIELD_PUSH_VALUE.equals(data.get(Info.ACTION_FIELD))) {
                     if (!oort.getURL().equals(data.get(Info.PEER_FIELD))) {
                         // If it was explicitly pushed, no matter what, we push back.
-                        pushInfoReply(oortURL);
+                        pushInfoReply(oortURL, data.get(Info.DIGEST_FIELD));
                     }
                 }
 
@@ -0,0 +1,184 @@
+/*
+ * Copyright (c) 2008-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.cometd.oort;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import org.eclipse.jetty.util.component.AbstractLifeCycle;
+import org.eclipse.jetty.util.thread.AutoLock;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * <p>A consistent hash ring of the comets of an Oort cloud, that maps
+ * entity keys to the Oort URL of the node that owns the entity.</p>
+ * <p>The ring is rebuilt when comets join or leave the cloud, and
+ * only the keys owned by the comets that joined or left move to
+ * other nodes.
+ * Nodes with the same view of the cloud map a key to the same node,
+ * so that {@link OortService#forwardToOwner(Object, Object, Object)} can route
+ * an action directly to the owner node, without broadcasting it.</p>
+ * <p>While the cloud changes, nodes may have different views of the
+ * cloud and therefore map a key to different nodes, so the owner
+ * node must still be prepared to ignore actions for entities it
+ * does not own.</p>
+ */
+public class OortRing extends AbstractLifeCycle implements Oort.CometListener {
+    private final AutoLock lock = new AutoLock();
+    private final Set<String> oortURLs = new HashSet<>();
+    private final Oort oort;
+    private final int replicas;
+    private final Logger logger;
+    private volatile NavigableMap<Long, String> ring = Collections.emptyNavigableMap();
+
+    public OortRing(Oort oort) {
+        this(oort, 128);
+    }
+
+    /**
+     * @param oort     the Oort of this ring
+     * @param replicas the number of points of each node in the ring
+     */
+    public OortRing(Oort oort, int replicas) {
+        this.oort = oort;
+        this.replicas = replicas;
+        this.logger = LoggerFactory.getLogger(getClass().getName() + "." + Oort.replacePunctuation(oort.getURL(), '_'));
+    }
+
+    public Oort getOort() {
+        return oort;
+    }
+
+    /**
+     * @return the number of points of each node in the ring
+     */
+    public int getReplicas() {
+        return replicas;
+    }
+
+    @Override
+    protected void doStart() throws Exception {
+        super.doStart();
+        oort.addCometListener(this);
+        try (AutoLock l = lock.lock()) {
+            oortURLs.add(oort.getURL());
+            oortURLs.addAll(oort.getKnownComets());
+            rebuild();
+        }
+    }
+
+    @Override
+    protected void doStop() throws Exception {
+        oort.removeCometListener(this);
+        try (AutoLock l = lock.lock()) {
+            oortURLs.clear();
+            ring = Collections.emptyNavigableMap();
+        }
+        super.doStop();
+    }
+
+    @Override
+    public void cometJoined(Event event) {
+        try (AutoLock l = lock.lock()) {
+            if (oortURLs.add(event.getCometURL())) {
+                rebuild();
+            }
+        }
+    }
+
+    @Override
+    public void cometLeft(Event event) {
+        try (AutoLock l = lock.lock()) {
+            if (oortURLs.remove(event.getCometURL())) {
+                rebuild();
+            }
+        }
+    }
+
+    private void rebuild() {
+        assert lock.isHeldByCurrentThread();
+        NavigableMap<Long, String> newRing = new TreeMap<>();
+        for (String oortURL : oortURLs) {
+            for (int i = 0; i < replicas; ++i) {
+                newRing.put(hash(oortURL + "#" + i), oortURL);
+            }
+        }
+        ring = Collections.unmodifiableNavigableMap(newRing);
+        if (logger.isDebugEnabled()) {
+            logger.debug("Rebuilt ring for {}", oortURLs);
+        }
+    }
+
+    /**
+     * @return the Oort URLs of the nodes in the ring
+     */
+    public Set<String> getOortURLs() {
+        return new TreeSet<>(ring.values());
+    }
+
+    /**
+     * @param key the entity key
+     * @return the Oort URL of the node that owns the entity with the given key,
+     * or null if this ring is not started
+     */
+    public String getOortURL(Object key) {
+        NavigableMap<Long, String> ring = this.ring;
+        if (ring.isEmpty()) {
+            return null;
+        }
+        Map.Entry<Long, String> entry = ring.ceilingEntry(hash(String.valueOf(key)));
+        if (entry == null) {
+            entry = ring.firstEntry();
+        }
+        return entry.getValue();
+    }
+
+    /**
+     * @param key the entity key
+     * @return whether the entity with the given key is owned by this node
+     */
+    public boolean isLocal(Object key) {
+        return oort.getURL().equals(getOortURL(key));
+    }
+
+    // The hash must be the same in all nodes, and String.hashCode()
+    // is too weak to spread the points of the nodes in the ring.
+    private static long hash(String value) {
+        // FNV-1a followed by a 64-bit finalizer to spread the bits.
+        long hash = 0xCBF29CE484222325L;
+        for (byte b : value.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b & 0xFF;
+            hash *= 0x100000001B3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xFF51AFD7ED558CCDL;
+        hash ^= hash >>> 33;
+        hash *= 0xC4CEB9FE1A85EC53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s@%x[%s]", getClass().getSimpleName(), hashCode(), oort.getURL());
+    }
+}
@@ -102,6 +102,7 @@ public abstract class OortService<R, C> extends AbstractLifeCycle implements Ser
     private final LocalSession session;
     private final Logger logger;
     private volatile long timeout = 5000;
+    private volatile OortRing ring;
 
     /**
      * Creates an {@link OortService} with the given name.
@@ -154,6 +155,21 @@ public abstract class OortService<R, C> extends AbstractLifeCycle implements Ser
         this.timeout = timeout;
     }
 
+    /**
+     * @return the ring used to find the owner node of entities, or null if there is no ring
+     * @see #forwardToOwner(Object, Object, Object)
+     */
+    public OortRing getRing() {
+        return ring;
+    }
+
+    /**
+     * @param ring the ring used to find the owner node of entities
+     */
+    public void setRing(OortRing ring) {
+        this.ring = ring;
+    }
+
     @Override
     protected void doStart() throws Exception {
         session.handshake();
@@ -234,7 +250,7 @@ public abstract class OortService<R, C> extends AbstractLifeCycle implements Ser
                 return true;
             } else {
                 // Remote case
-                OortComet comet = getOort().getComet(targetOortURL);
+                OortComet comet = getOort().getComet(targetOortURL, forwardChannelName);
                 if (comet != null) {
                     if (logger.isDebugEnabled()) {
                         logger.debug("Forwarding action from {} to {}: {}", localOortURL, targetOortURL, data);
@@ -246,12 +262,34 @@ public abstract class OortService<R, C> extends AbstractLifeCycle implements Ser
                     if (logger.isDebugEnabled()) {
                         logger.debug("Could not forward action from {} to {}: {}", localOortURL, targetOortURL, data);
                     }
+                    callbacks.remove(contextId);
                     return false;
                 }
             }
         }
     }
 
+    /**
+     * <p>Forwards the action to the node that owns the entity with the given key,
+     * as mapped by the {@link #getRing() ring}, so that the application does not
+     * need to know the owner node and the action is not broadcast to all nodes.</p>
+     * <p>If there is no ring, or the owner node is not connected, the action
+     * is broadcast to all nodes as described in {@link #forward(String, Object, Object)}.</p>
+     *
+     * @param key       the key of the entity the action should be applied to
+     * @param parameter the action parameter that will be passed to {@link #onForward(Request)}
+     * @param context   the opaque context passed to {@link #onForwardSucceeded(Object, Object)}
+     * @return whether the forward succeeded
+     */
+    protected boolean forwardToOwner(Object key, Object parameter, C context) {
+        OortRing ring = getRing();
+        String targetOortURL = ring == null ? null : ring.getOortURL(key);
+        if (targetOortURL != null && forward(targetOortURL, parameter, context)) {
+            return true;
+        }
+        return forward(null, parameter, context);
+    }
+
     @Override
     public boolean onMessage(ServerSession from, ServerChannel channel, ServerMessage.Mutable message) {
         if (forwardChannelName.equals(message.getChannel())) {
@@ -317,7 +355,7 @@ public abstract class OortService<R, C> extends AbstractLifeCycle implements Ser
             onResultMessage(resultData);
         } else {
             // Remote case
-            OortComet comet = getOort().getComet(oortURL);
+            OortComet comet = getOort().getComet(oortURL, resultChannelName);
             if (comet != null) {
                 if (logger.isDebugEnabled()) {
                     logger.debug("Returning forwarded action result {} to remote {}", resultData, oortURL);
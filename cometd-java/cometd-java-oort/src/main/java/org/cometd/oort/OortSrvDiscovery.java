@@ -0,0 +1,234 @@
+/*
+ * Copyright (c) 2008-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.cometd.oort;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Hashtable;
+import java.util.List;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import javax.naming.Context;
+import javax.naming.NamingEnumeration;
+import javax.naming.directory.Attribute;
+import javax.naming.directory.Attributes;
+import javax.naming.directory.DirContext;
+import javax.naming.directory.InitialDirContext;
+
+/**
+ * <p>Discovers the comets of an Oort cloud by resolving DNS SRV records.</p>
+ * <p>The SRV records of the configured name are resolved periodically,
+ * and each record is converted to a comet URL using the record target
+ * and port, and the scheme and path of the local comet URL.
+ * Only the differences with the previous resolution are applied.</p>
+ * <p>The records are resolved by a {@link Resolver}, by default
+ * using the JNDI DNS provider of the JDK.</p>
+ */
+public class OortSrvDiscovery extends OortDiscovery {
+    private final String name;
+    private final Resolver resolver;
+    private String scheme;
+    private String path;
+    private long refreshInterval = 10000;
+    private ScheduledFuture<?> task;
+
+    public OortSrvDiscovery(Oort oort, String name) {
+        this(oort, name, new DnsResolver());
+    }
+
+    public OortSrvDiscovery(Oort oort, String name, Resolver resolver) {
+        super(oort);
+        this.name = name;
+        this.resolver = resolver;
+        URI uri = URI.create(oort.getURL());
+        this.scheme = uri.getScheme();
+        this.path = uri.getRawPath();
+    }
+
+    /**
+     * @return the name to resolve the SRV records of, such as {@code _cometd._tcp.example.com}
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return the scheme of the comet URLs
+     */
+    public String getScheme() {
+        return scheme;
+    }
+
+    /**
+     * @param scheme the scheme of the comet URLs
+     */
+    public void setScheme(String scheme) {
+        this.scheme = scheme;
+    }
+
+    /**
+     * @return the path of the comet URLs
+     */
+    public String getPath() {
+        return path;
+    }
+
+    /**
+     * @param path the path of the comet URLs
+     */
+    public void setPath(String path) {
+        this.path = path;
+    }
+
+    /**
+     * @return the interval in milliseconds at which the SRV records are resolved
+     */
+    public long getRefreshInterval() {
+        return refreshInterval;
+    }
+
+    /**
+     * @param refreshInterval the interval in milliseconds at which the SRV records are resolved
+     */
+    public void setRefreshInterval(long refreshInterval) {
+        this.refreshInterval = refreshInterval;
+    }
+
+    @Override
+    protected void doStart() throws Exception {
+        super.doStart();
+        task = getOort().getScheduler().scheduleWithFixedDelay(this::refresh, 0, getRefreshInterval(), TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    protected void doStop() throws Exception {
+        task.cancel(false);
+        super.doStop();
+    }
+
+    private void refresh() {
+        try {
+            List<Record> records = resolver.resolve(getName());
+            if (logger.isDebugEnabled()) {
+                logger.debug("Resolved {} to {}", getName(), records);
+            }
+            update(records.stream().map(this::toCometURL).collect(Collectors.toList()));
+        } catch (Throwable x) {
+            // Keep the current membership, it
+            // will be updated at the next refresh.
+            logger.info("Could not resolve " + getName(), x);
+        }
+    }
+
+    /**
+     * @param record the SRV record
+     * @return the comet URL for the given SRV record
+     */
+    protected String toCometURL(Record record) {
+        String target = record.getTarget();
+        if (target.endsWith(".")) {
+            target = target.substring(0, target.length() - 1);
+        }
+        return getScheme() + "://" + target + ":" + record.getPort() + getPath();
+    }
+
+    /**
+     * <p>Resolves the SRV records of a name.</p>
+     */
+    @FunctionalInterface
+    public interface Resolver {
+        /**
+         * @param name the name to resolve
+         * @return the SRV records of the given name
+         * @throws Exception if the name cannot be resolved
+         */
+        public List<Record> resolve(String name) throws Exception;
+    }
+
+    /**
+     * <p>A SRV record.</p>
+     */
+    public static class Record {
+        private final int priority;
+        private final int weight;
+        private final int port;
+        private final String target;
+
+        public Record(int priority, int weight, int port, String target) {
+            this.priority = priority;
+            this.weight = weight;
+            this.port = port;
+            this.target = target;
+        }
+
+        /**
+         * @param value the SRV record value, in the form {@code priority weight port target}
+         * @return the SRV record for the given value
+         */
+        public static Record parse(String value) {
+            String[] parts = value.trim().split("\\s+");
+            if (parts.length != 4) {
+                throw new IllegalArgumentException("Invalid SRV record " + value);
+            }
+            return new Record(Integer.parseInt(parts[0]), Integer.parseInt(parts[1]), Integer.parseInt(parts[2]), parts[3]);
+        }
+
+        public int getPriority() {
+            return priority;
+        }
+
+        public int getWeight() {
+            return weight;
+        }
+
+        public int getPort() {
+            return port;
+        }
+
+        public String getTarget() {
+            return target;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d %d %d %s", priority, weight, port, target);
+        }
+    }
+
+    private static class DnsResolver implements Resolver {
+        @Override
+        public List<Record> resolve(String name) throws Exception {
+            Hashtable<String, String> environment = new Hashtable<>();
+            environment.put(Context.INITIAL_CONTEXT_FACTORY, "com.sun.jndi.dns.DnsContextFactory");
+            DirContext context = new InitialDirContext(environment);
+            try {
+                List<Record> result = new ArrayList<>();
+                Attributes attributes = context.getAttributes(name, new String[]{"SRV"});
+                Attribute attribute = attributes.get("SRV");
+                if (attribute != null) {
+                    NamingEnumeration<?> values = attribute.getAll();
+                    while (values.hasMore()) {
+                        result.add(Record.parse(values.next().toString()));
+                    }
+                }
+                return result;
+            } finally {
+                context.close();
+            }
+        }
+    }
+}
@@ -15,22 +15,35 @@
  */
 package org.cometd.oort;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
 import java.util.AbstractMap;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Base64;
 import java.util.Collection;
 import java.util.EventListener;
 import java.util.EventObject;
 import java.util.HashMap;
 import java.util.HashSet;
-import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
 import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
 import java.util.stream.Collectors;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
 import org.cometd.bayeux.ChannelId;
 import org.cometd.bayeux.Message;
 import org.cometd.bayeux.Promise;
@@ -51,7 +64,6 @@ import org.eclipse.jetty.util.annotation.Name;
 import org.eclipse.jetty.util.component.AbstractLifeCycle;
 import org.eclipse.jetty.util.component.Dumpable;
 import org.eclipse.jetty.util.component.DumpableCollection;
-import org.eclipse.jetty.util.thread.AutoLock;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -81,8 +93,12 @@ public class Seti extends AbstractLifeCycle implements Dumpable {
     private static final String SETI_ALL_CHANNEL = "/seti/all";
     private static final List<String> PROTECTED_CHANNELS = Arrays.asList("/seti/**", "/seti/*");
 
-    private final AutoLock lock = new AutoLock();
-    private final Map<String, Set<Location>> _uid2Location = new HashMap<>();
+    // The location sets are immutable, so they can be read without locking
+    // and without copying, and are replaced atomically when they change.
+    private final ConcurrentMap<String, Set<Location>> _uid2Location = new ConcurrentHashMap<>();
+    // The most recent chunked presence snapshot being received, by oortURL.
+    private final ConcurrentMap<String, Snapshot> _snapshots = new ConcurrentHashMap<>();
+    private final AtomicLong _snapshotIds = new AtomicLong();
     private final List<PresenceListener> _presenceListeners = new CopyOnWriteArrayList<>();
     private final Oort.CometListener _cometListener = new CometListener();
     private final ServerChannel.SubscriptionListener _initialStateListener = new InitialStateListener();
@@ -92,6 +108,8 @@ public class Seti extends AbstractLifeCycle implements Dumpable {
     private final String _setiId;
     private final Logger _logger;
     private final LocalSession _session;
+    private int _presenceChunkSize = 1000;
+    private boolean _compressPresences;
 
     public Seti(Oort oort) {
         _oort = oort;
@@ -110,6 +128,48 @@ public class Seti extends AbstractLifeCycle implements Dumpable {
         return _setiId;
     }
 
+    /**
+     * @return the max number of userIds sent in a single presence message
+     * when the associations of this Seti are sent to other comets
+     */
+    @ManagedAttribute("The max number of userIds per presence message")
+    public int getPresenceChunkSize() {
+        return _presenceChunkSize;
+    }
+
+    /**
+     * <p>Sets the max number of userIds sent in a single presence message
+     * when the associations of this Seti are sent to other comets, for
+     * example when a comet joins the cloud.</p>
+     * <p>Large sets of associations are split in chunks of this size that
+     * the other comets apply incrementally.
+     * A non-positive value sends all the userIds in a single message.</p>
+     *
+     * @param presenceChunkSize the max number of userIds per presence message
+     */
+    public void setPresenceChunkSize(int presenceChunkSize) {
+        _presenceChunkSize = presenceChunkSize;
+    }
+
+    /**
+     * @return whether the userIds of the presence messages sent when a comet joins are compressed
+     */
+    @ManagedAttribute("Whether the userIds of presence messages are compressed")
+    public boolean isCompressPresences() {
+        return _compressPresences;
+    }
+
+    /**
+     * <p>Sets whether the userIds of the presence messages sent when a comet
+     * joins are sorted, delta encoded and compressed, rather than sent as a
+     * list of strings.</p>
+     *
+     * @param compressPresences whether the userIds of presence messages are compressed
+     */
+    public void setCompressPresences(boolean compressPresences) {
+        _compressPresences = compressPresences;
+    }
+
     @Override
     protected void doStart() {
         BayeuxServer bayeux = _oort.getBayeuxServer();
@@ -143,6 +203,7 @@ public class Seti extends AbstractLifeCycle implements Dumpable {
         BayeuxServer bayeux = _oort.getBayeuxServer();
 
         removeAssociationsAndPresences();
+        _snapshots.clear();
         _presenceListeners.clear();
 
         _oort.removeCometListener(_cometListener);
@@ -231,18 +292,28 @@ public class Seti extends AbstractLifeCycle implements Dumpable {
             return false;
         }
 
-        try (AutoLock l = lock.lock()) {
-            Set<Location> locations = _uid2Location.computeIfAbsent(userId, k -> new HashSet<>());
-            boolean result = locations.add(location);
-            if (_logger.isDebugEnabled()) {
-                _logger.debug("Associations: {}", _uid2Location.size());
+        boolean[] result = new boolean[1];
+        _uid2Location.compute(userId, (k, locations) -> {
+            if (locations == null) {
+                result[0] = true;
+                return Set.of(location);
             }
-            // Logging below can generate hugely long lines.
-            if (_logger.isTraceEnabled()) {
-                _logger.trace("Associations: {}", _uid2Location);
+            if (locations.contains(location)) {
+                return locations;
             }
-            return result;
+            result[0] = true;
+            Set<Location> newLocations = new HashSet<>(locations);
+            newLocations.add(location);
+            return Set.copyOf(newLocations);
+        });
+        if (_logger.isDebugEnabled()) {
+            _logger.debug("Associations: {}", _uid2Location.size());
         }
+        // Logging below can generate hugely long lines.
+        if (_logger.isTraceEnabled()) {
+            _logger.trace("Associations: {}", _uid2Location);
+        }
+        return result[0];
     }
 
     private boolean associateRemote(String userId, SetiLocation location) {
@@ -275,18 +346,16 @@ public class Seti extends AbstractLifeCycle implements Dumpable {
      */
     @ManagedOperation(value = "Whether the given userId is associated locally", impact = "INFO")
     public boolean isAssociated(@Name(value = "userId", description = "The userId to test for local association") String userId) {
-        try (AutoLock l = lock.lock()) {
-            Set<Location> locations = _uid2Location.get(userId);
-            if (locations == null) {
-                return false;
-            }
-            for (Location location : locations) {
-                if (location instanceof LocalLocation) {
-                    return true;
-                }
-            }
+        Set<Location> locations = _uid2Location.get(userId);
+        if (locations == null) {
             return false;
         }
+        for (Location location : locations) {
+            if (location instanceof LocalLocation) {
+                return true;
+            }
+        }
+        return false;
     }
 
     /**
@@ -297,19 +366,17 @@ public class Seti extends AbstractLifeCycle implements Dumpable {
      */
     @ManagedOperation(value = "The number of local associations for the given userId", impact = "INFO")
     public int getAssociationCount(@Name(value = "userId", description = "The userId to test for local association count") String userId) {
-        try (AutoLock l = lock.lock()) {
-            Set<Location> locations = _uid2Location.get(userId);
-            if (locations == null) {
-                return 0;
+        Set<Location> locations = _uid2Location.get(userId);
+        if (locations == null) {
+            return 0;
+        }
+        int result = 0;
+        for (Location location : locations) {
+            if (location instanceof LocalLocation) {
+                ++result;
             }
-            int result = 0;
-            for (Location location : locations) {
-                if (location instanceof LocalLocation) {
-                    ++result;
-                }
-            }
-            return result;
         }
+        return result;
     }
 
     /**
@@ -321,10 +388,7 @@ public class Seti extends AbstractLifeCycle implements Dumpable {
      */
     @ManagedOperation(value = "Whether the given userId is present in the cloud", impact = "INFO")
     public boolean isPresent(@Name(value = "userId", description = "The userId to test for presence in the cloud") String userId) {
-        try (AutoLock l = lock.lock()) {
-            Set<Location> locations = _uid2Location.get(userId);
-            return locations != null;
-        }
+        return _uid2Location.containsKey(userId);
     }
 
     /**
@@ -335,10 +399,8 @@ public class Seti extends AbstractLifeCycle implements Dumpable {
      */
     @ManagedOperation(value = "The number of local and remote associations for the given userId", impact = "INFO")
     public int getPresenceCount(@Name(value = "userId", description = "The userId to test for presence count") String userId) {
-        try (AutoLock l = lock.lock()) {
-            Set<Location> locations = _uid2Location.get(userId);
-            return locations == null ? 0 : locations.size();
-        }
+        Set<Location> locations = _uid2Location.get(userId);
+        return locations == null ? 0 : locations.size();
     }
 
     /**
@@ -396,13 +458,11 @@ public class Seti extends AbstractLifeCycle implements Dumpable {
      */
     public Set<ServerSession> disassociate(String userId) {
         Set<LocalLocation> localLocations = new HashSet<>();
-        try (AutoLock l = lock.lock()) {
-            Set<Location> userLocations = _uid2Location.get(userId);
-            if (userLocations != null) {
-                for (Location location : userLocations) {
-                    if (location instanceof LocalLocation) {
-                        localLocations.add((LocalLocation)location);
-                    }
+        Set<Location> userLocations = _uid2Location.get(userId);
+        if (userLocations != null) {
+            for (Location location : userLocations) {
+                if (location instanceof LocalLocation) {
+                    localLocations.add((LocalLocation)location);
                 }
             }
         }
@@ -420,32 +480,47 @@ public class Seti extends AbstractLifeCycle implements Dumpable {
     }
 
     protected boolean disassociate(String userId, Location location) {
-        try (AutoLock l = lock.lock()) {
-            boolean result = false;
-            Set<Location> locations = _uid2Location.get(userId);
-            if (locations != null) {
-                result = locations.remove(location);
-                if (locations.isEmpty()) {
-                    _uid2Location.remove(userId);
+        boolean[] result = new boolean[1];
+        _uid2Location.computeIfPresent(userId, (k, locations) -> {
+            Set<Location> newLocations = without(locations, location::equals);
+            result[0] = newLocations != locations;
+            return newLocations;
+        });
+        if (_logger.isDebugEnabled()) {
+            _logger.debug("Associations: {}", _uid2Location.size());
+        }
+        // Logging below can generate hugely long lines.
+        if (_logger.isTraceEnabled()) {
+            _logger.trace("Associations: {}", _uid2Location);
+        }
+        return result[0];
+    }
+
+    /**
+     * @return the given immutable locations without the locations that match
+     * the given filter, or the same instance if no location matches, or null
+     * if all the locations match
+     */
+    private static Set<Location> without(Set<Location> locations, Predicate<Location> filter) {
+        Set<Location> result = null;
+        for (Location location : locations) {
+            if (filter.test(location)) {
+                if (result == null) {
+                    result = new HashSet<>(locations);
                 }
+                result.remove(location);
             }
-            if (_logger.isDebugEnabled()) {
-                _logger.debug("Associations: {}", _uid2Location.size());
-            }
-            // Logging below can generate hugely long lines.
-            if (_logger.isTraceEnabled()) {
-                _logger.trace("Associations: {}", _uid2Location);
-            }
-            return result;
         }
+        if (result == null) {
+            return locations;
+        }
+        return result.isEmpty() ? null : Set.copyOf(result);
     }
 
     protected void removeAssociationsAndPresences() {
         Set<String> userIds = new HashSet<>();
-        try (AutoLock l = lock.lock()) {
-            getAssociatedUserIds(userIds);
-            _uid2Location.clear();
-        }
+        getAssociatedUserIds(userIds);
+        _uid2Location.clear();
         if (_logger.isDebugEnabled()) {
             _logger.debug("Broadcasting association removal for users {}", userIds);
         }
@@ -455,6 +530,7 @@ public class Seti extends AbstractLifeCycle implements Dumpable {
     }
 
     protected void removePresences(String oortURL) {
+        _snapshots.remove(oortURL);
         Set<String> userIds = removeRemotePresences(oortURL);
         if (_logger.isDebugEnabled()) {
             _logger.debug("Removing presences of comet {} for users {}", oortURL, userIds);
@@ -465,27 +541,23 @@ public class Seti extends AbstractLifeCycle implements Dumpable {
     }
 
     private Set<String> removeRemotePresences(String oortURL) {
+        return removeRemotePresences(oortURL, Set.of());
+    }
+
+    private Set<String> removeRemotePresences(String oortURL, Set<String> keepUserIds) {
         Set<String> userIds = new HashSet<>();
-        try (AutoLock l = lock.lock()) {
-            Iterator<Map.Entry<String, Set<Location>>> entries = _uid2Location.entrySet().iterator();
-            while (entries.hasNext()) {
-                Map.Entry<String, Set<Location>> entry = entries.next();
-                Set<Location> userLocations = entry.getValue();
-                Iterator<Location> iterator = userLocations.iterator();
-                while (iterator.hasNext()) {
-                    Location location = iterator.next();
-                    if (location instanceof SetiLocation) {
-                        if (oortURL.equals(((SetiLocation)location)._oortURL)) {
-                            iterator.remove();
-                            userIds.add(entry.getKey());
-                            break;
-                        }
-                    }
-                }
-                if (userLocations.isEmpty()) {
-                    entries.remove();
-                }
+        Predicate<Location> filter = location -> location instanceof SetiLocation && oortURL.equals(((SetiLocation)location)._oortURL);
+        for (String userId : _uid2Location.keySet()) {
+            if (keepUserIds.contains(userId)) {
+                continue;
             }
+            _uid2Location.computeIfPresent(userId, (k, locations) -> {
+                Set<Location> newLocations = without(locations, filter);
+                if (newLocations != locations) {
+                    userIds.add(userId);
+                }
+                return newLocations;
+            });
         }
         return userIds;
     }
@@ -495,9 +567,7 @@ public class Seti extends AbstractLifeCycle implements Dumpable {
      */
     @ManagedAttribute(value = "The set of userIds known to this Seti", readonly = true)
     public Set<String> getUserIds() {
-        try (AutoLock l = lock.lock()) {
-            return Set.copyOf(_uid2Location.keySet());
-        }
+        return Set.copyOf(_uid2Location.keySet());
     }
 
     /**
@@ -510,13 +580,11 @@ public class Seti extends AbstractLifeCycle implements Dumpable {
     }
 
     private void getAssociatedUserIds(Set<String> result) {
-        try (AutoLock l = lock.lock()) {
-            for (Map.Entry<String, Set<Location>> entry : _uid2Location.entrySet()) {
-                for (Location location : entry.getValue()) {
-                    if (location instanceof LocalLocation) {
-                        result.add(entry.getKey());
-                        break;
-                    }
+        for (Map.Entry<String, Set<Location>> entry : _uid2Location.entrySet()) {
+            for (Location location : entry.getValue()) {
+                if (location instanceof LocalLocation) {
+                    result.add(entry.getKey());
+                    break;
                 }
             }
         }
@@ -536,30 +604,45 @@ public class Seti extends AbstractLifeCycle implements Dumpable {
 
     /**
      * <p>Sends a message to multiple userIds in the Oort cloud.</p>
+     * <p>The userIds associated with the same remote comet are sent a single
+     * message that carries all the userIds, and the remote comet delivers
+     * the message to each of them.</p>
      *
      * @param toUserIds the userIds to send the message to
      * @param toChannel the channel to send the message to
      * @param data      the content of the message
      */
     public void sendMessage(Collection<String> toUserIds, String toChannel, Object data) {
+        Map<String, List<String>> remoteUserIds = new HashMap<>();
         for (String toUserId : toUserIds) {
-            Set<Location> copy = new HashSet<>();
-            try (AutoLock l = lock.lock()) {
-                Set<Location> locations = _uid2Location.get(toUserId);
-                if (locations == null) {
-                    copy.add(new SetiLocation(toUserId, null));
-                } else {
-                    copy.addAll(locations);
-                }
+            Set<Location> locations = _uid2Location.get(toUserId);
+            if (locations == null) {
+                // Unknown user, broadcast to all comets.
+                remoteUserIds.computeIfAbsent(SETI_ALL_CHANNEL, k -> new ArrayList<>()).add(toUserId);
+                continue;
             }
 
             if (_logger.isDebugEnabled()) {
-                _logger.debug("Sending message to locations {}", copy);
+                _logger.debug("Sending message to locations {}", locations);
             }
-            for (Location location : copy) {
-                location.send(toUserId, toChannel, data);
+            for (Location location : locations) {
+                if (location instanceof SetiLocation) {
+                    remoteUserIds.computeIfAbsent(((SetiLocation)location)._setiChannel, k -> new ArrayList<>()).add(toUserId);
+                } else {
+                    location.send(toUserId, toChannel, data);
+                }
             }
         }
+
+        remoteUserIds.forEach((setiChannel, userIds) -> {
+            if (_logger.isDebugEnabled()) {
+                _logger.debug("Sending message to users {} via {}", userIds, setiChannel);
+            }
+            SetiMessage message = userIds.size() == 1 ?
+                    new SetiMessage(userIds.get(0), toChannel, data) :
+                    new SetiMessage(userIds, toChannel, data);
+            _session.getChannel(setiChannel).publish(message);
+        });
     }
 
     /**
@@ -651,20 +734,40 @@ public class Seti extends AbstractLifeCycle implements Dumpable {
 
         Set<String> added = new HashSet<>();
         Set<String> removed = new HashSet<>();
-        try (AutoLock l = lock.lock()) {
-            if (replace) {
-                removed.addAll(removeRemotePresences(oortURL));
+        if (replace) {
+            // Users that are still present are not removed, so
+            // that they do not appear absent while replacing.
+            removed.addAll(removeRemotePresences(oortURL, present ? userIds : Set.of()));
+        }
+        Number snapshotId = (Number)presence.get(SetiPresence.SNAPSHOT_FIELD);
+        if (snapshotId != null) {
+            // A chunk of a snapshot: the userIds are added incrementally,
+            // and the last chunk removes the userIds not in the snapshot.
+            // Snapshots sent on different channels may interleave, so only
+            // the most recent snapshot of a comet is tracked: a newer one
+            // drops an incomplete older one, and the chunks of the older
+            // one still add their userIds but do not remove any userId.
+            long id = snapshotId.longValue();
+            Snapshot snapshot = _snapshots.compute(oortURL, (key, existing) -> existing == null || existing._id < id ? new Snapshot(id) : existing);
+            if (snapshot._id == id) {
+                snapshot._userIds.addAll(userIds);
+                if (presence.get(SetiPresence.LAST_FIELD) == Boolean.TRUE) {
+                    _snapshots.remove(oortURL, snapshot);
+                    removed.addAll(removeRemotePresences(oortURL, snapshot._userIds));
+                }
+            } else if (_logger.isDebugEnabled()) {
+                _logger.debug("Ignoring chunk of snapshot {} superseded by snapshot {} from comet {}", id, snapshot._id, oortURL);
             }
-            for (String userId : userIds) {
-                SetiLocation location = new SetiLocation(userId, oortURL);
-                if (present) {
-                    if (associateRemote(userId, location)) {
-                        added.add(userId);
-                    }
-                } else {
-                    if (disassociate(userId, location)) {
-                        removed.add(userId);
-                    }
+        }
+        for (String userId : userIds) {
+            SetiLocation location = new SetiLocation(userId, oortURL);
+            if (present) {
+                if (associateRemote(userId, location)) {
+                    added.add(userId);
+                }
+            } else {
+                if (disassociate(userId, location)) {
+                    removed.add(userId);
                 }
             }
         }
@@ -688,11 +791,44 @@ public class Seti extends AbstractLifeCycle implements Dumpable {
                     _logger.debug("Pushing associated users {} to comet {}", associatedUserIds, oortURL);
                 }
                 ClientSessionChannel channel = oortComet.getChannel(generateSetiChannel(generateSetiId(oortURL)));
-                channel.publish(new SetiPresence(associatedUserIds));
+                newPresenceSnapshot(associatedUserIds).forEach(channel::publish);
             }
         }
     }
 
+    /**
+     * <p>Splits the given userIds in presence messages of at most
+     * {@link #getPresenceChunkSize()} userIds, that replace the
+     * presences of this Seti in the comets that receive them.</p>
+     *
+     * @param userIds the userIds associated with this Seti
+     * @return the presence messages to send
+     */
+    private List<SetiPresence> newPresenceSnapshot(Set<String> userIds) {
+        boolean compress = isCompressPresences();
+        int chunkSize = getPresenceChunkSize();
+        int size = userIds.size();
+        if (chunkSize <= 0 || size <= chunkSize) {
+            return List.of(new SetiPresence(userIds, true, compress));
+        }
+        List<String> list = new ArrayList<>(userIds);
+        if (compress) {
+            // Sorting before splitting puts userIds
+            // with common prefixes in the same chunk.
+            list.sort(null);
+        }
+        long snapshotId = _snapshotIds.incrementAndGet();
+        List<SetiPresence> result = new ArrayList<>((size + chunkSize - 1) / chunkSize);
+        for (int i = 0; i < size; i += chunkSize) {
+            int end = Math.min(i + chunkSize, size);
+            SetiPresence presence = new SetiPresence(list.subList(i, end), false, compress);
+            presence.put(SetiPresence.SNAPSHOT_FIELD, snapshotId);
+            presence.put(SetiPresence.LAST_FIELD, end == size);
+            result.add(presence);
+        }
+        return result;
+    }
+
     public void addPresenceListener(PresenceListener listener) {
         _presenceListeners.add(listener);
     }
@@ -733,40 +869,45 @@ public class Seti extends AbstractLifeCycle implements Dumpable {
      * @param message the seti message received
      */
     protected void receiveMessage(Map<String, Object> message) {
-        String userId = (String)message.get(SetiMessage.USER_ID_FIELD);
         String channel = (String)message.get(SetiMessage.CHANNEL_FIELD);
         Object data = message.get(SetiMessage.DATA_FIELD);
-
-        Set<Location> copy = new HashSet<>();
-        try (AutoLock l = lock.lock()) {
-            Set<Location> locations = _uid2Location.get(userId);
-            if (locations != null) {
-                // Consider cometA, cometB and cometC and a user that is associated
-                // in both cometA and cometB. When cometC sends a message to the user,
-                // it knows that the user is in both cometA and cometB (thanks to presence
-                // messages) and will send a message to both cometA and cometB.
-                // But cometA also knows from presence messages that the user is also in
-                // cometB and should not forward the message arriving from cometC to cometB
-                // since cometC will take care of sending to cometB.
-                // Hence, we forward the message only locally
-                for (Location location : locations) {
-                    if (location instanceof LocalLocation) {
-                        copy.add(location);
-                    }
-                }
+        Object userIds = message.get(SetiMessage.USER_IDS_FIELD);
+        if (userIds == null) {
+            receiveMessage(message, (String)message.get(SetiMessage.USER_ID_FIELD), channel, data);
+        } else {
+            // A message sent to multiple users on this comet.
+            for (Object userId : userIds instanceof Object[] ? List.of((Object[])userIds) : (Collection<?>)userIds) {
+                receiveMessage(message, (String)userId, channel, data);
             }
         }
+    }
 
+    private void receiveMessage(Map<String, Object> message, String userId, String channel, Object data) {
+        Set<Location> locations = _uid2Location.getOrDefault(userId, Set.of());
         if (_logger.isDebugEnabled()) {
-            _logger.debug("Received message {} for locations {}", message, copy);
-        }
-        for (Location location : copy) {
-            location.receive(userId, channel, data);
+            _logger.debug("Received message {} for locations {}", message, locations);
+        }
+        // Consider cometA, cometB and cometC and a user that is associated
+        // in both cometA and cometB. When cometC sends a message to the user,
+        // it knows that the user is in both cometA and cometB (thanks to presence
+        // messages) and will send a message to both cometA and cometB.
+        // But cometA also knows from presence messages that the user is also in
+        // cometB and should not forward the message arriving from cometC to cometB
+        // since cometC will take care of sending to cometB.
+        // Hence, we forward the message only locally
+        for (Location location : locations) {
+            if (location instanceof LocalLocation) {
+                location.receive(userId, channel, data);
+            }
         }
     }
 
     @SuppressWarnings("unchecked")
     private Set<String> convertPresenceUsers(Map<String, Object> presence) {
+        Object data = presence.get(SetiPresence.USER_IDS_DATA_FIELD);
+        if (data != null) {
+            return decodeUserIds((String)data);
+        }
         Object value = presence.get(SetiPresence.USER_IDS_FIELD);
         if (value instanceof Set) {
             return (Set<String>)value;
@@ -784,22 +925,92 @@ public class Seti extends AbstractLifeCycle implements Dumpable {
         throw new IllegalArgumentException();
     }
 
+    /**
+     * <p>Encodes the given userIds, sorted, each as the length of the prefix it
+     * shares with the previous userId followed by the remaining bytes,
+     * then compresses the result and encodes it in base64.</p>
+     *
+     * @param userIds the userIds to encode
+     * @return the compact representation of the userIds
+     */
+    private static String encodeUserIds(Collection<String> userIds) {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            try (DataOutputStream output = new DataOutputStream(new DeflaterOutputStream(bytes))) {
+                // Sorting maximizes the prefixes shared by consecutive userIds.
+                List<String> sorted = new ArrayList<>(userIds);
+                sorted.sort(null);
+                output.writeInt(sorted.size());
+                byte[] previous = new byte[0];
+                for (String userId : sorted) {
+                    byte[] current = userId.getBytes(StandardCharsets.UTF_8);
+                    int prefix = 0;
+                    int length = Math.min(previous.length, current.length);
+                    while (prefix < length && previous[prefix] == current[prefix]) {
+                        ++prefix;
+                    }
+                    writeVarInt(output, prefix);
+                    writeVarInt(output, current.length - prefix);
+                    output.write(current, prefix, current.length - prefix);
+                    previous = current;
+                }
+            }
+            return Base64.getEncoder().encodeToString(bytes.toByteArray());
+        } catch (IOException x) {
+            throw new UncheckedIOException(x);
+        }
+    }
+
+    private static Set<String> decodeUserIds(String data) {
+        byte[] bytes = Base64.getDecoder().decode(data);
+        try (DataInputStream input = new DataInputStream(new InflaterInputStream(new ByteArrayInputStream(bytes)))) {
+            int size = input.readInt();
+            Set<String> result = new HashSet<>();
+            byte[] previous = new byte[0];
+            for (int i = 0; i < size; ++i) {
+                int prefix = readVarInt(input);
+                int suffix = readVarInt(input);
+                byte[] current = Arrays.copyOf(previous, prefix + suffix);
+                input.readFully(current, prefix, suffix);
+                result.add(new String(current, StandardCharsets.UTF_8));
+                previous = current;
+            }
+            return result;
+        } catch (IOException x) {
+            throw new IllegalArgumentException(x);
+        }
+    }
+
+    private static void writeVarInt(DataOutputStream output, int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            output.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        output.writeByte(value);
+    }
+
+    private static int readVarInt(DataInputStream input) throws IOException {
+        int result = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            int b = input.readUnsignedByte();
+            result |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return result;
+            }
+        }
+        throw new IOException("Invalid varint");
+    }
+
     @Override
     public void dump(Appendable out, String indent) throws IOException {
         boolean detailed = ((BayeuxServerImpl)getOort().getBayeuxServer()).isDetailedDump();
         if (detailed) {
-            List<Map.Entry<String, ? extends Set<Location>>> locations;
-            try (AutoLock l = lock.lock()) {
-                locations = new TreeMap<>(_uid2Location).entrySet().stream()
-                        .map(entry -> new AbstractMap.SimpleEntry<>(entry.getKey(), new HashSet<>(entry.getValue())))
-                        .collect(Collectors.toList());
-            }
+            List<Map.Entry<String, ? extends Set<Location>>> locations = new TreeMap<>(_uid2Location).entrySet().stream()
+                    .map(entry -> new AbstractMap.SimpleEntry<>(entry.getKey(), entry.getValue()))
+                    .collect(Collectors.toList());
             Dumpable.dumpObjects(out, indent, this, new DumpableCollection("locations", locations));
         } else {
-            int size;
-            try (AutoLock l = lock.lock()) {
-                size = _uid2Location.size();
-            }
+            int size = _uid2Location.size();
             Dumpable.dumpObjects(out, indent, this, "locations size=" + size);
         }
     }
@@ -928,6 +1139,7 @@ public class Seti extends AbstractLifeCycle implements Dumpable {
 
     private class SetiMessage extends HashMap<String, Object> {
         private static final String USER_ID_FIELD = "userId";
+        private static final String USER_IDS_FIELD = "userIds";
         private static final String CHANNEL_FIELD = "channel";
         private static final String SETI_ID_FIELD = "setiId";
         private static final String DATA_FIELD = "data";
@@ -939,6 +1151,14 @@ public class Seti extends AbstractLifeCycle implements Dumpable {
             put(SETI_ID_FIELD, _setiId);
             put(DATA_FIELD, data);
         }
+
+        private SetiMessage(List<String> toUsers, String toChannel, Object data) {
+            super(4);
+            put(USER_IDS_FIELD, toUsers);
+            put(CHANNEL_FIELD, toChannel);
+            put(SETI_ID_FIELD, _setiId);
+            put(DATA_FIELD, data);
+        }
     }
 
     private class SetiPresence extends HashMap<String, Object> {
@@ -947,6 +1167,9 @@ public class Seti extends AbstractLifeCycle implements Dumpable {
         private static final String ALIVE_FIELD = "alive";
         private static final String PRESENCE_FIELD = "presence";
         private static final String REPLACE_FIELD = "replace";
+        private static final String USER_IDS_DATA_FIELD = "userIdsData";
+        private static final String SNAPSHOT_FIELD = "snapshot";
+        private static final String LAST_FIELD = "last";
 
         private SetiPresence(boolean present, String userId) {
             this(present, Set.of(userId), false);
@@ -956,13 +1179,29 @@ public class Seti extends AbstractLifeCycle implements Dumpable {
             this(true, userIds, true);
         }
 
-        private SetiPresence(boolean present, Set<String> userIds, boolean replace) {
+        private SetiPresence(boolean present, Collection<String> userIds, boolean replace) {
             super(4);
             put(USER_IDS_FIELD, userIds);
             put(OORT_URL_FIELD, _oort.getURL());
             put(PRESENCE_FIELD, present);
             put(REPLACE_FIELD, replace);
         }
+
+        private SetiPresence(Collection<String> userIds, boolean replace, boolean compress) {
+            this(true, compress ? List.of() : userIds, replace);
+            if (compress) {
+                put(USER_IDS_DATA_FIELD, encodeUserIds(userIds));
+            }
+        }
+    }
+
+    private static class Snapshot {
+        private final Set<String> _userIds = ConcurrentHashMap.newKeySet();
+        private final long _id;
+
+        private Snapshot(long id) {
+            _id = id;
+        }
     }
 
     /**
@@ -1051,7 +1290,7 @@ public class Seti extends AbstractLifeCycle implements Dumpable {
                 if (_logger.isDebugEnabled()) {
                     _logger.debug("Pushing associated users {} to comet {}", userIds, oortURL);
                 }
-                channel.publish(new SetiPresence(userIds));
+                newPresenceSnapshot(userIds).forEach(channel::publish);
             }
         }
 
@@ -1073,9 +1312,10 @@ public class Seti extends AbstractLifeCycle implements Dumpable {
                 if (_logger.isDebugEnabled()) {
                     _logger.debug("Broadcasting associated users {}", associatedUserIds);
                 }
-                SetiPresence presence = new SetiPresence(associatedUserIds);
-                presence.put(SetiPresence.ALIVE_FIELD, true);
-                session.deliver(_session, SETI_ALL_CHANNEL, presence, Promise.noop());
+                List<SetiPresence> presences = newPresenceSnapshot(associatedUserIds);
+                // The remote Seti replies with its associations when it has the whole snapshot.
+                presences.get(presences.size() - 1).put(SetiPresence.ALIVE_FIELD, true);
+                presences.forEach(presence -> session.deliver(_session, SETI_ALL_CHANNEL, presence, Promise.noop()));
             }
         }
     }
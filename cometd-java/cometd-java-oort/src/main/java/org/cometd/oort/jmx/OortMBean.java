@@ -15,9 +15,12 @@
  */
 package org.cometd.oort.jmx;
 
+import java.util.List;
 import java.util.Set;
 import java.util.TreeSet;
+import java.util.stream.Collectors;
 import org.cometd.oort.Oort;
+import org.cometd.oort.OortMetrics;
 import org.eclipse.jetty.jmx.ObjectMBean;
 import org.eclipse.jetty.util.annotation.ManagedAttribute;
 import org.eclipse.jetty.util.annotation.ManagedObject;
@@ -36,4 +39,11 @@ public class OortMBean extends ObjectMBean {
     public Set<String> getObservedChannels() {
         return new TreeSet<>(oort.getObservedChannels());
     }
+
+    @ManagedAttribute(value = "Metrics of the messages forwarded among Oort instances, by observed channel", readonly = true)
+    public List<String> getChannelMetrics() {
+        return oort.getMetrics().getChannelMetrics().values().stream()
+                .map(OortMetrics.ChannelMetrics::toString)
+                .collect(Collectors.toList());
+    }
 }
@@ -17,6 +17,7 @@ package org.cometd.server;
 
 import java.io.BufferedReader;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.text.ParseException;
 import java.util.concurrent.atomic.AtomicLong;
 import org.cometd.bayeux.Promise;
@@ -259,6 +260,24 @@ public abstract class AbstractServerTransport extends AbstractTransport implemen
         return json;
     }
 
+    protected String toJSONFrame(ServerMessage msg) {
+        ServerMessageImpl message = (ServerMessageImpl)(msg instanceof ServerMessageImpl ? msg : _bayeux.newMessage(msg));
+        String frame = message.getJSONFrame();
+        if (frame == null) {
+            frame = "[" + toJSON(message) + "]";
+        }
+        return frame;
+    }
+
+    protected byte[] toJSONBytes(ServerMessage msg) {
+        ServerMessageImpl message = (ServerMessageImpl)(msg instanceof ServerMessageImpl ? msg : _bayeux.newMessage(msg));
+        byte[] bytes = message.getJSONBytes();
+        if (bytes == null) {
+            bytes = toJSON(message).getBytes(StandardCharsets.UTF_8);
+        }
+        return bytes;
+    }
+
     public boolean allowMessageDeliveryDuringHandshake(ServerSessionImpl session) {
         return session != null && session.isAllowMessageDeliveryDuringHandshake();
     }
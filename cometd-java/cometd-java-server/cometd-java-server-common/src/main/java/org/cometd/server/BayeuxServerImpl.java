@@ -20,23 +20,28 @@ import java.lang.reflect.Constructor;
 import java.security.SecureRandom;
 import java.time.Instant;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
-import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
 import java.util.Spliterator;
+import java.util.Spliterators;
 import java.util.TreeMap;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
 import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Consumer;
 import java.util.stream.Collectors;
 import jakarta.servlet.http.HttpServletRequest;
@@ -64,6 +69,7 @@ import org.cometd.server.http.AbstractHttpTransport;
 import org.cometd.server.http.AsyncJSONTransport;
 import org.cometd.server.http.JSONPTransport;
 import org.cometd.server.http.JSONTransport;
+import org.eclipse.jetty.util.VirtualThreads;
 import org.eclipse.jetty.util.annotation.ManagedAttribute;
 import org.eclipse.jetty.util.annotation.ManagedObject;
 import org.eclipse.jetty.util.annotation.ManagedOperation;
@@ -87,29 +93,43 @@ public class BayeuxServerImpl extends ContainerLifeCycle implements BayeuxServer
     public static final String BROADCAST_TO_PUBLISHER_OPTION = "broadcastToPublisher";
     public static final String SCHEDULER_THREADS = "schedulerThreads";
     public static final String EXECUTOR_MAX_THREADS = "executorMaxThreads";
+    public static final String LOCK_FREE_SESSION_QUEUE_OPTION = "lockFreeSessionQueue";
+    public static final String FAN_OUT_THREADS_OPTION = "fanOutThreads";
+    public static final String FAN_OUT_THRESHOLD_OPTION = "fanOutThreshold";
+    public static final String VIRTUAL_THREADS_OPTION = "virtualThreads";
+    public static final String SESSION_ACTOR_OPTION = "sessionActor";
     private static final long DEFAULT_SWEEP_PERIOD = 997;
     private static final int DEFAULT_SWEEP_THREADS = 2;
+    private static final int DEFAULT_FAN_OUT_THRESHOLD = 1024;
 
     private final String _name = getClass().getSimpleName() + "@" + Integer.toHexString(System.identityHashCode(this));
     private final Logger _logger = LoggerFactory.getLogger(getClass().getPackage().getName() + "." + _name);
     private final SecureRandom _random = new SecureRandom();
     private final List<BayeuxServerListener> _listeners = new CopyOnWriteArrayList<>();
+    private final AtomicReference<ClassifiedListeners> _classified = new AtomicReference<>(new ClassifiedListeners(List.of()));
     private final List<Extension> _extensions = new CopyOnWriteArrayList<>();
+    private final AtomicReference<Extension[]> _extensionsSnapshot = new AtomicReference<>(new Extension[0]);
     private final ConcurrentMap<String, ServerSessionImpl> _sessions = new ConcurrentHashMap<>();
     private final ConcurrentMap<String, ServerChannelImpl> _channels = new ConcurrentHashMap<>();
+    private final SubscriptionTrie _subscriptions = new SubscriptionTrie();
     private final Map<String, ServerTransport> _transports = new LinkedHashMap<>(); // Order is important
     private final List<String> _allowedTransports = new ArrayList<>();
     private final Map<String, Object> _options = new TreeMap<>();
     private final Sweeper _sweeper = new Sweeper();
     private MarkedReference<Scheduler> _scheduler;
     private MarkedReference<Executor> _executor;
+    private Executor _callbackExecutor;
+    private ForkJoinPool _actorPool;
     private SecurityPolicy _policy = new DefaultSecurityPolicy();
     private JSONContextServer _jsonContext;
     private boolean _validation;
     private boolean _broadcastToPublisher;
+    private boolean _lockFreeSessionQueue;
     private boolean _detailedDump;
     private long _sweepPeriod;
     private int _sweepThreads;
+    private int _fanOutThreads;
+    private int _fanOutThreshold;
 
     public String getName() {
         return _name;
@@ -145,6 +165,20 @@ public class BayeuxServerImpl extends ContainerLifeCycle implements BayeuxServer
 
         _validation = getOption(VALIDATE_MESSAGE_FIELDS_OPTION, true);
         _broadcastToPublisher = getOption(BROADCAST_TO_PUBLISHER_OPTION, true);
+        _lockFreeSessionQueue = getOption(LOCK_FREE_SESSION_QUEUE_OPTION, false);
+        setFanOutThreads((int)getOption(FAN_OUT_THREADS_OPTION, 1L));
+        setFanOutThreshold((int)getOption(FAN_OUT_THRESHOLD_OPTION, DEFAULT_FAN_OUT_THRESHOLD));
+        if (getOption(VIRTUAL_THREADS_OPTION, false)) {
+            if (VirtualThreads.areSupported()) {
+                _callbackExecutor = VirtualThreads.getDefaultVirtualThreadsExecutor();
+            } else {
+                _logger.warn("Virtual threads are not supported, invoking callbacks with {}", getExecutor());
+                _callbackExecutor = getExecutor();
+            }
+        }
+        if (getOption(SESSION_ACTOR_OPTION, false)) {
+            _actorPool = newActorPool();
+        }
 
         super.doStart();
 
@@ -168,12 +202,20 @@ public class BayeuxServerImpl extends ContainerLifeCycle implements BayeuxServer
         }
 
         _listeners.clear();
+        classifyListeners();
         _extensions.clear();
+        snapshotExtensions();
         _sessions.clear();
         _channels.clear();
+        _subscriptions.clear();
         _transports.clear();
         _allowedTransports.clear();
         _options.clear();
+        _callbackExecutor = null;
+        if (_actorPool != null) {
+            _actorPool.shutdown();
+            _actorPool = null;
+        }
         removeBean(_scheduler.getReference());
         if (_scheduler.isMarked()) {
             _scheduler = null;
@@ -336,6 +378,50 @@ public class BayeuxServerImpl extends ContainerLifeCycle implements BayeuxServer
         executor.execute(job);
     }
 
+    /**
+     * <p>Returns the executor that invokes, in the context of a session,
+     * {@link MessageListener}s, {@link Authorizer}s, and the subscribers
+     * of local sessions, or {@code null} if they are invoked by the
+     * thread that processes the message.</p>
+     *
+     * @return the executor that invokes the callbacks, or {@code null}
+     * @see #VIRTUAL_THREADS_OPTION
+     */
+    public Executor getCallbackExecutor() {
+        return _callbackExecutor;
+    }
+
+    void invokeCallback(ServerSession session, Runnable callback) {
+        Executor executor = session instanceof ServerSessionImpl ? ((ServerSessionImpl)session).getCallbackExecutor() : null;
+        if (executor == null) {
+            callback.run();
+        } else {
+            executor.execute(callback);
+        }
+    }
+
+    private ForkJoinPool newActorPool() {
+        ForkJoinPool.ForkJoinWorkerThreadFactory factory = pool -> {
+            ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+            thread.setName(_name + "-Actor-" + thread.getPoolIndex());
+            return thread;
+        };
+        // Async mode processes the tasks in FIFO order, suited for event-style tasks.
+        return new ForkJoinPool(Runtime.getRuntime().availableProcessors(), factory, null, true);
+    }
+
+    /**
+     * <p>Returns the pool shared by the sessions to process, one at a time
+     * for each session, their incoming messages and the messages delivered
+     * to them, or {@code null} if they are processed by the calling thread.</p>
+     *
+     * @return the pool shared by the session actors, or {@code null}
+     * @see #SESSION_ACTOR_OPTION
+     */
+    public Executor getSessionActorExecutor() {
+        return _actorPool;
+    }
+
     public void setScheduler(Scheduler scheduler) {
         if (isRunning()) {
             throw new IllegalStateException("Cannot set scheduler on a running BayeuxServer instance");
@@ -471,19 +557,15 @@ public class BayeuxServerImpl extends ContainerLifeCycle implements BayeuxServer
                         notifyConfigureChannel(initializer, channel);
                     }
 
-                    for (BayeuxServer.BayeuxServerListener listener : _listeners) {
-                        if (listener instanceof ServerChannel.Initializer) {
-                            notifyConfigureChannel((Initializer)listener, channel);
-                        }
+                    for (Initializer listener : _classified.get()._initializers) {
+                        notifyConfigureChannel(listener, channel);
                     }
                 } finally {
                     channel.initialized();
                 }
 
-                for (BayeuxServer.BayeuxServerListener listener : _listeners) {
-                    if (listener instanceof BayeuxServer.ChannelListener) {
-                        notifyChannelAdded((ChannelListener)listener, channel);
-                    }
+                for (ChannelListener listener : _classified.get()._channelListeners) {
+                    notifyChannelAdded(listener, channel);
                 }
 
                 initialized = true;
@@ -531,10 +613,8 @@ public class BayeuxServerImpl extends ContainerLifeCycle implements BayeuxServer
             _logger.debug("Adding {}", session);
         }
         _sessions.put(session.getId(), session);
-        for (BayeuxServerListener listener : _listeners) {
-            if (listener instanceof BayeuxServer.SessionListener) {
-                notifySessionAdded((SessionListener)listener, session, message);
-            }
+        for (SessionListener listener : _classified.get()._sessionListeners) {
+            notifySessionAdded(listener, session, message);
         }
         session.added(message);
     }
@@ -575,10 +655,8 @@ public class BayeuxServerImpl extends ContainerLifeCycle implements BayeuxServer
         // Invoke BayeuxServer.SessionListener first, so that the application
         // can be "pre-notified" that a session is being removed before the
         // application gets notifications of channel unsubscriptions.
-        for (BayeuxServerListener listener : _listeners) {
-            if (listener instanceof SessionListener) {
-                notifySessionRemoved((SessionListener)listener, removed, message, timeout);
-            }
+        for (SessionListener listener : _classified.get()._sessionListeners) {
+            notifySessionRemoved(listener, removed, message, timeout);
         }
 
         boolean connected = removed.removed(message, timeout);
@@ -622,11 +700,17 @@ public class BayeuxServerImpl extends ContainerLifeCycle implements BayeuxServer
     @Override
     public void addExtension(Extension extension) {
         _extensions.add(extension);
+        snapshotExtensions();
     }
 
     @Override
     public void removeExtension(Extension extension) {
         _extensions.remove(extension);
+        snapshotExtensions();
+    }
+
+    private void snapshotExtensions() {
+        Extensions.snapshot(_extensionsSnapshot, _extensions, new Extension[0]);
     }
 
     @Override
@@ -638,6 +722,7 @@ public class BayeuxServerImpl extends ContainerLifeCycle implements BayeuxServer
     public void addListener(BayeuxServerListener listener) {
         Objects.requireNonNull(listener);
         _listeners.add(listener);
+        classifyListeners();
     }
 
     @Override
@@ -666,9 +751,33 @@ public class BayeuxServerImpl extends ContainerLifeCycle implements BayeuxServer
     @Override
     public void removeListener(BayeuxServerListener listener) {
         _listeners.remove(listener);
+        classifyListeners();
+    }
+
+    private void classifyListeners() {
+        Listeners.classify(_classified, () -> new ClassifiedListeners(_listeners));
+    }
+
+    BayeuxServer.SubscriptionListener[] subscriptionListeners() {
+        return _classified.get()._subscriptionListeners;
     }
 
     public void handle(ServerSessionImpl session, ServerMessage.Mutable message, Promise<ServerMessage.Mutable> promise) {
+        Executor actor = session == null ? null : session.getActor();
+        if (actor == null) {
+            handle0(session, message, promise);
+        } else {
+            actor.execute(() -> {
+                try {
+                    handle0(session, message, promise);
+                } catch (Throwable x) {
+                    promise.fail(x);
+                }
+            });
+        }
+    }
+
+    private void handle0(ServerSessionImpl session, ServerMessage.Mutable message, Promise<ServerMessage.Mutable> promise) {
         ServerMessageImpl reply = (ServerMessageImpl)createReply(message);
         if (_validation) {
             String error = validateMessage(message);
@@ -869,7 +978,7 @@ public class BayeuxServerImpl extends ContainerLifeCycle implements BayeuxServer
             promise.succeed(null);
         } else {
             AsyncFoldLeft.run(authorizers, Authorizer.Result.ignore(), (result, authorizer, loop) ->
-                    authorizer.authorize(operation, channelId, session, message, Promise.from(authorization -> {
+                    invokeCallback(session, () -> authorize(authorizer, operation, channelId, session, message, Promise.from(authorization -> {
                         if (_logger.isDebugEnabled()) {
                             _logger.debug("Authorizer {} on channel {} {} {} for channel {}", authorizer, channel, authorization, operation, channelId);
                         }
@@ -880,7 +989,15 @@ public class BayeuxServerImpl extends ContainerLifeCycle implements BayeuxServer
                         } else {
                             loop.proceed(result);
                         }
-                    }, promise::fail)), promise);
+                    }, promise::fail))), promise);
+        }
+    }
+
+    private void authorize(Authorizer authorizer, Authorizer.Operation operation, ChannelId channelId, ServerSession session, ServerMessage message, Promise<Authorizer.Result> promise) {
+        try {
+            authorizer.authorize(operation, channelId, session, message, promise);
+        } catch (Throwable x) {
+            promise.fail(x);
         }
     }
 
@@ -924,7 +1041,13 @@ public class BayeuxServerImpl extends ContainerLifeCycle implements BayeuxServer
                     // For example, it is impossible to prevent things like
                     // ((CustomObject)serverMessage.getData()).change() or
                     // ((Map)serverMessage.getExt().get("map")).put().
-                    freeze(message);
+                    // Messages that only local sessions subscribe to are not converted
+                    // to JSON, unless they are later delivered to a remote session.
+                    if (hasRemoteSubscribers(channel)) {
+                        freeze(message);
+                    } else if (message instanceof ServerMessageImpl) {
+                        ((ServerMessageImpl)message).freeze();
+                    }
                     publish2(session, channel, message, promise);
                 } else {
                     ServerMessage.Mutable reply = message.getAssociated();
@@ -937,6 +1060,18 @@ public class BayeuxServerImpl extends ContainerLifeCycle implements BayeuxServer
         }
     }
 
+    private boolean hasRemoteSubscribers(ServerChannelImpl channel) {
+        if (channel.isBroadcast()) {
+            for (ServerChannelImpl matched : _subscriptions.match(channel.getChannelId())) {
+                if (matched.hasRemoteSubscribers()) {
+                    return true;
+                }
+            }
+            return false;
+        }
+        return true;
+    }
+
     private void publish2(ServerSessionImpl session, ServerChannelImpl channel, ServerMessage.Mutable message, Promise<Boolean> promise) {
         if (channel.isMeta()) {
             notifyMetaHandlers(session, channel, message, promise);
@@ -948,45 +1083,97 @@ public class BayeuxServerImpl extends ContainerLifeCycle implements BayeuxServer
     }
 
     private void notifySubscribers(ServerSessionImpl session, ServerChannelImpl serverChannel, Mutable message, Promise<Boolean> promise) {
+        // The notification flows from the root of the channel tree,
+        // i.e. from the /** channel to the exact message channel.
+        // Only the channels that have subscribers are returned.
+        List<ServerChannelImpl> channels = _subscriptions.match(serverChannel.getChannelId());
         // Both the client and the server know their subscriptions, say to /chat/* and /chat/news.
         // The server wants to avoid to send the same message multiple times to the same subscriber,
         // if that subscriber is subscribed to both /chat/* and /chat/news; that's why a Set is used
         // to avoid sending the same message multiple times to the same subscriber.
+        // The Set is only needed when the message is delivered via multiple channels, and it is
+        // concurrent because the subscribers of a channel may be notified in parallel.
         // When the client receives the message, it can fan out the message to its subscriptions.
-        Set<String> subscriberIds = new HashSet<>();
-        // The notification flows from the root of the channel tree,
-        // i.e. from the /** channel to the exact message channel.
-        List<String> channels = serverChannel.getChannelId().getAllIds();
-        AsyncFoldLeft.reverseRun(channels, false, (result, channelName, channelLoop) -> {
-            ServerChannelImpl channel = _channels.get(channelName);
-            if (channel == null) {
-                channelLoop.proceed(result);
+        Set<String> subscriberIds = channels.size() > 1 ? ConcurrentHashMap.newKeySet() : null;
+        AsyncFoldLeft.run(channels, false, (result, channel, channelLoop) -> {
+            Set<ServerSession> subscribers = channel.subscribers();
+            int subscriberCount = subscribers.size();
+            if (_logger.isDebugEnabled()) {
+                _logger.debug("Notifying {} subscribers on {}", subscriberCount, channel);
+            }
+            Promise<Boolean> channelPromise = Promise.from(delivered -> channelLoop.proceed(result || delivered), channelLoop::fail);
+            int threads = getFanOutThreads();
+            if (threads > 1 && subscriberCount >= getFanOutThreshold()) {
+                fanOut(session, subscriberIds, channel, message, subscribers, threads, channelPromise);
             } else {
-                Set<ServerSession> subscribers = channel.subscribers();
-                if (_logger.isDebugEnabled()) {
-                    _logger.debug("Notifying {} subscribers on {}", subscribers.size(), channel);
-                }
-                AsyncFoldLeft.run(subscribers, false, (r, subscriber, loop) -> {
-                    String subscriberId = subscriber.getId();
-                    if (subscriberIds.contains(subscriberId)) {
-                        loop.proceed(r);
-                    } else {
-                        if (subscriber == session && !channel.isBroadcastToPublisher()) {
-                            loop.proceed(r);
-                        } else {
-                            ((ServerSessionImpl)subscriber).deliver1(session, message, Promise.from(delivered -> {
-                                if (delivered) {
-                                    subscriberIds.add(subscriberId);
-                                }
-                                loop.proceed(r || delivered);
-                            }, loop::fail));
+                notifySubscribers(session, subscriberIds, channel, message, subscribers, channelPromise);
+            }
+        }, promise);
+    }
+
+    private void notifySubscribers(ServerSessionImpl session, Set<String> subscriberIds, ServerChannelImpl channel, Mutable message, Iterable<ServerSession> subscribers, Promise<Boolean> promise) {
+        AsyncFoldLeft.run(subscribers, false, (r, subscriber, loop) -> {
+            String subscriberId = subscriber.getId();
+            if (subscriberIds != null && subscriberIds.contains(subscriberId)) {
+                loop.proceed(r);
+            } else {
+                if (subscriber == session && !channel.isBroadcastToPublisher()) {
+                    loop.proceed(r);
+                } else {
+                    ((ServerSessionImpl)subscriber).deliver1(session, message, Promise.from(delivered -> {
+                        if (delivered && subscriberIds != null) {
+                            subscriberIds.add(subscriberId);
                         }
-                    }
-                }, Promise.from(delivered -> channelLoop.proceed(result || delivered), channelLoop::fail));
+                        loop.proceed(r || delivered);
+                    }, loop::fail));
+                }
             }
         }, promise);
     }
 
+    private void fanOut(ServerSessionImpl session, Set<String> subscriberIds, ServerChannelImpl channel, Mutable message, Set<ServerSession> subscribers, int threads, Promise<Boolean> promise) {
+        // The channels are notified one after the other, so that the
+        // deduplication across wild channels still works, but the
+        // subscribers of a channel are notified in parallel.
+        List<Spliterator<ServerSession>> chunks = split(subscribers, threads);
+        int count = chunks.size();
+        if (_logger.isDebugEnabled()) {
+            _logger.debug("Fanning out to {} subscribers on {} in {} chunks", subscribers.size(), channel, count);
+        }
+        @SuppressWarnings("unchecked")
+        CompletableFuture<Boolean>[] futures = new CompletableFuture[count];
+        for (int i = 0; i < count; ++i) {
+            futures[i] = new Promise.Completable<>();
+        }
+        CompletableFuture.allOf(futures).whenComplete((r, x) -> {
+            if (x == null) {
+                boolean delivered = false;
+                for (CompletableFuture<Boolean> future : futures) {
+                    delivered |= future.join();
+                }
+                promise.succeed(delivered);
+            } else {
+                promise.fail(x instanceof CompletionException ? x.getCause() : x);
+            }
+        });
+        Executor executor = getExecutor();
+        for (int i = 0; i < count; ++i) {
+            Spliterator<ServerSession> chunk = chunks.get(i);
+            Promise.Completable<Boolean> chunkPromise = (Promise.Completable<Boolean>)futures[i];
+            Runnable task = () -> notifySubscribers(session, subscriberIds, channel, message, () -> Spliterators.iterator(chunk), chunkPromise);
+            // The last chunk is notified by the publishing thread.
+            if (i == count - 1) {
+                task.run();
+            } else {
+                try {
+                    executor.execute(task);
+                } catch (RejectedExecutionException x) {
+                    task.run();
+                }
+            }
+        }
+    }
+
     private void notifyListeners(ServerSessionImpl session, ServerChannelImpl channel, Mutable message, Promise<Boolean> promise) {
         AsyncFoldLeft.reverseRun(channel.getChannelId().getAllIds(), true, (channelResult, channelName, channelLoop) -> {
             ServerChannelImpl target = _channels.get(channelName);
@@ -996,17 +1183,16 @@ public class BayeuxServerImpl extends ContainerLifeCycle implements BayeuxServer
                 if (target.isLazy()) {
                     message.setLazy(true);
                 }
-                List<ConfigurableServerChannel.ServerChannelListener> listeners = target.listeners();
-                if (_logger.isDebugEnabled()) {
-                    _logger.debug("Notifying {} listeners on {}", listeners.size(), target);
-                }
-                AsyncFoldLeft.run(listeners, true, (result, listener, loop) -> {
-                    if (listener instanceof MessageListener) {
-                        notifyOnMessage((MessageListener)listener, session, channel, message, resolveLoop(loop));
-                    } else {
-                        loop.proceed(true);
+                MessageListener[] listeners = target.messageListeners();
+                if (listeners.length == 0) {
+                    channelLoop.proceed(channelResult);
+                } else {
+                    if (_logger.isDebugEnabled()) {
+                        _logger.debug("Notifying {} listeners on {}", listeners.length, target);
                     }
-                }, resolveLoop(channelLoop));
+                    AsyncFoldLeft.run(listeners, true, (result, listener, loop) ->
+                            notifyOnMessage(listener, session, channel, message, resolveLoop(loop)), resolveLoop(channelLoop));
+                }
             }
         }, promise);
     }
@@ -1047,15 +1233,19 @@ public class BayeuxServerImpl extends ContainerLifeCycle implements BayeuxServer
     public void freeze(Mutable mutable) {
         if (mutable instanceof ServerMessageImpl) {
             ServerMessageImpl message = (ServerMessageImpl)mutable;
-            if (message.isFrozen()) {
+            // Messages frozen for local sessions only have no JSON yet.
+            if (message.isFrozen() && message.getJSON() != null) {
                 return;
             }
-            String json = _jsonContext.generate(message);
-            message.freeze(json);
+            message.freeze(_jsonContext);
         }
     }
 
     private void notifyOnMessage(MessageListener listener, ServerSession from, ServerChannel to, Mutable mutable, Promise<Boolean> promise) {
+        invokeCallback(from, () -> notifyOnMessage1(listener, from, to, mutable, promise));
+    }
+
+    private void notifyOnMessage1(MessageListener listener, ServerSession from, ServerChannel to, Mutable mutable, Promise<Boolean> promise) {
         try {
             listener.onMessage(from, to, mutable, Promise.from(r -> promise.succeed(r == null || r), failure -> {
                 _logger.info("Exception reported by listener " + listener, failure);
@@ -1068,7 +1258,35 @@ public class BayeuxServerImpl extends ContainerLifeCycle implements BayeuxServer
     }
 
     private void extendIncoming(ServerSessionImpl session, ServerMessage.Mutable message, Promise<Boolean> promise) {
-        AsyncFoldLeft.run(_extensions, true, (result, extension, loop) -> {
+        // Invoke the synchronous extensions in a plain loop, and fall
+        // back to the asynchronous loop at the first asynchronous one.
+        Extension[] extensions = _extensionsSnapshot.get();
+        for (int i = 0; i < extensions.length; ++i) {
+            Extension extension = extensions[i];
+            if (!Extensions.isSynchronousIncoming(extension)) {
+                extendIncoming(session, message, Arrays.asList(extensions).subList(i, extensions.length), promise);
+                return;
+            }
+            boolean result;
+            try {
+                result = message.isMeta() ? extension.rcvMeta(session, message) : extension.rcv(session, message);
+                if (_logger.isDebugEnabled()) {
+                    _logger.debug("Extension {}: result {} for incoming message {}", extension, result, message);
+                }
+            } catch (Throwable x) {
+                _logger.info("Exception thrown by extension " + extension, x);
+                result = true;
+            }
+            if (!result) {
+                promise.succeed(false);
+                return;
+            }
+        }
+        promise.succeed(true);
+    }
+
+    private void extendIncoming(ServerSessionImpl session, ServerMessage.Mutable message, List<Extension> extensions, Promise<Boolean> promise) {
+        AsyncFoldLeft.run(extensions, true, (result, extension, loop) -> {
             if (result) {
                 try {
                     extension.incoming(session, message, Promise.from(r -> {
@@ -1091,7 +1309,32 @@ public class BayeuxServerImpl extends ContainerLifeCycle implements BayeuxServer
     }
 
     protected void extendOutgoing(ServerSession sender, ServerSession session, Mutable message, Promise<Boolean> promise) {
-        AsyncFoldLeft.reverseRun(_extensions, true, (result, extension, loop) -> {
+        // Invoke the synchronous extensions in a plain loop, and fall
+        // back to the asynchronous loop at the first asynchronous one.
+        Extension[] extensions = _extensionsSnapshot.get();
+        for (int i = extensions.length - 1; i >= 0; --i) {
+            Extension extension = extensions[i];
+            if (!Extensions.isSynchronousOutgoing(extension)) {
+                extendOutgoing(sender, session, message, Arrays.asList(extensions).subList(0, i + 1), promise);
+                return;
+            }
+            boolean result;
+            try {
+                result = message.isMeta() ? extension.sendMeta(session, message) : extension.send(sender, session, message);
+            } catch (Throwable x) {
+                _logger.info("Exception thrown by extension " + extension, x);
+                result = true;
+            }
+            if (!result) {
+                promise.succeed(false);
+                return;
+            }
+        }
+        promise.succeed(true);
+    }
+
+    private void extendOutgoing(ServerSession sender, ServerSession session, Mutable message, List<Extension> extensions, Promise<Boolean> promise) {
+        AsyncFoldLeft.reverseRun(extensions, true, (result, extension, loop) -> {
             if (result) {
                 try {
                     extension.outgoing(sender, session, message, Promise.from(r -> loop.proceed(r == null || r), failure -> {
@@ -1125,15 +1368,17 @@ public class BayeuxServerImpl extends ContainerLifeCycle implements BayeuxServer
         }, promise::fail));
     }
 
+    SubscriptionTrie subscriptions() {
+        return _subscriptions;
+    }
+
     protected boolean removeServerChannel(ServerChannelImpl channel) {
         if (_channels.remove(channel.getId(), channel)) {
             if (_logger.isDebugEnabled()) {
                 _logger.debug("Removed channel {}", channel);
             }
-            for (BayeuxServerListener listener : _listeners) {
-                if (listener instanceof BayeuxServer.ChannelListener) {
-                    notifyChannelRemoved((ChannelListener)listener, channel);
-                }
+            for (ChannelListener listener : _classified.get()._channelListeners) {
+                notifyChannelRemoved(listener, channel);
             }
             return true;
         }
@@ -1228,6 +1473,21 @@ public class BayeuxServerImpl extends ContainerLifeCycle implements BayeuxServer
         return _broadcastToPublisher;
     }
 
+    /**
+     * <p>Returns whether the sessions queue messages in a lock-free queue.</p>
+     * <p>Publishing threads append to a lock-free queue without contending
+     * on the session lock with each other and with the thread that flushes
+     * the queue, unless the session has {@link ServerSession.QueueListener}s,
+     * {@link ServerSession.DeQueueListener}s, or {@link ServerSession.QueueMaxedListener}s
+     * that enforce the max queue size, which are notified under the session lock.</p>
+     *
+     * @return whether the sessions queue messages in a lock-free queue
+     */
+    @ManagedAttribute(value = "Whether the sessions queue messages in a lock-free queue", readonly = true)
+    public boolean isLockFreeSessionQueue() {
+        return _lockFreeSessionQueue;
+    }
+
     protected void unknownSession(Mutable reply) {
         error(reply, "402::session_unknown");
         if (Channel.META_HANDSHAKE.equals(reply.getChannel()) || Channel.META_CONNECT.equals(reply.getChannel())) {
@@ -1318,6 +1578,39 @@ public class BayeuxServerImpl extends ContainerLifeCycle implements BayeuxServer
         _sweepPeriod = sweepPeriod;
     }
 
+    /**
+     * <p>Returns the maximum number of threads that notify, in parallel,
+     * the subscribers of a broadcast channel.</p>
+     * <p>When greater than 1, the subscribers of a channel that has at least
+     * {@link #getFanOutThreshold() fanOutThreshold} subscribers are split in
+     * chunks that are notified in parallel by the {@link #getExecutor() executor}.
+     * Messages published without waiting for the completion of the publish of
+     * the previous message may be delivered to subscribers out of order.</p>
+     *
+     * @return the maximum number of threads used to notify the subscribers of a channel
+     */
+    @ManagedAttribute("The maximum number of threads used to notify the subscribers of a broadcast channel")
+    public int getFanOutThreads() {
+        return _fanOutThreads;
+    }
+
+    public void setFanOutThreads(int fanOutThreads) {
+        _fanOutThreads = Math.max(1, fanOutThreads);
+    }
+
+    /**
+     * @return the minimum number of subscribers of a channel to notify them in parallel
+     * @see #getFanOutThreads()
+     */
+    @ManagedAttribute("The minimum number of subscribers of a broadcast channel to notify them in parallel")
+    public int getFanOutThreshold() {
+        return _fanOutThreshold;
+    }
+
+    public void setFanOutThreshold(int fanOutThreshold) {
+        _fanOutThreshold = Math.max(1, fanOutThreshold);
+    }
+
     @ManagedAttribute("The maximum number of threads that can be used by the sweeping activity performed by the server")
     public int getSweepThreads()
     {
@@ -1667,7 +1960,7 @@ public class BayeuxServerImpl extends ContainerLifeCycle implements BayeuxServer
         }
 
         private <T> CompletableFuture<Void> splitWork(Collection<T> elements, Consumer<T> action, int threads, Executor executor) {
-            List<Spliterator<T>> spliteratorList = buildSpliteratorList(elements, threads);
+            List<Spliterator<T>> spliteratorList = split(elements, threads);
             @SuppressWarnings("unchecked")
             CompletableFuture<Void>[] completableFutures = new CompletableFuture[spliteratorList.size()];
             for (int i = 0; i < spliteratorList.size(); i++) {
@@ -1676,29 +1969,43 @@ public class BayeuxServerImpl extends ContainerLifeCycle implements BayeuxServer
             }
             return CompletableFuture.allOf(completableFutures);
         }
+    }
 
-        private <T> List<Spliterator<T>> buildSpliteratorList(Collection<T> elements, int threads) {
-            List<Spliterator<T>> resultSpliterators = new ArrayList<>();
-            resultSpliterators.add(elements.stream().spliterator());
+    private static <T> List<Spliterator<T>> split(Collection<T> elements, int threads) {
+        List<Spliterator<T>> resultSpliterators = new ArrayList<>();
+        resultSpliterators.add(elements.stream().spliterator());
 
-            List<Spliterator<T>> newSpliterators = new ArrayList<>();
-            while (resultSpliterators.size() < threads) {
-                for (Spliterator<T> spliterator : resultSpliterators) {
-                    Spliterator<T> newSpliterator = spliterator.trySplit();
-                    if (newSpliterator != null) {
-                        newSpliterators.add(newSpliterator);
-                        if (resultSpliterators.size() + newSpliterators.size() == threads) {
-                            break;
-                        }
+        List<Spliterator<T>> newSpliterators = new ArrayList<>();
+        while (resultSpliterators.size() < threads) {
+            for (Spliterator<T> spliterator : resultSpliterators) {
+                Spliterator<T> newSpliterator = spliterator.trySplit();
+                if (newSpliterator != null) {
+                    newSpliterators.add(newSpliterator);
+                    if (resultSpliterators.size() + newSpliterators.size() == threads) {
+                        break;
                     }
                 }
-                if (newSpliterators.isEmpty()) {
-                    break;
-                }
-                resultSpliterators.addAll(newSpliterators);
-                newSpliterators.clear();
             }
-            return resultSpliterators;
+            if (newSpliterators.isEmpty()) {
+                break;
+            }
+            resultSpliterators.addAll(newSpliterators);
+            newSpliterators.clear();
+        }
+        return resultSpliterators;
+    }
+
+    private static class ClassifiedListeners {
+        private final Initializer[] _initializers;
+        private final ChannelListener[] _channelListeners;
+        private final SessionListener[] _sessionListeners;
+        private final BayeuxServer.SubscriptionListener[] _subscriptionListeners;
+
+        private ClassifiedListeners(List<BayeuxServerListener> listeners) {
+            _initializers = Listeners.select(listeners, Initializer.class);
+            _channelListeners = Listeners.select(listeners, ChannelListener.class);
+            _sessionListeners = Listeners.select(listeners, SessionListener.class);
+            _subscriptionListeners = Listeners.select(listeners, BayeuxServer.SubscriptionListener.class);
         }
     }
 
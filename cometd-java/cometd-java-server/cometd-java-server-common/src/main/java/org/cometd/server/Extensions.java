@@ -0,0 +1,84 @@
+/*
+ * Copyright (c) 2008-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.cometd.server;
+
+import java.util.Collection;
+import java.util.concurrent.atomic.AtomicReference;
+import org.cometd.bayeux.Promise;
+import org.cometd.bayeux.server.BayeuxServer;
+import org.cometd.bayeux.server.ServerMessage;
+import org.cometd.bayeux.server.ServerSession;
+
+/**
+ * <p>Utility methods for server-side extensions.</p>
+ * <p>Extensions that do not override the asynchronous methods complete
+ * synchronously, so their blocking methods can be invoked directly,
+ * without the overhead of the asynchronous loop.</p>
+ */
+class Extensions {
+    private static final ClassValue<Boolean> SERVER_SYNC_INCOMING = synchronous(BayeuxServer.Extension.class,
+            "incoming", ServerSession.class, ServerMessage.Mutable.class, Promise.class);
+    private static final ClassValue<Boolean> SERVER_SYNC_OUTGOING = synchronous(BayeuxServer.Extension.class,
+            "outgoing", ServerSession.class, ServerSession.class, ServerMessage.Mutable.class, Promise.class);
+    private static final ClassValue<Boolean> SESSION_SYNC_INCOMING = synchronous(ServerSession.Extension.class,
+            "incoming", ServerSession.class, ServerMessage.Mutable.class, Promise.class);
+    private static final ClassValue<Boolean> SESSION_SYNC_OUTGOING = synchronous(ServerSession.Extension.class,
+            "outgoing", ServerSession.class, ServerSession.class, ServerMessage.Mutable.class, Promise.class);
+
+    private Extensions() {
+    }
+
+    static boolean isSynchronousIncoming(BayeuxServer.Extension extension) {
+        return SERVER_SYNC_INCOMING.get(extension.getClass());
+    }
+
+    static boolean isSynchronousOutgoing(BayeuxServer.Extension extension) {
+        return SERVER_SYNC_OUTGOING.get(extension.getClass());
+    }
+
+    static boolean isSynchronousIncoming(ServerSession.Extension extension) {
+        return SESSION_SYNC_INCOMING.get(extension.getClass());
+    }
+
+    static boolean isSynchronousOutgoing(ServerSession.Extension extension) {
+        return SESSION_SYNC_OUTGOING.get(extension.getClass());
+    }
+
+    /**
+     * <p>Replaces the snapshot with the current extensions.</p>
+     *
+     * @param snapshot the reference to the snapshot of the extensions
+     * @param extensions the current extensions
+     * @param empty an empty array of the extension type
+     * @param <E> the extension type
+     */
+    static <E> void snapshot(AtomicReference<E[]> snapshot, Collection<E> extensions, E[] empty) {
+        Listeners.classify(snapshot, () -> extensions.toArray(empty));
+    }
+
+    private static ClassValue<Boolean> synchronous(Class<?> extensionType, String methodName, Class<?>... parameterTypes) {
+        return new ClassValue<>() {
+            @Override
+            protected Boolean computeValue(Class<?> type) {
+                try {
+                    return type.getMethod(methodName, parameterTypes).getDeclaringClass() == extensionType;
+                } catch (NoSuchMethodException x) {
+                    return false;
+                }
+            }
+        };
+    }
+}
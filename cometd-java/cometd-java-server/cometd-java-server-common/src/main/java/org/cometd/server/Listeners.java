@@ -0,0 +1,79 @@
+/*
+ * Copyright (c) 2008-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.cometd.server;
+
+import java.lang.reflect.Array;
+import java.util.Collection;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+/**
+ * <p>Utility methods to partition listeners by type.</p>
+ * <p>Listeners are partitioned into immutable arrays when they are added or
+ * removed, so that the notification hot paths do not need to scan all the
+ * listeners with {@code instanceof} checks, and can skip the notification
+ * altogether when there are no listeners of a given type.</p>
+ */
+class Listeners {
+    private Listeners() {
+    }
+
+    /**
+     * @param listeners the listeners to select from
+     * @param type the listener type to select
+     * @param <T> the listener type
+     * @return a new array with the listeners of the given type, in the same order
+     */
+    static <T> T[] select(Collection<?> listeners, Class<T> type) {
+        // Work on a snapshot, as the listeners may be concurrently modified.
+        Object[] snapshot = listeners.toArray();
+        int count = 0;
+        for (Object listener : snapshot) {
+            if (type.isInstance(listener)) {
+                ++count;
+            }
+        }
+        @SuppressWarnings("unchecked")
+        T[] result = (T[])Array.newInstance(type, count);
+        if (count > 0) {
+            int index = 0;
+            for (Object listener : snapshot) {
+                if (type.isInstance(listener)) {
+                    result[index++] = type.cast(listener);
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * <p>Replaces the classified listeners with the ones returned by the given classifier,
+     * retrying if another thread classified the listeners concurrently, so that the last
+     * classification sees all the modifications.</p>
+     *
+     * @param classified the reference to the classified listeners
+     * @param classifier the function that classifies the current listeners
+     * @param <C> the classified listeners type
+     */
+    static <C> void classify(AtomicReference<C> classified, Supplier<C> classifier) {
+        while (true) {
+            C current = classified.get();
+            if (classified.compareAndSet(current, classifier.get())) {
+                return;
+            }
+        }
+    }
+}
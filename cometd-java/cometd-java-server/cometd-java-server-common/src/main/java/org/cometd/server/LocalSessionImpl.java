@@ -38,7 +38,7 @@ public class LocalSessionImpl extends AbstractClientSession implements LocalSess
     private final Queue<ServerMessage.Mutable> _queue = new ConcurrentLinkedQueue<>();
     private final BayeuxServerImpl _bayeux;
     private final String _idHint;
-    private ServerSessionImpl _session;
+    private volatile ServerSessionImpl _session;
 
     public LocalSessionImpl(BayeuxServerImpl bayeux, String idHint) {
         _bayeux = bayeux;
@@ -101,7 +101,6 @@ public class LocalSessionImpl extends AbstractClientSession implements LocalSess
 
         doSend(session, hsMessage, Promise.from(hsReply -> {
             if (hsReply != null && hsReply.isSuccessful()) {
-                _session = session;
                 ServerMessage.Mutable cnMessage = newMessage();
                 cnMessage.setId(newMessageId());
                 cnMessage.setChannel(Channel.META_CONNECT);
@@ -205,6 +204,11 @@ public class LocalSessionImpl extends AbstractClientSession implements LocalSess
                 _bayeux.handle(session, message, Promise.from(r ->
                         _bayeux.extendReply(session, _session, r, Promise.from(reply -> {
                             if (reply != null) {
+                                if (_session == null && reply.isSuccessful() && Channel.META_HANDSHAKE.equals(reply.getChannel())) {
+                                    // The messages may be processed asynchronously, so the
+                                    // session must be set before the handshake callbacks run.
+                                    _session = session;
+                                }
                                 receive(reply, Promise.from(y -> promise.succeed(reply), promise::fail));
                             } else {
                                 promise.succeed(null);
@@ -0,0 +1,166 @@
+/*
+ * Copyright (c) 2008-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.cometd.server;
+
+import java.util.AbstractQueue;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * <p>An unbounded, multi-producer single-consumer, linked queue.</p>
+ * <p>Producers {@link #offer(Object) offer} elements without locking,
+ * while consumer operations such as {@link #poll()}, {@link #drainTo(Collection)}
+ * and iteration must be serialized externally by the caller.</p>
+ * <p>Removals via the iterator only mark the element as removed, so that
+ * they do not race with the producers that are appending to the tail.</p>
+ *
+ * @param <T> the type of the elements
+ */
+class MPSCQueue<T> extends AbstractQueue<T> {
+    private final AtomicInteger _size = new AtomicInteger();
+    private final AtomicReference<Node<T>> _tail;
+    private Node<T> _head;
+
+    MPSCQueue() {
+        Node<T> stub = new Node<>(null);
+        _head = stub;
+        _tail = new AtomicReference<>(stub);
+    }
+
+    @Override
+    public boolean offer(T item) {
+        Node<T> node = new Node<>(Objects.requireNonNull(item));
+        // Increment before linking, so that the size never goes negative.
+        _size.incrementAndGet();
+        Node<T> previous = _tail.getAndSet(node);
+        previous._next = node;
+        return true;
+    }
+
+    @Override
+    public T poll() {
+        while (true) {
+            Node<T> next = _head._next;
+            // A producer may have swapped the tail but not linked
+            // the node yet; the element will be seen by the next poll.
+            if (next == null) {
+                return null;
+            }
+            T item = next._item;
+            next._item = null;
+            _head = next;
+            if (item != null) {
+                _size.decrementAndGet();
+                return item;
+            }
+        }
+    }
+
+    @Override
+    public T peek() {
+        Node<T> node = _head._next;
+        while (node != null) {
+            T item = node._item;
+            if (item != null) {
+                return item;
+            }
+            node = node._next;
+        }
+        return null;
+    }
+
+    @Override
+    public int size() {
+        return _size.get();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    /**
+     * <p>Moves all the elements of this queue to the given collection.</p>
+     *
+     * @param collection the collection to add the elements to
+     * @return the number of elements moved
+     */
+    public int drainTo(Collection<? super T> collection) {
+        int count = 0;
+        T item;
+        while ((item = poll()) != null) {
+            collection.add(item);
+            ++count;
+        }
+        return count;
+    }
+
+    @Override
+    public Iterator<T> iterator() {
+        return new Iterator<>() {
+            private Node<T> _next = advance(_head);
+            private Node<T> _last;
+
+            @Override
+            public boolean hasNext() {
+                return _next != null;
+            }
+
+            @Override
+            public T next() {
+                Node<T> node = _next;
+                if (node == null) {
+                    throw new NoSuchElementException();
+                }
+                _last = node;
+                _next = advance(node);
+                return node._item;
+            }
+
+            @Override
+            public void remove() {
+                Node<T> node = _last;
+                if (node == null || node._item == null) {
+                    throw new IllegalStateException();
+                }
+                node._item = null;
+                _size.decrementAndGet();
+                _last = null;
+            }
+
+            private Node<T> advance(Node<T> node) {
+                Node<T> next = node._next;
+                while (next != null && next._item == null) {
+                    next = next._next;
+                }
+                return next;
+            }
+        };
+    }
+
+    private static class Node<T> {
+        private T _item;
+        private volatile Node<T> _next;
+
+        private Node(T item) {
+            _item = item;
+        }
+    }
+}
@@ -0,0 +1,106 @@
+/*
+ * Copyright (c) 2008-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.cometd.server;
+
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import org.eclipse.jetty.util.thread.AutoLock;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * <p>An {@link Executor} that runs the tasks one at a time, in the order
+ * they are submitted, using the threads of another {@link Executor}.</p>
+ * <p>Many instances can share the same {@link Executor}, so that tasks
+ * submitted to different instances run concurrently; after running a
+ * number of tasks, the thread is yielded back to the {@link Executor},
+ * so that a busy instance does not starve the others.</p>
+ */
+class SerialExecutor implements Executor {
+    private static final Logger LOGGER = LoggerFactory.getLogger(SerialExecutor.class);
+    private static final int MAX_TASKS_PER_RUN = 64;
+
+    private final AutoLock lock = new AutoLock();
+    private final Queue<Runnable> tasks = new ArrayDeque<>();
+    private final Executor executor;
+    private boolean running;
+
+    SerialExecutor(Executor executor) {
+        this.executor = executor;
+    }
+
+    @Override
+    public void execute(Runnable task) {
+        try (AutoLock l = lock.lock()) {
+            tasks.offer(task);
+            if (running) {
+                return;
+            }
+            running = true;
+        }
+        if (!dispatch()) {
+            run();
+        }
+    }
+
+    private boolean dispatch() {
+        try {
+            executor.execute(this::run);
+            return true;
+        } catch (RejectedExecutionException x) {
+            if (LOGGER.isDebugEnabled()) {
+                LOGGER.debug("Could not execute tasks of {}, running them in the caller thread", this, x);
+            }
+            return false;
+        }
+    }
+
+    private void run() {
+        int count = 0;
+        while (true) {
+            if (++count > MAX_TASKS_PER_RUN) {
+                count = 0;
+                if (dispatch()) {
+                    return;
+                }
+            }
+            Runnable task;
+            try (AutoLock l = lock.lock()) {
+                task = tasks.poll();
+                if (task == null) {
+                    running = false;
+                    return;
+                }
+            }
+            try {
+                task.run();
+            } catch (Throwable x) {
+                LOGGER.info("Exception while running task " + task, x);
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        int size;
+        try (AutoLock l = lock.lock()) {
+            size = tasks.size();
+        }
+        return String.format("%s@%x[tasks=%d,executor=%s]", getClass().getSimpleName(), hashCode(), size, executor);
+    }
+}
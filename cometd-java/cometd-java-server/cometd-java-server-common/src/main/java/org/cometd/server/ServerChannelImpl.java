@@ -26,6 +26,7 @@ import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 import org.cometd.bayeux.ChannelId;
 import org.cometd.bayeux.Promise;
 import org.cometd.bayeux.Session;
@@ -48,9 +49,11 @@ public class ServerChannelImpl implements ServerChannel, Dumpable {
     private final AttributesMap _attributes = new AttributesMap();
     private final Set<ServerSession> _subscribers = Collections.newSetFromMap(new ConcurrentHashMap<>());
     private final List<ServerChannelListener> _listeners = new CopyOnWriteArrayList<>();
+    private final AtomicReference<ClassifiedListeners> _classified = new AtomicReference<>(new ClassifiedListeners(List.of()));
     private final List<Authorizer> _authorizers = new CopyOnWriteArrayList<>();
     private final CountDownLatch _initialized = new CountDownLatch(1);
     private final AtomicInteger _sweeperPasses = new AtomicInteger();
+    private final AtomicInteger _remoteSubscribers = new AtomicInteger();
     private boolean _lazy;
     private long _lazyTimeout = -1;
     private boolean _persistent;
@@ -111,15 +114,19 @@ public class ServerChannelImpl implements ServerChannel, Dumpable {
 
         if (session.subscribe(this)) {
             if (_subscribers.add(session)) {
-                for (ServerChannelListener listener : _listeners) {
-                    if (listener instanceof SubscriptionListener) {
-                        notifySubscribed((SubscriptionListener)listener, session, this, message);
-                    }
+                if (!session.isLocalSession()) {
+                    _remoteSubscribers.incrementAndGet();
                 }
-                for (BayeuxServer.BayeuxServerListener listener : _bayeux.getListeners()) {
-                    if (listener instanceof BayeuxServer.SubscriptionListener) {
-                        notifySubscribed((BayeuxServer.SubscriptionListener)listener, session, this, message);
-                    }
+                // Only the first subscriber indexes the channel.
+                SubscriptionTrie subscriptions = _bayeux.subscriptions();
+                if (!subscriptions.contains(this)) {
+                    subscriptions.add(this);
+                }
+                for (SubscriptionListener listener : _classified.get()._subscriptionListeners) {
+                    notifySubscribed(listener, session, this, message);
+                }
+                for (BayeuxServer.SubscriptionListener listener : _bayeux.subscriptionListeners()) {
+                    notifySubscribed(listener, session, this, message);
                 }
             }
             return true;
@@ -163,16 +170,18 @@ public class ServerChannelImpl implements ServerChannel, Dumpable {
         }
 
         if (_subscribers.remove(session)) {
+            if (!session.isLocalSession()) {
+                _remoteSubscribers.decrementAndGet();
+            }
+            if (_subscribers.isEmpty()) {
+                _bayeux.subscriptions().remove(this);
+            }
             session.unsubscribedFrom(this);
-            for (ServerChannelListener listener : _listeners) {
-                if (listener instanceof SubscriptionListener) {
-                    notifyUnsubscribed((SubscriptionListener)listener, session, this, message);
-                }
+            for (SubscriptionListener listener : _classified.get()._subscriptionListeners) {
+                notifyUnsubscribed(listener, session, this, message);
             }
-            for (BayeuxServer.BayeuxServerListener listener : _bayeux.getListeners()) {
-                if (listener instanceof BayeuxServer.SubscriptionListener) {
-                    notifyUnsubscribed((BayeuxServer.SubscriptionListener)listener, session, this, message);
-                }
+            for (BayeuxServer.SubscriptionListener listener : _bayeux.subscriptionListeners()) {
+                notifyUnsubscribed(listener, session, this, message);
             }
         }
 
@@ -204,6 +213,13 @@ public class ServerChannelImpl implements ServerChannel, Dumpable {
         return _subscribers;
     }
 
+    /**
+     * @return whether this channel has subscribers that are not local sessions
+     */
+    boolean hasRemoteSubscribers() {
+        return _remoteSubscribers.get() > 0;
+    }
+
     @Override
     public boolean isBroadcast() {
         return !isMeta() && !isService();
@@ -258,6 +274,7 @@ public class ServerChannelImpl implements ServerChannel, Dumpable {
     public void addListener(ServerChannelListener listener) {
         resetSweeperPasses();
         _listeners.add(listener);
+        classifyListeners();
     }
 
     @Override
@@ -273,6 +290,11 @@ public class ServerChannelImpl implements ServerChannel, Dumpable {
     @Override
     public void removeListener(ServerChannelListener listener) {
         _listeners.remove(listener);
+        classifyListeners();
+    }
+
+    private void classifyListeners() {
+        Listeners.classify(_classified, () -> new ClassifiedListeners(_listeners));
     }
 
     @Override
@@ -280,8 +302,21 @@ public class ServerChannelImpl implements ServerChannel, Dumpable {
         return List.copyOf(listeners());
     }
 
+    /**
+     * <p>Returns an unmodifiable, live view of the listeners of this channel.</p>
+     * <p>Listeners must be added and removed via {@link #addListener(ServerChannelListener)}
+     * and {@link #removeListener(ServerChannelListener)}, so that they are classified
+     * for the notifications; modifying the returned list throws
+     * {@link UnsupportedOperationException}.</p>
+     *
+     * @return an unmodifiable view of the listeners of this channel
+     */
     protected List<ServerChannelListener> listeners() {
-        return _listeners;
+        return Collections.unmodifiableList(_listeners);
+    }
+
+    MessageListener[] messageListeners() {
+        return _classified.get()._messageListeners;
     }
 
     @Override
@@ -371,9 +406,12 @@ public class ServerChannelImpl implements ServerChannel, Dumpable {
                 ((ServerSessionImpl)subscriber).unsubscribedFrom(this);
             }
             _subscribers.clear();
+            _remoteSubscribers.set(0);
+            _bayeux.subscriptions().remove(this);
         }
 
         _listeners.clear();
+        classifyListeners();
     }
 
     @Override
@@ -440,4 +478,14 @@ public class ServerChannelImpl implements ServerChannel, Dumpable {
     public String toString() {
         return _id.toString();
     }
+
+    private static class ClassifiedListeners {
+        private final MessageListener[] _messageListeners;
+        private final SubscriptionListener[] _subscriptionListeners;
+
+        private ClassifiedListeners(List<ServerChannelListener> listeners) {
+            _messageListeners = Listeners.select(listeners, MessageListener.class);
+            _subscriptionListeners = Listeners.select(listeners, SubscriptionListener.class);
+        }
+    }
 }
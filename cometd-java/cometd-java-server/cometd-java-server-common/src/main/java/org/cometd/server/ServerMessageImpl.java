@@ -29,10 +29,11 @@ public class ServerMessageImpl extends HashMapMessage implements ServerMessage.M
     private static final long serialVersionUID = 6412048662640296067L;
 
     private boolean _lazy;
-    private String _json;
+    private boolean _frozen;
+    private volatile String _json;
     private transient ServerMessage.Mutable _associated;
     private transient boolean _handled;
-    private transient byte[] _jsonBytes;
+    private transient volatile byte[] _jsonBytes;
     private transient BayeuxContext _context;
     private transient ServerTransport _transport;
 
@@ -84,14 +85,44 @@ public class ServerMessageImpl extends HashMapMessage implements ServerMessage.M
 
     protected void freeze(String json) {
         _json = json;
+        _frozen = true;
         // A message can be queued to different sessions, each with
         // different transports. WebSocket transports write only strings, not
         // bytes so these will be wasted, but only if all transports write strings.
         _jsonBytes = json.getBytes(StandardCharsets.UTF_8);
     }
 
+    /**
+     * <p>Freezes this message, generating its JSON representation with the
+     * given {@link JSONContextServer} if it has not been generated yet.</p>
+     * <p>The JSON is generated at most once, also when this message is
+     * delivered concurrently to many remote sessions.</p>
+     *
+     * @param jsonContext the JSON context used to generate the JSON
+     * @see #freeze()
+     */
+    protected void freeze(JSONContextServer jsonContext) {
+        if (_json == null) {
+            synchronized (this) {
+                if (_json == null) {
+                    freeze(jsonContext.generate(this));
+                }
+            }
+        }
+    }
+
+    /**
+     * <p>Freezes this message without generating its JSON representation,
+     * for messages that are delivered only to local sessions.</p>
+     * <p>The JSON is generated by {@link #freeze(JSONContextServer)} if
+     * this message is later delivered to a remote session.</p>
+     */
+    protected void freeze() {
+        _frozen = true;
+    }
+
     protected boolean isFrozen() {
-        return _json != null;
+        return _frozen;
     }
 
     public String getJSON() {
@@ -99,7 +130,29 @@ public class ServerMessageImpl extends HashMapMessage implements ServerMessage.M
     }
 
     public byte[] getJSONBytes() {
-        return _jsonBytes;
+        byte[] bytes = _jsonBytes;
+        if (bytes == null) {
+            // The bytes are not serialized, so they
+            // may need to be recomputed from the JSON.
+            String json = _json;
+            if (json != null) {
+                bytes = _jsonBytes = json.getBytes(StandardCharsets.UTF_8);
+            }
+        }
+        return bytes;
+    }
+
+    /**
+     * <p>Returns the JSON representation of this message wrapped in a JSON array,
+     * that is the frame that transports use to send this message alone.</p>
+     * <p>The frame is not cached, so that a frozen message does not hold
+     * more copies of its JSON than the string and its UTF-8 bytes.</p>
+     *
+     * @return the JSON frame for this message, or null if this message is not frozen
+     */
+    public String getJSONFrame() {
+        String json = _json;
+        return json == null ? null : "[" + json + "]";
     }
 
     @Override
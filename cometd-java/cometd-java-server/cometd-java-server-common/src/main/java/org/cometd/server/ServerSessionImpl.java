@@ -18,6 +18,7 @@ package org.cometd.server;
 import java.io.IOException;
 import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
@@ -26,8 +27,10 @@ import java.util.Queue;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 import org.cometd.bayeux.Channel;
@@ -58,9 +61,14 @@ public class ServerSessionImpl implements ServerSession, Dumpable {
     private final BayeuxServerImpl _bayeux;
     private final String _id;
     private final List<ServerSessionListener> _listeners = new CopyOnWriteArrayList<>();
+    private final AtomicReference<ClassifiedListeners> _classified = new AtomicReference<>(new ClassifiedListeners(List.of()));
     private final List<Extension> _extensions = new CopyOnWriteArrayList<>();
-    private final Queue<ServerMessage> _queue = new ArrayDeque<>();
+    private final AtomicReference<Extension[]> _extensionsSnapshot = new AtomicReference<>(new Extension[0]);
+    private final Queue<ServerMessage> _queue;
+    private final boolean _lockFreeQueue;
     private final LocalSessionImpl _localSession;
+    private final Executor _callbackExecutor;
+    private final Executor _actor;
     private final AttributesMap _attributes = new AttributesMap();
     private final Set<ServerChannelImpl> subscriptions = Collections.newSetFromMap(new ConcurrentHashMap<>());
     private final LazyTask _lazyTask = new LazyTask();
@@ -68,7 +76,7 @@ public class ServerSessionImpl implements ServerSession, Dumpable {
     private ServerTransport _transport;
     private ServerTransport _advisedTransport;
     private Object _endPoint;
-    private State _state = State.NEW;
+    private volatile State _state = State.NEW;
     private int _maxQueue = -1;
     private long _transientTimeout = -1;
     private long _transientInterval = -1;
@@ -78,11 +86,11 @@ public class ServerSessionImpl implements ServerSession, Dumpable {
     private long _maxProcessing = -1;
     private long _maxLazy = -1;
     private boolean _metaConnectDelivery;
-    private int _batch;
+    private volatile int _batch;
     private String _userAgent;
     private long _messageTime;
     private long _expireTime;
-    private boolean _nonLazyMessages;
+    private volatile boolean _nonLazyMessages;
     private boolean _broadcastToPublisher;
     private boolean _allowMessageDeliveryDuringHandshake;
     private String _browserId;
@@ -113,6 +121,12 @@ public class ServerSessionImpl implements ServerSession, Dumpable {
         _id = id.toString();
 
         _broadcastToPublisher = _bayeux.isBroadcastToPublisher();
+        _lockFreeQueue = _bayeux.isLockFreeSessionQueue();
+        _queue = _lockFreeQueue ? new MPSCQueue<>() : new ArrayDeque<>();
+        Executor callbackExecutor = _bayeux.getCallbackExecutor();
+        _callbackExecutor = callbackExecutor == null ? null : new SerialExecutor(callbackExecutor);
+        Executor actorExecutor = _bayeux.getSessionActorExecutor();
+        _actor = actorExecutor == null ? null : new SerialExecutor(actorExecutor);
     }
 
     public BayeuxServerImpl getBayeuxServer() {
@@ -195,11 +209,17 @@ public class ServerSessionImpl implements ServerSession, Dumpable {
     @Override
     public void addExtension(Extension extension) {
         _extensions.add(extension);
+        snapshotExtensions();
     }
 
     @Override
     public void removeExtension(Extension extension) {
         _extensions.remove(extension);
+        snapshotExtensions();
+    }
+
+    private void snapshotExtensions() {
+        Extensions.snapshot(_extensionsSnapshot, _extensions, new Extension[0]);
     }
 
     @Override
@@ -252,26 +272,43 @@ public class ServerSessionImpl implements ServerSession, Dumpable {
                 if (message == null) {
                     promise.succeed(false);
                 } else {
-                    _bayeux.freeze(message);
-                    AsyncFoldLeft.run(_listeners, true, (result, listener, loop) -> {
-                        if (listener instanceof MessageListener) {
-                            notifyOnMessage((MessageListener)listener, sender, message, _bayeux.resolveLoop(loop));
-                        } else {
-                            loop.proceed(result);
-                        }
-                    }, Promise.from(b -> {
-                        if (b) {
-                            deliver2(sender, message, promise);
-                        } else {
-                            promise.succeed(false);
-                        }
-                    }, promise::fail));
+                    if (isLocalSession() && message instanceof ServerMessageImpl) {
+                        ((ServerMessageImpl)message).freeze();
+                    } else {
+                        _bayeux.freeze(message);
+                    }
+                    MessageListener[] messageListeners = _classified.get()._messageListeners;
+                    if (messageListeners.length == 0) {
+                        deliver2(sender, message, promise);
+                    } else {
+                        AsyncFoldLeft.run(messageListeners, true, (result, listener, loop) ->
+                                notifyOnMessage(listener, sender, message, _bayeux.resolveLoop(loop)), Promise.from(b -> {
+                            if (b) {
+                                deliver2(sender, message, promise);
+                            } else {
+                                promise.succeed(false);
+                            }
+                        }, promise::fail));
+                    }
                 }
             }, promise::fail));
         }
     }
 
     private void deliver2(ServerSession sender, ServerMessage.Mutable message, Promise<Boolean> promise) {
+        if (_actor == null) {
+            deliver3(sender, message, promise);
+        } else {
+            // Enqueue in the actor, so that the messages delivered to
+            // this session are serialized with its incoming messages.
+            _actor.execute(() -> deliver3(sender, message, Promise.noop()));
+            // Complete when the message is handed off, so that a message
+            // delivered to many sessions does not wait for each actor.
+            promise.succeed(true);
+        }
+    }
+
+    private void deliver3(ServerSession sender, ServerMessage.Mutable message, Promise<Boolean> promise) {
         Boolean wakeup = enqueueMessage(sender, message);
         if (wakeup == null) {
             promise.succeed(false);
@@ -288,6 +325,9 @@ public class ServerSessionImpl implements ServerSession, Dumpable {
     }
 
     private Boolean enqueueMessage(ServerSession sender, ServerMessage.Mutable message) {
+        if (_lockFreeQueue) {
+            return enqueueMessageLockFree(sender, message);
+        }
         lock.lock();
         try {
             if (isTerminated() && !ChannelId.isMeta(message.getChannel())) {
@@ -296,21 +336,18 @@ public class ServerSessionImpl implements ServerSession, Dumpable {
                 }
                 return null;
             }
-            for (ServerSessionListener listener : _listeners) {
-                if (listener instanceof QueueMaxedListener) {
-                    int maxQueueSize = _maxQueue;
-                    if (maxQueueSize > 0 && _queue.size() >= maxQueueSize) {
-                        if (!notifyQueueMaxed((QueueMaxedListener)listener, this, _queue, sender, message)) {
-                            return null;
-                        }
+            ClassifiedListeners classified = _classified.get();
+            for (QueueMaxedListener listener : classified._queueMaxedListeners) {
+                int maxQueueSize = _maxQueue;
+                if (maxQueueSize > 0 && _queue.size() >= maxQueueSize) {
+                    if (!notifyQueueMaxed(listener, this, _queue, sender, message)) {
+                        return null;
                     }
                 }
             }
             addMessage(message);
-            for (ServerSessionListener listener : _listeners) {
-                if (listener instanceof QueueListener) {
-                    notifyQueued((QueueListener)listener, sender, message);
-                }
+            for (QueueListener listener : classified._queueListeners) {
+                notifyQueued(listener, sender, message);
             }
             return _batch == 0;
         } finally {
@@ -318,8 +355,85 @@ public class ServerSessionImpl implements ServerSession, Dumpable {
         }
     }
 
+    private Boolean enqueueMessageLockFree(ServerSession sender, ServerMessage.Mutable message) {
+        State state = _state;
+        if ((state == State.DISCONNECTED || state == State.EXPIRED) && !ChannelId.isMeta(message.getChannel())) {
+            if (_logger.isDebugEnabled()) {
+                _logger.debug("Dropping message {} for terminated {}", message, this);
+            }
+            return null;
+        }
+        ClassifiedListeners classified = _classified.get();
+        int maxQueueSize = _maxQueue;
+        boolean maxable = maxQueueSize > 0 && classified._queueMaxedListeners.length > 0;
+        if (maxable || classified._queueListeners.length > 0 || classified._deQueueListeners.length > 0) {
+            // The size check and the enqueue must be atomic, otherwise
+            // concurrent producers could exceed the max queue size.
+            // Listeners may also modify the queue, and DeQueueListeners must
+            // not see a message before QueueListeners have been notified of it,
+            // so the listeners are serialized with the consumer.
+            lock.lock();
+            try {
+                if (maxable) {
+                    for (QueueMaxedListener listener : classified._queueMaxedListeners) {
+                        if (_queue.size() >= maxQueueSize) {
+                            if (!notifyQueueMaxed(listener, this, _queue, sender, message)) {
+                                return null;
+                            }
+                        }
+                    }
+                }
+                addMessage(message);
+                for (QueueListener listener : classified._queueListeners) {
+                    notifyQueued(listener, sender, message);
+                }
+            } finally {
+                lock.unlock();
+            }
+        } else {
+            addMessage(message);
+        }
+        return _batch == 0;
+    }
+
     protected void extendOutgoing(ServerSession sender, ServerMessage.Mutable message, Promise<ServerMessage.Mutable> promise) {
-        AsyncFoldLeft.reverseRun(_extensions, message, (result, extension, loop) -> {
+        // Invoke the synchronous extensions in a plain loop, and fall
+        // back to the asynchronous loop at the first asynchronous one.
+        Extension[] extensions = _extensionsSnapshot.get();
+        ServerMessage.Mutable result = message;
+        for (int i = extensions.length - 1; i >= 0; --i) {
+            Extension extension = extensions[i];
+            if (!Extensions.isSynchronousOutgoing(extension)) {
+                extendOutgoing(sender, result, Arrays.asList(extensions).subList(0, i + 1), promise);
+                return;
+            }
+            try {
+                if (result.isMeta()) {
+                    if (!extension.sendMeta(sender, this, result)) {
+                        promise.succeed(null);
+                        return;
+                    }
+                } else {
+                    ServerMessage sent = extension.send(sender, this, result);
+                    if (sent == null) {
+                        promise.succeed(null);
+                        return;
+                    }
+                    if (sent instanceof ServerMessage.Mutable) {
+                        result = (ServerMessage.Mutable)sent;
+                    } else {
+                        _logger.info("Exception reported by extension " + extension, new IllegalArgumentException());
+                    }
+                }
+            } catch (Throwable x) {
+                _logger.info("Exception thrown by extension " + extension, x);
+            }
+        }
+        promise.succeed(result);
+    }
+
+    private void extendOutgoing(ServerSession sender, ServerMessage.Mutable message, List<Extension> extensions, Promise<ServerMessage.Mutable> promise) {
+        AsyncFoldLeft.reverseRun(extensions, message, (result, extension, loop) -> {
             try {
                 extension.outgoing(sender, this, result, Promise.from(m -> {
                     if (m != null) {
@@ -459,6 +573,7 @@ public class ServerSessionImpl implements ServerSession, Dumpable {
     @Override
     public void addListener(ServerSessionListener listener) {
         _listeners.add(listener);
+        classifyListeners();
     }
 
     @Override
@@ -484,6 +599,15 @@ public class ServerSessionImpl implements ServerSession, Dumpable {
     }
 
     protected void addMessage(ServerMessage message) {
+        if (_lockFreeQueue) {
+            // Offer before setting the flag, as takeQueue()
+            // clears the flag before draining the queue.
+            _queue.offer(message);
+            if (!message.isLazy()) {
+                _nonLazyMessages = true;
+            }
+            return;
+        }
         lock.lock();
         try {
             _queue.add(message);
@@ -494,25 +618,52 @@ public class ServerSessionImpl implements ServerSession, Dumpable {
     }
 
     public List<ServerMessage> takeQueue(List<ServerMessage.Mutable> replies) {
-        List<ServerMessage> copy = List.of();
+        return takeQueue(replies, null);
+    }
+
+    /**
+     * <p>Takes the queued messages, adding them to the given batch.</p>
+     * <p>The batch is owned by the caller, that may clear it and reuse it
+     * for the next call, so that no list is allocated for every call.</p>
+     *
+     * @param replies the replies to send along with the queued messages
+     * @param batch the list to add the queued messages to, or null to
+     * allocate a new list if there are queued messages
+     * @return the given batch, or a new list if the given batch is null
+     */
+    public List<ServerMessage> takeQueue(List<ServerMessage.Mutable> replies, List<ServerMessage> batch) {
+        List<ServerMessage> copy = batch == null ? List.of() : batch;
         lock.lock();
         try {
             // Always call listeners, even if the queue is
             // empty since they may add messages to the queue.
-            for (ServerSessionListener listener : _listeners) {
-                if (listener instanceof DeQueueListener) {
-                    notifyDeQueue((DeQueueListener)listener, this, _queue, replies);
-                }
+            for (DeQueueListener listener : _classified.get()._deQueueListeners) {
+                notifyDeQueue(listener, this, _queue, replies);
             }
 
-            int size = _queue.size();
-            if (size > 0) {
-                copy = new ArrayList<>(size);
-                copy.addAll(_queue);
-                _queue.clear();
-            }
+            if (_lockFreeQueue) {
+                // Producers add messages concurrently, so clear
+                // the flag before draining, not after.
+                _nonLazyMessages = false;
+                int size = _queue.size();
+                if (size > 0) {
+                    if (batch == null) {
+                        copy = new ArrayList<>(size);
+                    }
+                    ((MPSCQueue<ServerMessage>)_queue).drainTo(copy);
+                }
+            } else {
+                int size = _queue.size();
+                if (size > 0) {
+                    if (batch == null) {
+                        copy = new ArrayList<>(size);
+                    }
+                    copy.addAll(_queue);
+                    _queue.clear();
+                }
 
-            _nonLazyMessages = false;
+                _nonLazyMessages = false;
+            }
         } finally {
             lock.unlock();
         }
@@ -528,24 +679,25 @@ public class ServerSessionImpl implements ServerSession, Dumpable {
     }
 
     public void notifySuspended(ServerMessage message, long timeout) {
-        for (ServerSessionListener listener : _listeners) {
-            if (listener instanceof ServerSession.HeartBeatListener) {
-                ((HeartBeatListener)listener).onSuspended(this, message, timeout);
-            }
+        for (HeartBeatListener listener : _classified.get()._heartBeatListeners) {
+            listener.onSuspended(this, message, timeout);
         }
     }
 
     public void notifyResumed(ServerMessage message, boolean timeout) {
-        for (ServerSessionListener listener : _listeners) {
-            if (listener instanceof ServerSession.HeartBeatListener) {
-                ((HeartBeatListener)listener).onResumed(this, message, timeout);
-            }
+        for (HeartBeatListener listener : _classified.get()._heartBeatListeners) {
+            listener.onResumed(this, message, timeout);
         }
     }
 
     @Override
     public void removeListener(ServerSessionListener listener) {
         _listeners.remove(listener);
+        classifyListeners();
+    }
+
+    private void classifyListeners() {
+        Listeners.classify(_classified, () -> new ClassifiedListeners(_listeners));
     }
 
     public List<ServerSessionListener> getListeners() {
@@ -626,14 +778,42 @@ public class ServerSessionImpl implements ServerSession, Dumpable {
             scheduler.schedule();
         } else {
             // Local delivery.
-            if (hasNonLazyMessages()) {
-                for (ServerMessage msg : takeQueue(List.of())) {
-                    _localSession.receive(new HashMapMessage(msg), Promise.noop());
-                }
+            if (_callbackExecutor == null) {
+                flushLocal();
+            } else {
+                // Take the queue in the callback, so that
+                // concurrent flushes do not reorder messages.
+                _callbackExecutor.execute(this::flushLocal);
+            }
+        }
+    }
+
+    private void flushLocal() {
+        if (hasNonLazyMessages()) {
+            for (ServerMessage msg : takeQueue(List.of())) {
+                _localSession.receive(new HashMapMessage(msg), Promise.noop());
             }
         }
     }
 
+    /**
+     * @return the executor that invokes the callbacks in order for this session,
+     * or {@code null} if they are invoked by the thread that processes the message
+     * @see BayeuxServerImpl#getCallbackExecutor()
+     */
+    Executor getCallbackExecutor() {
+        return _callbackExecutor;
+    }
+
+    /**
+     * @return the executor that processes, one at a time, the incoming messages
+     * of this session and the messages delivered to it, or {@code null}
+     * @see BayeuxServerImpl#getSessionActorExecutor()
+     */
+    Executor getActor() {
+        return _actor;
+    }
+
     private void flushLazy(ServerMessage message) {
         lock.lock();
         try {
@@ -811,7 +991,32 @@ public class ServerSessionImpl implements ServerSession, Dumpable {
     }
 
     protected void extendIncoming(ServerMessage.Mutable message, Promise<Boolean> promise) {
-        AsyncFoldLeft.run(_extensions, true, (result, extension, loop) -> {
+        // Invoke the synchronous extensions in a plain loop, and fall
+        // back to the asynchronous loop at the first asynchronous one.
+        Extension[] extensions = _extensionsSnapshot.get();
+        for (int i = 0; i < extensions.length; ++i) {
+            Extension extension = extensions[i];
+            if (!Extensions.isSynchronousIncoming(extension)) {
+                extendIncoming(message, Arrays.asList(extensions).subList(i, extensions.length), promise);
+                return;
+            }
+            boolean result;
+            try {
+                result = message.isMeta() ? extension.rcvMeta(this, message) : extension.rcv(this, message);
+            } catch (Throwable x) {
+                _logger.info("Exception thrown by extension " + extension, x);
+                result = true;
+            }
+            if (!result) {
+                promise.succeed(false);
+                return;
+            }
+        }
+        promise.succeed(true);
+    }
+
+    private void extendIncoming(ServerMessage.Mutable message, List<Extension> extensions, Promise<Boolean> promise) {
+        AsyncFoldLeft.run(extensions, true, (result, extension, loop) -> {
             if (result) {
                 try {
                     extension.incoming(this, message, Promise.from(loop::proceed, failure -> {
@@ -920,10 +1125,8 @@ public class ServerSessionImpl implements ServerSession, Dumpable {
     }
 
     void added(ServerMessage message) {
-        for (ServerSessionListener listener : _listeners) {
-            if (listener instanceof AddedListener) {
-                notifyAdded((AddedListener)listener, this, message);
-            }
+        for (AddedListener listener : _classified.get()._addedListeners) {
+            notifyAdded(listener, this, message);
         }
     }
 
@@ -946,10 +1149,8 @@ public class ServerSessionImpl implements ServerSession, Dumpable {
                 channel.unsubscribe(this);
             }
 
-            for (ServerSessionListener listener : _listeners) {
-                if (listener instanceof RemovedListener) {
-                    notifyRemoved((RemovedListener)listener, this, message, timeout);
-                }
+            for (RemovedListener listener : _classified.get()._removedListeners) {
+                notifyRemoved(listener, this, message, timeout);
             }
         }
         return result;
@@ -1134,6 +1335,26 @@ public class ServerSessionImpl implements ServerSession, Dumpable {
         }
     }
 
+    private static class ClassifiedListeners {
+        private final MessageListener[] _messageListeners;
+        private final QueueMaxedListener[] _queueMaxedListeners;
+        private final QueueListener[] _queueListeners;
+        private final DeQueueListener[] _deQueueListeners;
+        private final HeartBeatListener[] _heartBeatListeners;
+        private final AddedListener[] _addedListeners;
+        private final RemovedListener[] _removedListeners;
+
+        private ClassifiedListeners(List<ServerSessionListener> listeners) {
+            _messageListeners = Listeners.select(listeners, MessageListener.class);
+            _queueMaxedListeners = Listeners.select(listeners, QueueMaxedListener.class);
+            _queueListeners = Listeners.select(listeners, QueueListener.class);
+            _deQueueListeners = Listeners.select(listeners, DeQueueListener.class);
+            _heartBeatListeners = Listeners.select(listeners, HeartBeatListener.class);
+            _addedListeners = Listeners.select(listeners, AddedListener.class);
+            _removedListeners = Listeners.select(listeners, RemovedListener.class);
+        }
+    }
+
     private enum State {
         NEW, HANDSHAKEN, CONNECTED, DISCONNECTED, EXPIRED
     }
@@ -0,0 +1,164 @@
+/*
+ * Copyright (c) 2008-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.cometd.server;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import org.cometd.bayeux.ChannelId;
+import org.eclipse.jetty.util.thread.AutoLock;
+
+/**
+ * <p>A trie of channel segments that indexes the broadcast channels that have subscribers.</p>
+ * <p>The trie is updated when a channel gains its first subscriber or loses its last
+ * subscriber, and it is read for every broadcast publish to resolve, in a single walk,
+ * the channels that match the message channel: the wild channels and the channel itself.</p>
+ * <p>Updates are serialized, while reads are lock-free.</p>
+ */
+class SubscriptionTrie {
+    private final AutoLock _lock = new AutoLock();
+    private final Node _root = new Node();
+
+    /**
+     * <p>Indexes the given channel, that has just gained a subscriber.</p>
+     *
+     * @param channel the channel to index
+     */
+    void add(ServerChannelImpl channel) {
+        ChannelId channelId = channel.getChannelId();
+        try (AutoLock l = _lock.lock()) {
+            Node node = _root;
+            for (int i = 0, depth = channelId.depth(); i < depth; ++i) {
+                node = node._children.computeIfAbsent(channelId.getSegment(i), segment -> new Node());
+            }
+            node._channel = channel;
+        }
+    }
+
+    /**
+     * <p>Returns whether the given channel is indexed.</p>
+     * <p>This method does not take the lock, so that only the subscription
+     * that finds the channel not indexed has to {@link #add(ServerChannelImpl) add} it.</p>
+     *
+     * @param channel the channel to look up
+     * @return whether the channel is indexed
+     */
+    boolean contains(ServerChannelImpl channel) {
+        ChannelId channelId = channel.getChannelId();
+        Node node = _root;
+        for (int i = 0, depth = channelId.depth(); i < depth; ++i) {
+            node = node._children.get(channelId.getSegment(i));
+            if (node == null) {
+                return false;
+            }
+        }
+        return node._channel == channel;
+    }
+
+    /**
+     * <p>Removes the given channel from the index, if it has no subscribers.</p>
+     * <p>The subscribers are checked while holding the lock, so that a concurrent
+     * subscription that {@link #add(ServerChannelImpl) added} the channel is not lost.</p>
+     *
+     * @param channel the channel to remove from the index
+     */
+    void remove(ServerChannelImpl channel) {
+        ChannelId channelId = channel.getChannelId();
+        int depth = channelId.depth();
+        try (AutoLock l = _lock.lock()) {
+            if (!channel.subscribers().isEmpty()) {
+                return;
+            }
+            Node[] path = new Node[depth + 1];
+            path[0] = _root;
+            for (int i = 0; i < depth; ++i) {
+                Node child = path[i]._children.get(channelId.getSegment(i));
+                if (child == null) {
+                    return;
+                }
+                path[i + 1] = child;
+            }
+            Node node = path[depth];
+            if (node._channel != channel) {
+                return;
+            }
+            node._channel = null;
+            // A concurrent subscription may have added a subscriber after
+            // the check above, and not indexed the channel because it found
+            // it still indexed, so the subscribers must be checked again.
+            if (!channel.subscribers().isEmpty()) {
+                node._channel = channel;
+                return;
+            }
+            // Prune the nodes that are not needed anymore.
+            for (int i = depth; i > 0; --i) {
+                node = path[i];
+                if (node._channel != null || !node._children.isEmpty()) {
+                    break;
+                }
+                path[i - 1]._children.remove(channelId.getSegment(i - 1));
+            }
+        }
+    }
+
+    void clear() {
+        try (AutoLock l = _lock.lock()) {
+            _root._children.clear();
+        }
+    }
+
+    /**
+     * <p>Returns the indexed channels that match the given non-wild channel.</p>
+     * <p>The channels are returned in the same order of {@link ChannelId#getAllIds()}
+     * reversed, that is from the root of the channel tree (the {@code /**} channel)
+     * to the given channel.</p>
+     *
+     * @param channelId the non-wild channel to match
+     * @return the matching channels that have subscribers
+     */
+    List<ServerChannelImpl> match(ChannelId channelId) {
+        int depth = channelId.depth();
+        List<ServerChannelImpl> result = new ArrayList<>(depth + 2);
+        Node node = _root;
+        for (int i = 0; i < depth; ++i) {
+            collect(node._children.get(ChannelId.DEEPWILD), result);
+            if (i == depth - 1) {
+                collect(node._children.get(ChannelId.WILD), result);
+            }
+            node = node._children.get(channelId.getSegment(i));
+            if (node == null) {
+                return result;
+            }
+        }
+        collect(node, result);
+        return result;
+    }
+
+    private void collect(Node node, List<ServerChannelImpl> result) {
+        if (node != null) {
+            ServerChannelImpl channel = node._channel;
+            if (channel != null) {
+                result.add(channel);
+            }
+        }
+    }
+
+    private static class Node {
+        private final ConcurrentMap<String, Node> _children = new ConcurrentHashMap<>();
+        private volatile ServerChannelImpl _channel;
+    }
+}
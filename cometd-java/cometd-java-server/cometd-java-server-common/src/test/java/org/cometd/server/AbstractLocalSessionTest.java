@@ -0,0 +1,53 @@
+/*
+ * Copyright (c) 2008-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.cometd.server;
+
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.cometd.bayeux.server.LocalSession;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+
+public abstract class AbstractLocalSessionTest {
+    protected final BayeuxServerImpl _bayeux = new BayeuxServerImpl();
+    private final Map<String, Object> _options;
+
+    protected AbstractLocalSessionTest(Map<String, Object> options) {
+        _options = options;
+    }
+
+    @BeforeEach
+    public void init() throws Exception {
+        _options.forEach(_bayeux::setOption);
+        _bayeux.start();
+    }
+
+    @AfterEach
+    public void destroy() throws Exception {
+        _bayeux.stop();
+    }
+
+    protected LocalSession newLocalSession(String name) throws Exception {
+        // The handshake may complete asynchronously, depending on the options.
+        LocalSession session = _bayeux.newLocalSession(name);
+        CountDownLatch latch = new CountDownLatch(1);
+        session.handshake(null, reply -> latch.countDown());
+        Assertions.assertTrue(latch.await(5, TimeUnit.SECONDS));
+        return session;
+    }
+}
@@ -21,7 +21,12 @@ import java.util.Queue;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
+import org.cometd.bayeux.Promise;
 import org.cometd.bayeux.client.ClientSessionChannel;
 import org.cometd.bayeux.server.BayeuxServer;
 import org.cometd.bayeux.server.ConfigurableServerChannel;
@@ -133,6 +138,64 @@ public class BayeuxServerTest {
             assertTrue(threads.size() >= 2);
     }
 
+    @Test
+    public void testSynchronousAndAsynchronousExtensions() throws Exception {
+        _bayeux.addExtension(new BayeuxServer.Extension() {
+            @Override
+            public boolean rcv(ServerSession from, ServerMessage.Mutable message) {
+                _events.add("in1");
+                return true;
+            }
+
+            @Override
+            public boolean send(ServerSession from, ServerSession to, ServerMessage.Mutable message) {
+                _events.add("out1");
+                return true;
+            }
+        });
+        _bayeux.addExtension(new BayeuxServer.Extension() {
+            @Override
+            public void incoming(ServerSession from, ServerMessage.Mutable message, Promise<Boolean> promise) {
+                new Thread(() -> {
+                    _events.add("in2");
+                    promise.succeed(true);
+                }).start();
+            }
+
+            @Override
+            public void outgoing(ServerSession from, ServerSession to, ServerMessage.Mutable message, Promise<Boolean> promise) {
+                new Thread(() -> {
+                    _events.add("out2");
+                    promise.succeed(true);
+                }).start();
+            }
+        });
+        _bayeux.addExtension(new BayeuxServer.Extension() {
+            @Override
+            public boolean rcv(ServerSession from, ServerMessage.Mutable message) {
+                _events.add("in3");
+                return true;
+            }
+
+            @Override
+            public boolean send(ServerSession from, ServerSession to, ServerMessage.Mutable message) {
+                _events.add("out3");
+                return true;
+            }
+        });
+
+        ServerSessionImpl session = newServerSession();
+        ServerMessage.Mutable message = _bayeux.newMessage();
+        message.setChannel("/foo");
+        message.setClientId(session.getId());
+        message.setData("data");
+        CountDownLatch latch = new CountDownLatch(1);
+        _bayeux.handle(session, message, Promise.from(reply -> latch.countDown(), x -> {}));
+
+        Assertions.assertTrue(latch.await(5, TimeUnit.SECONDS));
+        Assertions.assertEquals(List.of("in1", "in2", "in3", "out3", "out2", "out1"), new ArrayList<>(_events));
+    }
+
     @Test
     public void testListeners() {
         _bayeux.addListener(new SubListener());
@@ -316,6 +379,42 @@ public class BayeuxServerTest {
         Assertions.assertFalse(ss2.isConnected());
     }
 
+    @Test
+    public void testParallelFanOut() throws Exception {
+        _bayeux.setFanOutThreads(4);
+        _bayeux.setFanOutThreshold(16);
+
+        int count = 256;
+        ConcurrentMap<String, AtomicInteger> deliveries = new ConcurrentHashMap<>();
+        ServerChannel wild = _bayeux.createChannelIfAbsent("/fan/*").getReference();
+        ServerChannel channel = _bayeux.createChannelIfAbsent("/fan/out").getReference();
+        for (int i = 0; i < count; ++i) {
+            ServerSessionImpl session = newServerSession();
+            session.addListener(new ServerSession.MessageListener() {
+                @Override
+                public boolean onMessage(ServerSession session, ServerSession sender, ServerMessage message) {
+                    deliveries.computeIfAbsent(session.getId(), id -> new AtomicInteger()).incrementAndGet();
+                    return true;
+                }
+            });
+            // Half of the sessions are subscribed to both channels,
+            // but must receive the message only once.
+            if (i % 2 == 0) {
+                wild.subscribe(session);
+            }
+            channel.subscribe(session);
+        }
+
+        LocalSession publisher = _bayeux.newLocalSession("publisher");
+        publisher.handshake();
+        Promise.Completable<Boolean> promise = new Promise.Completable<>();
+        channel.publish(publisher, "data", promise);
+
+        assertTrue(promise.get(5, TimeUnit.SECONDS));
+        assertEquals(count, deliveries.size());
+        deliveries.values().forEach(delivered -> assertEquals(1, delivered.get()));
+    }
+
     class CListener implements BayeuxServer.ChannelListener {
         @Override
         public void configureChannel(ConfigurableServerChannel channel) {
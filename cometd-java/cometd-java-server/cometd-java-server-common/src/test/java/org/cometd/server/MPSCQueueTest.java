@@ -0,0 +1,98 @@
+/*
+ * Copyright (c) 2008-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.cometd.server;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class MPSCQueueTest {
+    @Test
+    public void testOfferPollIterate() {
+        MPSCQueue<String> queue = new MPSCQueue<>();
+        Assertions.assertTrue(queue.isEmpty());
+        Assertions.assertNull(queue.poll());
+        Assertions.assertNull(queue.peek());
+
+        queue.offer("A");
+        queue.offer("B");
+        queue.offer("C");
+        Assertions.assertEquals(3, queue.size());
+        Assertions.assertEquals("A", queue.peek());
+
+        // Remove via iterator an element in the middle.
+        Iterator<String> iterator = queue.iterator();
+        Assertions.assertEquals("A", iterator.next());
+        Assertions.assertEquals("B", iterator.next());
+        iterator.remove();
+        Assertions.assertEquals("C", iterator.next());
+        Assertions.assertFalse(iterator.hasNext());
+        Assertions.assertEquals(2, queue.size());
+        Assertions.assertEquals(List.of("A", "C"), new ArrayList<>(queue));
+
+        // Remove via iterator the last element.
+        Assertions.assertTrue(queue.remove("C"));
+        Assertions.assertEquals(1, queue.size());
+
+        queue.offer("D");
+        Assertions.assertEquals("A", queue.poll());
+        Assertions.assertEquals("D", queue.poll());
+        Assertions.assertNull(queue.poll());
+        Assertions.assertTrue(queue.isEmpty());
+    }
+
+    @Test
+    public void testConcurrentProducers() throws Exception {
+        MPSCQueue<String> queue = new MPSCQueue<>();
+        int producers = 4;
+        int count = 10_000;
+        CountDownLatch latch = new CountDownLatch(producers);
+        for (int p = 0; p < producers; ++p) {
+            String prefix = p + "_";
+            new Thread(() -> {
+                for (int i = 0; i < count; ++i) {
+                    queue.offer(prefix + i);
+                }
+                latch.countDown();
+            }).start();
+        }
+
+        // Drain concurrently with the producers.
+        List<String> batch = new ArrayList<>();
+        while (latch.getCount() > 0) {
+            queue.drainTo(batch);
+        }
+        Assertions.assertTrue(latch.await(5, TimeUnit.SECONDS));
+        queue.drainTo(batch);
+
+        // Each element is drained exactly once, in the order of its producer.
+        Assertions.assertEquals(producers * count, batch.size());
+        int[] expected = new int[producers];
+        for (String element : batch) {
+            String[] parts = element.split("_");
+            int producer = Integer.parseInt(parts[0]);
+            Assertions.assertEquals(expected[producer]++, Integer.parseInt(parts[1]));
+        }
+        for (int p = 0; p < producers; ++p) {
+            Assertions.assertEquals(count, expected[p]);
+        }
+        Assertions.assertTrue(queue.isEmpty());
+    }
+}
@@ -15,8 +15,12 @@
  */
 package org.cometd.server;
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.atomic.AtomicInteger;
 import org.cometd.bayeux.Promise;
 import org.cometd.bayeux.server.ServerSession;
 import org.eclipse.jetty.client.api.ContentResponse;
@@ -29,8 +33,82 @@ public class MaxQueuedTest extends AbstractBayeuxClientServerTest {
     @ParameterizedTest
     @MethodSource("transports")
     public void testMaxQueued(String serverTransport) throws Exception {
+        testMaxQueued(serverTransport, false);
+    }
+
+    @ParameterizedTest
+    @MethodSource("transports")
+    public void testMaxQueuedLockFree(String serverTransport) throws Exception {
+        testMaxQueued(serverTransport, true);
+    }
+
+    private void testMaxQueued(String serverTransport, boolean lockFree) throws Exception {
         int maxQueue = 2;
+        String clientId = connect(serverTransport, lockFree, maxQueue);
+
+        ServerSession serverSession = bayeux.getSession(clientId);
+        Assertions.assertNotNull(serverSession);
+
+        serverSession.addListener((ServerSession.QueueMaxedListener)(session, queue, sender, message) -> {
+            // Cannot use session.disconnect(), because it will queue the
+            // disconnect message and invoke this method again, causing a loop.
+            bayeux.removeSession(session);
+            return false;
+        });
+
+        // Overflow the message queue.
+        for (int i = 0; i < maxQueue + 1; ++i) {
+            serverSession.deliver(null, "/max_queue", "message_" + i, Promise.noop());
+        }
+
+        // Session should be gone.
+        Assertions.assertNull(bayeux.getSession(clientId));
+    }
+
+    @ParameterizedTest
+    @MethodSource("transports")
+    public void testMaxQueuedLockFreeConcurrentProducers(String serverTransport) throws Exception {
+        int maxQueue = 16;
+        String clientId = connect(serverTransport, true, maxQueue);
+
+        ServerSessionImpl serverSession = (ServerSessionImpl)bayeux.getSession(clientId);
+        Assertions.assertNotNull(serverSession);
+
+        AtomicInteger rejected = new AtomicInteger();
+        serverSession.addListener((ServerSession.QueueMaxedListener)(session, queue, sender, message) -> {
+            rejected.incrementAndGet();
+            return false;
+        });
+
+        int threads = 4;
+        int messages = 100;
+        CyclicBarrier barrier = new CyclicBarrier(threads);
+        List<Thread> producers = new ArrayList<>();
+        for (int i = 0; i < threads; ++i) {
+            Thread producer = new Thread(() -> {
+                try {
+                    barrier.await();
+                    for (int j = 0; j < messages; ++j) {
+                        serverSession.deliver(null, "/max_queue", "message_" + j, Promise.noop());
+                    }
+                } catch (Throwable x) {
+                    x.printStackTrace();
+                }
+            });
+            producers.add(producer);
+            producer.start();
+        }
+        for (Thread producer : producers) {
+            producer.join();
+        }
+
+        Assertions.assertEquals(maxQueue, serverSession.getQueue().size());
+        Assertions.assertEquals(threads * messages - maxQueue, rejected.get());
+    }
+
+    private String connect(String serverTransport, boolean lockFree, int maxQueue) throws Exception {
         Map<String, String> options = new HashMap<>();
+        options.put(BayeuxServerImpl.LOCK_FREE_SESSION_QUEUE_OPTION, String.valueOf(lockFree));
         options.put(AbstractServerTransport.MAX_QUEUE_OPTION, String.valueOf(maxQueue));
         // Makes the test simpler: publishes are only sent via /meta/connect.
         options.put(AbstractServerTransport.META_CONNECT_DELIVERY_OPTION, String.valueOf(true));
@@ -55,22 +133,6 @@ public class MaxQueuedTest extends AbstractBayeuxClientServerTest {
         response = connect1.send();
         Assertions.assertEquals(200, response.getStatus());
 
-        ServerSession serverSession = bayeux.getSession(clientId);
-        Assertions.assertNotNull(serverSession);
-
-        serverSession.addListener((ServerSession.QueueMaxedListener)(session, queue, sender, message) -> {
-            // Cannot use session.disconnect(), because it will queue the
-            // disconnect message and invoke this method again, causing a loop.
-            bayeux.removeSession(session);
-            return false;
-        });
-
-        // Overflow the message queue.
-        for (int i = 0; i < maxQueue + 1; ++i) {
-            serverSession.deliver(null, "/max_queue", "message_" + i, Promise.noop());
-        }
-
-        // Session should be gone.
-        Assertions.assertNull(bayeux.getSession(clientId));
+        return clientId;
     }
 }
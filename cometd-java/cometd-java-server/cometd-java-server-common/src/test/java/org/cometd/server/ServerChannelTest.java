@@ -17,10 +17,12 @@ package org.cometd.server;
 
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import org.cometd.bayeux.MarkedReference;
 import org.cometd.bayeux.Promise;
 import org.cometd.bayeux.server.BayeuxServer;
 import org.cometd.bayeux.server.ConfigurableServerChannel;
+import org.cometd.bayeux.server.LocalSession;
 import org.cometd.bayeux.server.ServerChannel;
 import org.cometd.bayeux.server.ServerMessage;
 import org.cometd.bayeux.server.ServerMessage.Mutable;
@@ -296,6 +298,59 @@ public class ServerChannelTest {
         Assertions.assertEquals("StarStar", session0.getQueue().poll().getData());
     }
 
+    @Test
+    public void testListenersAddedAndRemoved() {
+        ServerChannelImpl fooBar = (ServerChannelImpl)_bayeux.createChannelIfAbsent("/foo/bar").getReference();
+        ServerSessionImpl session0 = newServerSession();
+        ServerSessionImpl session1 = newServerSession();
+        fooBar.subscribe(session1);
+
+        AtomicInteger channelMessages = new AtomicInteger();
+        ServerChannel.MessageListener channelListener = new ServerChannel.MessageListener() {
+            @Override
+            public boolean onMessage(ServerSession from, ServerChannel channel, ServerMessage.Mutable message) {
+                channelMessages.incrementAndGet();
+                return true;
+            }
+        };
+        fooBar.addListener(channelListener);
+
+        // A listener that implements multiple listener types.
+        AtomicInteger sessionMessages = new AtomicInteger();
+        AtomicInteger queuedMessages = new AtomicInteger();
+        class SessionListener implements ServerSession.MessageListener, ServerSession.QueueListener {
+            @Override
+            public boolean onMessage(ServerSession session, ServerSession sender, ServerMessage message) {
+                sessionMessages.incrementAndGet();
+                return true;
+            }
+
+            @Override
+            public void queued(ServerSession sender, ServerMessage message) {
+                queuedMessages.incrementAndGet();
+            }
+        }
+        SessionListener sessionListener = new SessionListener();
+        session1.addListener(sessionListener);
+
+        fooBar.publish(session0, "data", Promise.noop());
+
+        Assertions.assertEquals(1, channelMessages.get());
+        Assertions.assertEquals(1, sessionMessages.get());
+        Assertions.assertEquals(1, queuedMessages.get());
+        Assertions.assertEquals(1, session1.getQueue().size());
+
+        fooBar.removeListener(channelListener);
+        session1.removeListener(sessionListener);
+
+        fooBar.publish(session0, "data", Promise.noop());
+
+        Assertions.assertEquals(1, channelMessages.get());
+        Assertions.assertEquals(1, sessionMessages.get());
+        Assertions.assertEquals(1, queuedMessages.get());
+        Assertions.assertEquals(2, session1.getQueue().size());
+    }
+
     @Test
     public void testPublishFromSweptChannelSucceeds() throws Exception {
         _bayeux.start();
@@ -319,6 +374,106 @@ public class ServerChannelTest {
         Assertions.assertEquals(1, session1.getQueue().size());
     }
 
+    @Test
+    public void testPublishToOverlappingWildSubscriptions() {
+        ServerChannelImpl starStar = (ServerChannelImpl)_bayeux.createChannelIfAbsent("/**").getReference();
+        ServerChannelImpl fooStarStar = (ServerChannelImpl)_bayeux.createChannelIfAbsent("/foo/**").getReference();
+        ServerChannelImpl fooStar = (ServerChannelImpl)_bayeux.createChannelIfAbsent("/foo/*").getReference();
+        ServerChannelImpl fooBar = (ServerChannelImpl)_bayeux.createChannelIfAbsent("/foo/bar").getReference();
+        ServerChannelImpl fooBarBaz = (ServerChannelImpl)_bayeux.createChannelIfAbsent("/foo/bar/baz").getReference();
+        fooStar.setBroadcastToPublisher(false);
+
+        ServerSessionImpl session0 = newServerSession();
+        ServerSessionImpl session1 = newServerSession();
+        ServerSessionImpl session2 = newServerSession();
+        // The publisher is subscribed to a channel that
+        // does not broadcast to the publisher, and to one that does.
+        fooStar.subscribe(session0);
+        fooBar.subscribe(session0);
+        starStar.subscribe(session1);
+        fooStarStar.subscribe(session1);
+        fooStar.subscribe(session1);
+        fooBar.subscribe(session1);
+        fooStarStar.subscribe(session2);
+
+        fooBar.publish(session0, "data", Promise.noop());
+        Assertions.assertEquals(1, session0.getQueue().size());
+        Assertions.assertEquals(1, session1.getQueue().size());
+        Assertions.assertEquals(1, session2.getQueue().size());
+
+        fooBarBaz.publish(session0, "data", Promise.noop());
+        Assertions.assertEquals(1, session0.getQueue().size());
+        Assertions.assertEquals(2, session1.getQueue().size());
+        Assertions.assertEquals(2, session2.getQueue().size());
+
+        // Only session0 is subscribed to /foo/* and /foo/bar,
+        // and does not receive its own message from /foo/*.
+        fooBar.unsubscribe(session0);
+        starStar.unsubscribe(session1);
+        fooStarStar.unsubscribe(session1);
+        fooStar.unsubscribe(session1);
+        fooBar.unsubscribe(session1);
+        fooBar.publish(session0, "data", Promise.noop());
+        Assertions.assertEquals(1, session0.getQueue().size());
+        Assertions.assertEquals(2, session1.getQueue().size());
+        Assertions.assertEquals(3, session2.getQueue().size());
+
+        // Removing the wild channel removes its subscriptions.
+        fooStarStar.remove();
+        fooBar.subscribe(session1);
+        fooBar.publish(session0, "data", Promise.noop());
+        Assertions.assertEquals(3, session1.getQueue().size());
+        Assertions.assertEquals(3, session2.getQueue().size());
+    }
+
+    @Test
+    public void testPublishToOverlappingWildSubscriptionsAfterFailedDelivery() {
+        ServerChannelImpl fooStar = (ServerChannelImpl)_bayeux.createChannelIfAbsent("/foo/*").getReference();
+        ServerChannelImpl fooBar = (ServerChannelImpl)_bayeux.createChannelIfAbsent("/foo/bar").getReference();
+
+        ServerSessionImpl session0 = newServerSession();
+        ServerSessionImpl session1 = newServerSession();
+        fooStar.subscribe(session1);
+        fooBar.subscribe(session1);
+        // Veto the delivery via /foo/*, so that the
+        // message is delivered via /foo/bar instead.
+        AtomicInteger deliveries = new AtomicInteger();
+        session1.addListener(new ServerSession.MessageListener() {
+            @Override
+            public boolean onMessage(ServerSession session, ServerSession sender, ServerMessage message) {
+                return deliveries.incrementAndGet() > 1;
+            }
+        });
+
+        fooBar.publish(session0, "data", Promise.noop());
+        Assertions.assertEquals(2, deliveries.get());
+        Assertions.assertEquals(1, session1.getQueue().size());
+    }
+
+    @Test
+    public void testRemoteSubscribers() {
+        ServerChannelImpl fooBar = (ServerChannelImpl)_bayeux.createChannelIfAbsent("/foo/bar").getReference();
+        LocalSession local = _bayeux.newLocalSession("local");
+        local.handshake();
+        ServerSessionImpl localSession = (ServerSessionImpl)local.getServerSession();
+        ServerSessionImpl remoteSession = newServerSession();
+
+        fooBar.subscribe(localSession);
+        Assertions.assertFalse(fooBar.hasRemoteSubscribers());
+
+        fooBar.subscribe(remoteSession);
+        // Subscribing twice is counted once.
+        fooBar.subscribe(remoteSession);
+        Assertions.assertTrue(fooBar.hasRemoteSubscribers());
+
+        fooBar.unsubscribe(remoteSession);
+        Assertions.assertFalse(fooBar.hasRemoteSubscribers());
+
+        fooBar.subscribe(remoteSession);
+        fooBar.remove();
+        Assertions.assertFalse(fooBar.hasRemoteSubscribers());
+    }
+
     @Test
     public void testPersistentChannelIsNotSwept() {
         String channelName = "/foo/bar";
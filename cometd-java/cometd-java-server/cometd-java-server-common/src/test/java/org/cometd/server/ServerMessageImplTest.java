@@ -19,8 +19,14 @@ import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import org.cometd.bayeux.Message;
+import org.cometd.bayeux.server.LocalSession;
 import org.cometd.bayeux.server.ServerMessage;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
@@ -147,6 +153,103 @@ public class ServerMessageImplTest {
         }
     }
 
+    @Test
+    public void testFrozenJSONFrameAndBytes() throws Exception {
+        ServerMessageImpl message = new ServerMessageImpl();
+        message.setChannel("/channel");
+        message.setData("\u20AC");
+        Assertions.assertNull(message.getJSONFrame());
+        Assertions.assertNull(message.getJSONBytes());
+
+        String json = new JettyJSONContextServer().generate(message);
+        message.freeze(json);
+
+        String frame = message.getJSONFrame();
+        Assertions.assertEquals("[" + json + "]", frame);
+        // Only the bytes are cached, not the frame.
+        Assertions.assertSame(message.getJSONBytes(), message.getJSONBytes());
+
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        ObjectOutputStream oos = new ObjectOutputStream(baos);
+        oos.writeObject(message);
+        oos.close();
+
+        ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(baos.toByteArray()));
+        ServerMessageImpl deserialized = (ServerMessageImpl)ois.readObject();
+
+        // The bytes are recomputed after deserialization.
+        Assertions.assertArrayEquals(json.getBytes(StandardCharsets.UTF_8), deserialized.getJSONBytes());
+        Assertions.assertEquals(frame, deserialized.getJSONFrame());
+    }
+
+    @Test
+    public void testFreezeGeneratesJSONOnce() throws Exception {
+        AtomicInteger generations = new AtomicInteger();
+        JSONContextServer jsonContext = new JettyJSONContextServer() {
+            @Override
+            public String generate(ServerMessage.Mutable message) {
+                generations.incrementAndGet();
+                return super.generate(message);
+            }
+        };
+
+        Map<String, Object> data = new HashMap<>();
+        data.put("x", 1);
+        ServerMessageImpl message = new ServerMessageImpl();
+        message.setChannel("/channel");
+        message.setData(data);
+        message.freeze();
+
+        Assertions.assertTrue(message.isFrozen());
+        Assertions.assertThrows(UnsupportedOperationException.class, () -> message.put("foo", "bar"));
+        Assertions.assertNull(message.getJSON());
+
+        message.freeze(jsonContext);
+        String json = message.getJSON();
+        Assertions.assertNotNull(json);
+        Assertions.assertEquals(1, generations.get());
+
+        // Modifications after the JSON generation are not visible to remote sessions.
+        data.put("x", 2);
+        message.freeze(jsonContext);
+        Assertions.assertEquals(1, generations.get());
+        Assertions.assertSame(json, message.getJSON());
+        Assertions.assertArrayEquals(json.getBytes(StandardCharsets.UTF_8), message.getJSONBytes());
+        Assertions.assertEquals("[" + json + "]", message.getJSONFrame());
+    }
+
+    @Test
+    public void testLocalDeliveryDoesNotGenerateJSON() throws Exception {
+        String channelName = "/local";
+        AtomicInteger generations = new AtomicInteger();
+        BayeuxServerImpl bayeux = new BayeuxServerImpl();
+        bayeux.setOption(AbstractServerTransport.JSON_CONTEXT_OPTION, new JettyJSONContextServer() {
+            @Override
+            public String generate(ServerMessage.Mutable message) {
+                if (channelName.equals(message.getChannel())) {
+                    generations.incrementAndGet();
+                }
+                return super.generate(message);
+            }
+        });
+        bayeux.start();
+        try {
+            CountDownLatch latch = new CountDownLatch(1);
+            LocalSession subscriber = bayeux.newLocalSession("subscriber");
+            subscriber.handshake();
+            subscriber.getChannel(channelName).subscribe((channel, message) -> latch.countDown());
+
+            LocalSession publisher = bayeux.newLocalSession("publisher");
+            publisher.handshake();
+            publisher.getChannel(channelName).publish("data");
+
+            Assertions.assertTrue(latch.await(5, TimeUnit.SECONDS));
+            Assertions.assertEquals(0, generations.get());
+        } finally {
+            bayeux.stop();
+        }
+    }
+
     @Test
     public void testModificationViaEntrySet() {
         ServerMessageImpl message = new ServerMessageImpl();
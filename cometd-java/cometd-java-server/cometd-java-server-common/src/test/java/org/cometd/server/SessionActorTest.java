@@ -0,0 +1,161 @@
+/*
+ * Copyright (c) 2008-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.cometd.server;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import org.cometd.bayeux.Promise;
+import org.cometd.bayeux.server.BayeuxServer;
+import org.cometd.bayeux.server.LocalSession;
+import org.cometd.bayeux.server.ServerMessage;
+import org.cometd.bayeux.server.ServerSession;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class SessionActorTest extends AbstractLocalSessionTest {
+    public SessionActorTest() {
+        super(Map.of(BayeuxServerImpl.SESSION_ACTOR_OPTION, true));
+    }
+
+    @Test
+    public void testIncomingMessagesProcessedInOrder() throws Exception {
+        Assertions.assertNotNull(_bayeux.getSessionActorExecutor());
+
+        String channelName = "/actor";
+        int count = 100;
+        List<Object> received = new CopyOnWriteArrayList<>();
+        CountDownLatch latch = new CountDownLatch(count);
+        LocalSession subscriber = newLocalSession("subscriber");
+        CountDownLatch subscribeLatch = new CountDownLatch(1);
+        subscriber.getChannel(channelName).subscribe((channel, message) -> {
+            received.add(message.getData());
+            latch.countDown();
+        }, reply -> subscribeLatch.countDown());
+        Assertions.assertTrue(subscribeLatch.await(5, TimeUnit.SECONDS));
+
+        LocalSession sender = newLocalSession("sender");
+        for (int i = 0; i < count; ++i) {
+            sender.getChannel(channelName).publish(i);
+        }
+
+        Assertions.assertTrue(latch.await(5, TimeUnit.SECONDS));
+        Assertions.assertEquals(IntStream.range(0, count).boxed().collect(Collectors.toList()), received);
+    }
+
+    @Test
+    public void testIncomingAndOutgoingMessagesAreSerialized() throws Exception {
+        String channelName = "/chat";
+        int sessions = 4;
+        int count = 200;
+
+        // Tracks the threads that are processing messages for each session.
+        Map<ServerSession, AtomicInteger> active = new ConcurrentHashMap<>();
+        AtomicBoolean concurrent = new AtomicBoolean();
+        _bayeux.addExtension(new BayeuxServer.Extension() {
+            @Override
+            public boolean rcv(ServerSession from, ServerMessage.Mutable message) {
+                enter(from);
+                return true;
+            }
+
+            private void enter(ServerSession session) {
+                AtomicInteger counter = active.computeIfAbsent(session, s -> new AtomicInteger());
+                if (counter.incrementAndGet() > 1) {
+                    concurrent.set(true);
+                }
+                Thread.yield();
+                counter.decrementAndGet();
+            }
+        });
+
+        CountDownLatch latch = new CountDownLatch(sessions * sessions * count);
+        List<LocalSession> locals = new ArrayList<>();
+        for (int i = 0; i < sessions; ++i) {
+            LocalSession local = newLocalSession("chat" + i);
+            local.getServerSession().addListener((ServerSession.QueueListener)(sender, message) -> {
+                AtomicInteger counter = active.computeIfAbsent(local.getServerSession(), s -> new AtomicInteger());
+                if (counter.incrementAndGet() > 1) {
+                    concurrent.set(true);
+                }
+                Thread.yield();
+                counter.decrementAndGet();
+            });
+            CountDownLatch subscribeLatch = new CountDownLatch(1);
+            local.getChannel(channelName).subscribe((channel, message) -> latch.countDown(), reply -> subscribeLatch.countDown());
+            Assertions.assertTrue(subscribeLatch.await(5, TimeUnit.SECONDS));
+            locals.add(local);
+        }
+
+        // Every session publishes and receives from different threads.
+        List<Thread> threads = new ArrayList<>();
+        for (LocalSession local : locals) {
+            Thread thread = new Thread(() -> {
+                for (int i = 0; i < count; ++i) {
+                    local.getChannel(channelName).publish(i);
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        Assertions.assertTrue(latch.await(15, TimeUnit.SECONDS));
+        Assertions.assertFalse(concurrent.get());
+    }
+
+    @Test
+    public void testDeliveryDoesNotWaitForSubscriberActor() throws Exception {
+        String channelName = "/handoff";
+        LocalSession slow = newLocalSession("slow");
+        CountDownLatch subscribeLatch = new CountDownLatch(2);
+        slow.getChannel(channelName).subscribe((channel, message) -> {}, reply -> subscribeLatch.countDown());
+        LocalSession fast = newLocalSession("fast");
+        CountDownLatch messageLatch = new CountDownLatch(1);
+        fast.getChannel(channelName).subscribe((channel, message) -> messageLatch.countDown(), reply -> subscribeLatch.countDown());
+        Assertions.assertTrue(subscribeLatch.await(5, TimeUnit.SECONDS));
+
+        // Block the actor of the slow session while it enqueues the message.
+        CountDownLatch blockLatch = new CountDownLatch(1);
+        slow.getServerSession().addListener((ServerSession.QueueListener)(sender, message) -> {
+            try {
+                blockLatch.await();
+            } catch (InterruptedException x) {
+                throw new RuntimeException(x);
+            }
+        });
+
+        try {
+            // The publish completes while the slow session is still blocked.
+            Promise.Completable<Boolean> promise = new Promise.Completable<>();
+            _bayeux.getChannel(channelName).publish(null, "data", promise);
+            Assertions.assertTrue(promise.get(5, TimeUnit.SECONDS));
+        } finally {
+            blockLatch.countDown();
+        }
+        Assertions.assertTrue(messageLatch.await(5, TimeUnit.SECONDS));
+    }
+}
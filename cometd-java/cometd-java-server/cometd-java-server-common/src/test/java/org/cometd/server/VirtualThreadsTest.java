@@ -0,0 +1,141 @@
+/*
+ * Copyright (c) 2008-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.cometd.server;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import org.cometd.bayeux.ChannelId;
+import org.cometd.bayeux.Promise;
+import org.cometd.bayeux.server.Authorizer;
+import org.cometd.bayeux.server.LocalSession;
+import org.cometd.bayeux.server.ServerChannel;
+import org.cometd.bayeux.server.ServerMessage;
+import org.cometd.bayeux.server.ServerSession;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class VirtualThreadsTest extends AbstractLocalSessionTest {
+    public VirtualThreadsTest() {
+        super(Map.of(BayeuxServerImpl.VIRTUAL_THREADS_OPTION, true));
+    }
+
+    @Test
+    public void testListenersInvokedInOrderOutsideThePublishingThread() throws Exception {
+        Assertions.assertNotNull(_bayeux.getCallbackExecutor());
+
+        String channelName = "/virtual";
+        int count = 100;
+        Thread publisher = Thread.currentThread();
+        Set<Thread> threads = ConcurrentHashMap.newKeySet();
+        List<Object> listened = new CopyOnWriteArrayList<>();
+        List<Object> received = new CopyOnWriteArrayList<>();
+        CountDownLatch latch = new CountDownLatch(count);
+        _bayeux.createChannelIfAbsent(channelName).getReference().addListener(new ServerChannel.MessageListener() {
+            @Override
+            public boolean onMessage(ServerSession from, ServerChannel channel, ServerMessage.Mutable message) {
+                threads.add(Thread.currentThread());
+                // Blocking code must not reorder the messages.
+                sleep(ThreadLocalRandom.current().nextInt(2));
+                listened.add(message.getData());
+                return true;
+            }
+        });
+
+        LocalSession subscriber = newLocalSession("subscriber");
+        CountDownLatch subscribeLatch = new CountDownLatch(1);
+        subscriber.getChannel(channelName).subscribe((channel, message) -> {
+            threads.add(Thread.currentThread());
+            received.add(message.getData());
+            latch.countDown();
+        }, reply -> subscribeLatch.countDown());
+        Assertions.assertTrue(subscribeLatch.await(5, TimeUnit.SECONDS));
+
+        LocalSession sender = newLocalSession("sender");
+        for (int i = 0; i < count; ++i) {
+            sender.getChannel(channelName).publish(i);
+        }
+
+        Assertions.assertTrue(latch.await(5, TimeUnit.SECONDS));
+        List<Object> expected = IntStream.range(0, count).boxed().collect(Collectors.toList());
+        Assertions.assertEquals(expected, listened);
+        Assertions.assertEquals(expected, received);
+        Assertions.assertFalse(threads.contains(publisher));
+    }
+
+    @Test
+    public void testBlockingAuthorizer() throws Exception {
+        String channelName = "/authorized";
+        Thread publisher = Thread.currentThread();
+        Set<Thread> threads = ConcurrentHashMap.newKeySet();
+        _bayeux.createChannelIfAbsent(channelName, channel -> channel.addAuthorizer(new Authorizer() {
+            @Override
+            public Result authorize(Operation operation, ChannelId channel, ServerSession session, ServerMessage message) {
+                threads.add(Thread.currentThread());
+                sleep(100);
+                return "grant".equals(message.getData()) ? Result.grant() : Result.deny("denied");
+            }
+        }));
+
+        LocalSession session = newLocalSession("publisher");
+        CountDownLatch latch = new CountDownLatch(2);
+        List<Boolean> results = new CopyOnWriteArrayList<>();
+        session.getChannel(channelName).publish("deny", reply -> {
+            results.add(reply.isSuccessful());
+            latch.countDown();
+        });
+        session.getChannel(channelName).publish("grant", reply -> {
+            results.add(reply.isSuccessful());
+            latch.countDown();
+        });
+
+        Assertions.assertTrue(latch.await(5, TimeUnit.SECONDS));
+        Assertions.assertEquals(List.of(false, true), results);
+        Assertions.assertFalse(threads.contains(publisher));
+    }
+
+    @Test
+    public void testThrowingListenerDoesNotStopTheProcessing() throws Exception {
+        String channelName = "/throwing";
+        _bayeux.createChannelIfAbsent(channelName).getReference().addListener(new ServerChannel.MessageListener() {
+            @Override
+            public boolean onMessage(ServerSession from, ServerChannel channel, ServerMessage.Mutable message) {
+                throw new IllegalStateException("explicitly_thrown_by_test");
+            }
+        });
+
+        LocalSession session = newLocalSession("publisher");
+        CountDownLatch latch = new CountDownLatch(1);
+        _bayeux.getChannel(channelName).publish(session.getServerSession(), "data", Promise.from(published -> latch.countDown(), Throwable::printStackTrace));
+
+        Assertions.assertTrue(latch.await(5, TimeUnit.SECONDS));
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException x) {
+            throw new RuntimeException(x);
+        }
+    }
+}
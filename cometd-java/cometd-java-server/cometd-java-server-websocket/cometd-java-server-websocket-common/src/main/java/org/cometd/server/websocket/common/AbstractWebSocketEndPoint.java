@@ -18,6 +18,7 @@ package org.cometd.server.websocket.common;
 import java.io.IOException;
 import java.net.InetSocketAddress;
 import java.net.SocketTimeoutException;
+import java.nio.ByteBuffer;
 import java.text.ParseException;
 import java.util.ArrayDeque;
 import java.util.ArrayList;
@@ -34,9 +35,12 @@ import org.cometd.bayeux.server.BayeuxContext;
 import org.cometd.bayeux.server.ServerMessage;
 import org.cometd.bayeux.server.ServerSession;
 import org.cometd.common.AsyncFoldLeft;
+import org.cometd.common.JSONContext;
 import org.cometd.server.AbstractServerTransport;
 import org.cometd.server.ServerMessageImpl;
 import org.cometd.server.ServerSessionImpl;
+import org.eclipse.jetty.util.BufferUtil;
+import org.eclipse.jetty.util.ByteArrayOutputStream2;
 import org.eclipse.jetty.util.Callback;
 import org.eclipse.jetty.util.IteratingCallback;
 import org.eclipse.jetty.util.thread.AutoLock;
@@ -51,6 +55,9 @@ public abstract class AbstractWebSocketEndPoint {
     private final AbstractWebSocketTransport _transport;
     private final BayeuxContext _bayeuxContext;
     private ServerSessionImpl _session;
+    private JSONContext.AsyncParser _parser;
+    private long _messageSize;
+    private boolean _discard;
 
     protected AbstractWebSocketEndPoint(AbstractWebSocketTransport transport, BayeuxContext context) {
         this._transport = transport;
@@ -59,8 +66,115 @@ public abstract class AbstractWebSocketEndPoint {
 
     protected abstract void send(ServerSession session, String data, Callback callback);
 
+    /**
+     * <p>Sends the given UTF-8 bytes of a JSON frame in a binary WebSocket frame.</p>
+     * <p>The bytes may be shared with other endpoints, and must not be modified.</p>
+     * <p>This implementation sends the bytes converted to a string in a text frame.</p>
+     *
+     * @param session the session the data is sent to
+     * @param data the UTF-8 bytes to send
+     * @param callback the callback to complete when the data is sent
+     * @see #isBinary()
+     */
+    protected void send(ServerSession session, ByteBuffer data, Callback callback) {
+        send(session, BufferUtil.toUTF8String(data), callback);
+    }
+
+    /**
+     * @return whether the client negotiated {@link AbstractWebSocketTransport#getBinaryProtocol()
+     * the binary subprotocol}, so that messages are sent in binary frames
+     */
+    protected boolean isBinary() {
+        return false;
+    }
+
+    protected boolean isBinaryProtocol(String protocol) {
+        String binaryProtocol = _transport.getBinaryProtocol();
+        return binaryProtocol != null && binaryProtocol.equals(protocol);
+    }
+
     public abstract void close(int code, String reason);
 
+    /**
+     * <p>Parses a fragment of a WebSocket message, and processes the
+     * messages it contains when the last fragment has been parsed.</p>
+     * <p>Text fragments must be converted to UTF-8 bytes before calling
+     * this method. Fragments of the same WebSocket message must be
+     * passed in order, and not concurrently.</p>
+     *
+     * @param fragment the UTF-8 bytes of the fragment
+     * @param last whether this is the last fragment of the WebSocket message
+     * @param p the promise to complete when the fragment has been processed
+     */
+    public void onMessage(ByteBuffer fragment, boolean last, Promise<Void> p) {
+        Promise<Void> promise = Promise.from(p::succeed, failure -> {
+            if (_logger.isDebugEnabled()) {
+                _logger.debug("", failure);
+            }
+            close(1011, failure.toString());
+            p.fail(failure);
+        });
+
+        if (_discard) {
+            // Skip the remaining fragments of a rejected message.
+            _discard = !last;
+            promise.succeed(null);
+            return;
+        }
+
+        long maxMessageSize = _transport.getMaxMessageSize();
+        _messageSize += fragment.remaining();
+        if (maxMessageSize > 0 && _messageSize > maxMessageSize) {
+            _parser = null;
+            _messageSize = 0;
+            _discard = !last;
+            close(1009, "Message too big");
+            promise.succeed(null);
+            return;
+        }
+
+        List<ServerMessage.Mutable> messages = null;
+        try {
+            JSONContext.AsyncParser parser = _parser;
+            if (parser == null) {
+                parser = _parser = _transport.newJSONAsyncParser();
+            }
+            parser.parse(fragment);
+            if (last) {
+                _parser = null;
+                _messageSize = 0;
+                messages = parser.complete();
+            }
+        } catch (Throwable x) {
+            // The parsers report malformed JSON with runtime exceptions.
+            _parser = null;
+            _messageSize = 0;
+            _discard = !last;
+            close(1011, x.toString());
+            _logger.warn("Error parsing JSON on {}", this, x);
+            promise.succeed(null);
+            return;
+        }
+
+        if (!last) {
+            promise.succeed(null);
+            return;
+        }
+
+        if (_logger.isDebugEnabled()) {
+            _logger.debug("Parsed {} messages on {}", messages == null ? -1 : messages.size(), this);
+        }
+        try {
+            if (messages != null) {
+                processMessages(messages.toArray(ServerMessage.Mutable[]::new), promise);
+            } else {
+                promise.succeed(null);
+            }
+        } catch (Throwable x) {
+            promise.fail(x);
+        }
+    }
+
     public void onMessage(String data, Promise<Void> p) {
         Promise<Void> promise = Promise.from(p::succeed, failure -> {
             if (_logger.isDebugEnabled()) {
@@ -293,24 +407,22 @@ public abstract class AbstractWebSocketEndPoint {
     }
 
     protected void flush(Context context, Promise<Void> promise) {
-        List<ServerMessage> msgs = List.of();
-        ServerSessionImpl session = context.session;
-        if (context.sendQueue && session != null) {
-            msgs = session.takeQueue(context.replies);
-        }
-        if (_logger.isDebugEnabled()) {
-            _logger.debug("Flushing {}, replies={}, messages={} on {}", session, context.replies, msgs, this);
-        }
-        List<ServerMessage> messages = msgs;
-        boolean queued = _flusher.queue(new Entry(context, messages, Promise.from(y -> {
-            promise.succeed(null);
-            writeComplete(context, messages);
-        }, promise::fail)));
+        // The session queue is taken by the Flusher when it processes
+        // the entry, so that it is drained into a reusable batch.
+        boolean queued = _flusher.queue(new Entry(context, promise));
         if (queued) {
             _flusher.iterate();
         }
     }
 
+    /**
+     * <p>Invoked after the given messages have been written.</p>
+     * <p>The list of messages is reused after this method returns,
+     * so it must be copied to access the messages afterwards.</p>
+     *
+     * @param context the context of the write
+     * @param messages the messages written
+     */
     protected void writeComplete(Context context, List<ServerMessage> messages) {
     }
 
@@ -318,6 +430,14 @@ public abstract class AbstractWebSocketEndPoint {
         return _transport.toJSON(message);
     }
 
+    private String toJSONFrame(ServerMessage message) {
+        return _transport.toJSONFrame(message);
+    }
+
+    private byte[] toJSONBytes(ServerMessage message) {
+        return _transport.toJSONBytes(message);
+    }
+
     @Override
     public String toString() {
         return String.format("%s@%x[%s]", getClass().getSimpleName(), hashCode(), _flusher);
@@ -476,8 +596,11 @@ public abstract class AbstractWebSocketEndPoint {
     private class Flusher extends IteratingCallback {
         private final AutoLock _lock = new AutoLock();
         private final Queue<Entry> _entries = new ArrayDeque<>();
+        private final List<ServerMessage> _messages = new ArrayList<>();
         private State _state = State.IDLE;
+        private boolean _binary;
         private StringBuilder _buffer;
+        private ByteArrayOutputStream2 _bytes;
         private Entry _entry;
         private int _messageIndex;
         private int _replyIndex;
@@ -509,8 +632,21 @@ public abstract class AbstractWebSocketEndPoint {
                         if (_entry == null) {
                             return Action.IDLE;
                         }
+                        Context context = _entry._context;
+                        ServerSessionImpl session = context.session;
+                        if (context.sendQueue && session != null) {
+                            session.takeQueue(context.replies, _messages);
+                        }
+                        if (_logger.isDebugEnabled()) {
+                            _logger.debug("Flushing {}, replies={}, messages={} on {}", session, context.replies, _messages, AbstractWebSocketEndPoint.this);
+                        }
                         _state = State.HANDSHAKE;
-                        _buffer = new StringBuilder(256);
+                        _binary = isBinary();
+                        if (_binary) {
+                            _bytes = new ByteArrayOutputStream2(256);
+                        } else {
+                            _buffer = new StringBuilder(256);
+                        }
                         break;
                     }
                     case HANDSHAKE: {
@@ -522,24 +658,21 @@ public abstract class AbstractWebSocketEndPoint {
                                 if (_logger.isDebugEnabled()) {
                                     _logger.debug("Processing handshake reply {}", reply);
                                 }
-                                List<ServerMessage> queue = _entry._queue;
-                                if (_transport.allowMessageDeliveryDuringHandshake(_session) && !queue.isEmpty()) {
-                                    reply.put("x-messages", queue.size());
+                                if (_transport.allowMessageDeliveryDuringHandshake(_session) && !_messages.isEmpty()) {
+                                    reply.put("x-messages", _messages.size());
                                 }
                                 _transport.getBayeux().freeze(reply);
-                                _buffer.setLength(0);
-                                _buffer.append("[");
-                                _buffer.append(toJSON(reply));
-                                _buffer.append("]");
+                                begin();
+                                append(reply, false);
                                 ++_replyIndex;
-                                AbstractWebSocketEndPoint.this.send(_session, _buffer.toString(), this);
+                                end();
                                 return Action.SCHEDULED;
                             }
                         }
                         break;
                     }
                     case MESSAGES: {
-                        List<ServerMessage> messages = _entry._queue;
+                        List<ServerMessage> messages = _messages;
                         int size = messages.size();
                         if (_messageIndex < size) {
                             int batchSize = _transport.getMessagesPerFrame();
@@ -547,21 +680,23 @@ public abstract class AbstractWebSocketEndPoint {
                             if (_logger.isDebugEnabled()) {
                                 _logger.debug("Processing messages, batch size {}: {}", batchSize, messages);
                             }
-                            _buffer.setLength(0);
-                            _buffer.append("[");
-                            boolean comma = false;
                             int endIndex = Math.min(size, _messageIndex + batchSize);
-                            while (_messageIndex < endIndex) {
+                            if (endIndex - _messageIndex == 1 && !_binary) {
+                                // Single message text frames are built with a single
+                                // concatenation, rather than via the StringBuilder.
                                 ServerMessage message = messages.get(_messageIndex);
-                                if (comma) {
-                                    _buffer.append(",");
-                                }
-                                comma = true;
-                                _buffer.append(toJSON(message));
                                 ++_messageIndex;
+                                AbstractWebSocketEndPoint.this.send(_session, toJSONFrame(message), this);
+                            } else {
+                                begin();
+                                boolean comma = false;
+                                while (_messageIndex < endIndex) {
+                                    append(messages.get(_messageIndex), comma);
+                                    comma = true;
+                                    ++_messageIndex;
+                                }
+                                end();
                             }
-                            _buffer.append("]");
-                            AbstractWebSocketEndPoint.this.send(_session, _buffer.toString(), this);
                             return Action.SCHEDULED;
                         }
                         // Start the interval timeout after writing the
@@ -577,21 +712,16 @@ public abstract class AbstractWebSocketEndPoint {
                             if (_logger.isDebugEnabled()) {
                                 _logger.debug("Processing replies {}", replies);
                             }
-                            _buffer.setLength(0);
-                            _buffer.append("[");
+                            begin();
                             boolean comma = false;
                             while (_replyIndex < size) {
                                 ServerMessage.Mutable reply = replies.get(_replyIndex);
                                 _transport.getBayeux().freeze(reply);
-                                if (comma) {
-                                    _buffer.append(",");
-                                }
+                                append(reply, comma);
                                 comma = true;
-                                _buffer.append(toJSON(reply));
                                 ++_replyIndex;
                             }
-                            _buffer.append("]");
-                            AbstractWebSocketEndPoint.this.send(_session, _buffer.toString(), this);
+                            end();
                             return Action.SCHEDULED;
                         }
                         _state = State.COMPLETE;
@@ -600,12 +730,15 @@ public abstract class AbstractWebSocketEndPoint {
                     case COMPLETE: {
                         Entry entry = _entry;
                         _state = State.IDLE;
-                        // Do not keep the buffer around while we are idle.
+                        // Do not keep the buffers around while we are idle.
                         _buffer = null;
+                        _bytes = null;
                         _entry = null;
                         _messageIndex = 0;
                         _replyIndex = 0;
                         entry.succeed();
+                        writeComplete(entry._context, _messages);
+                        _messages.clear();
                         break;
                     }
                     default: {
@@ -615,6 +748,43 @@ public abstract class AbstractWebSocketEndPoint {
             }
         }
 
+        private void begin() {
+            if (_binary) {
+                _bytes.reset();
+                _bytes.write('[');
+            } else {
+                _buffer.setLength(0);
+                _buffer.append("[");
+            }
+        }
+
+        private void append(ServerMessage message, boolean comma) {
+            if (_binary) {
+                if (comma) {
+                    _bytes.write(',');
+                }
+                _bytes.writeBytes(toJSONBytes(message));
+            } else {
+                if (comma) {
+                    _buffer.append(",");
+                }
+                _buffer.append(toJSON(message));
+            }
+        }
+
+        private void end() {
+            if (_binary) {
+                _bytes.write(']');
+                // The bytes are not copied, but they are not modified
+                // until this callback is completed and process() is called.
+                ByteBuffer frame = ByteBuffer.wrap(_bytes.getBuf(), 0, _bytes.getCount());
+                AbstractWebSocketEndPoint.this.send(_session, frame, this);
+            } else {
+                _buffer.append("]");
+                AbstractWebSocketEndPoint.this.send(_session, _buffer.toString(), this);
+            }
+        }
+
         @Override
         protected void onCompleteFailure(Throwable x) {
             List<Entry> entries;
@@ -628,6 +798,7 @@ public abstract class AbstractWebSocketEndPoint {
                 entries.addAll(_entries);
                 _entries.clear();
             }
+            _messages.clear();
             entries.forEach(e -> e.fail(x));
         }
 
@@ -645,12 +816,10 @@ public abstract class AbstractWebSocketEndPoint {
 
     private class Entry {
         private final Context _context;
-        private final List<ServerMessage> _queue;
         private final Promise<Void> _promise;
 
-        private Entry(Context context, List<ServerMessage> queue, Promise<Void> promise) {
+        private Entry(Context context, Promise<Void> promise) {
             this._context = context;
-            this._queue = queue;
             this._promise = promise;
         }
 
@@ -672,10 +841,10 @@ public abstract class AbstractWebSocketEndPoint {
 
         @Override
         public String toString() {
-            return String.format("%s@%x[messages=%d,replies=%d]",
+            return String.format("%s@%x[sendQueue=%b,replies=%d]",
                     getClass().getSimpleName(),
                     hashCode(),
-                    _queue.size(),
+                    _context.sendQueue,
                     _context.replies.size());
         }
     }
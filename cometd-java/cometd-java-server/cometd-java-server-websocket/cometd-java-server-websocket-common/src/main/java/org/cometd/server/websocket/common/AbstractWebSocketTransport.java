@@ -18,13 +18,17 @@ package org.cometd.server.websocket.common;
 import java.util.ArrayList;
 import java.util.List;
 import org.cometd.bayeux.server.ServerMessage;
+import org.cometd.common.BufferingJSONAsyncParser;
+import org.cometd.common.JSONContext;
 import org.cometd.server.AbstractServerTransport;
 import org.cometd.server.BayeuxServerImpl;
+import org.cometd.server.JSONContextServer;
 
 public abstract class AbstractWebSocketTransport extends AbstractServerTransport {
     public static final String NAME = "websocket";
     public static final String PREFIX = "ws";
     public static final String PROTOCOL_OPTION = "protocol";
+    public static final String BINARY_PROTOCOL_OPTION = "binaryProtocol";
     public static final String MESSAGES_PER_FRAME_OPTION = "messagesPerFrame";
     public static final String BUFFER_SIZE_OPTION = "bufferSize";
     public static final String IDLE_TIMEOUT_OPTION = "idleTimeout";
@@ -33,6 +37,7 @@ public abstract class AbstractWebSocketTransport extends AbstractServerTransport
     public static final String ENABLE_EXTENSION_PREFIX_OPTION = "enableExtension.";
 
     private String _protocol;
+    private String _binaryProtocol;
     private int _messagesPerFrame;
     private boolean _requireHandshakePerConnection;
 
@@ -45,6 +50,7 @@ public abstract class AbstractWebSocketTransport extends AbstractServerTransport
     public void init() {
         super.init();
         _protocol = getOption(PROTOCOL_OPTION, null);
+        _binaryProtocol = getOption(BINARY_PROTOCOL_OPTION, null);
         _messagesPerFrame = getOption(MESSAGES_PER_FRAME_OPTION, 1);
         _requireHandshakePerConnection = getOption(REQUIRE_HANDSHAKE_PER_CONNECTION_OPTION, false);
     }
@@ -53,6 +59,19 @@ public abstract class AbstractWebSocketTransport extends AbstractServerTransport
         return _protocol;
     }
 
+    /**
+     * <p>Returns the WebSocket subprotocol that clients can negotiate
+     * to receive messages in binary frames.</p>
+     * <p>Binary frames carry the UTF-8 bytes of the JSON that are cached by
+     * frozen messages, so that the JSON is not encoded again for every
+     * subscriber as it happens for text frames.</p>
+     *
+     * @return the binary WebSocket subprotocol, or null if binary frames are disabled
+     */
+    public String getBinaryProtocol() {
+        return _binaryProtocol;
+    }
+
     public int getMessagesPerFrame() {
         return _messagesPerFrame;
     }
@@ -79,12 +98,40 @@ public abstract class AbstractWebSocketTransport extends AbstractServerTransport
     protected void onClose(int code, String reason) {
     }
 
+    /**
+     * <p>Returns a new non-blocking parser for the messages received by WebSocket endpoints.</p>
+     * <p>Endpoints feed the parser with the fragments of a WebSocket message as they arrive,
+     * so that the whole message does not need to be aggregated before parsing.</p>
+     *
+     * @return a new non-blocking JSON parser
+     */
+    protected JSONContext.AsyncParser newJSONAsyncParser() {
+        JSONContextServer jsonContext = getJSONContextServer();
+        JSONContext.AsyncParser parser = jsonContext.newAsyncParser();
+        if (parser == null) {
+            parser = new BufferingJSONAsyncParser(jsonContext);
+        }
+        return parser;
+    }
+
     // Overridden for visibility.
     @Override
     protected String toJSON(ServerMessage message) {
         return super.toJSON(message);
     }
 
+    // Overridden for visibility.
+    @Override
+    protected String toJSONFrame(ServerMessage message) {
+        return super.toJSONFrame(message);
+    }
+
+    // Overridden for visibility.
+    @Override
+    protected byte[] toJSONBytes(ServerMessage message) {
+        return super.toJSONBytes(message);
+    }
+
     protected void writeComplete(AbstractWebSocketEndPoint.Context context, List<ServerMessage> messages) {
     }
 }
@@ -15,6 +15,8 @@
  */
 package org.cometd.server.websocket.javax;
 
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
 import java.util.concurrent.ExecutionException;
 import jakarta.websocket.CloseReason;
@@ -32,7 +34,7 @@ import org.eclipse.jetty.util.Callback;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-public class WebSocketEndPoint extends Endpoint implements MessageHandler.Whole<String> {
+public class WebSocketEndPoint extends Endpoint implements MessageHandler.Partial<String> {
     private final Logger _logger = LoggerFactory.getLogger(getClass());
     private final AbstractWebSocketEndPoint _delegate;
     private volatile Session _wsSession;
@@ -45,17 +47,22 @@ public class WebSocketEndPoint extends Endpoint implements MessageHandler.Whole<
     public void onOpen(Session wsSession, EndpointConfig config) {
         _wsSession = wsSession;
         wsSession.addMessageHandler(this);
+        wsSession.addMessageHandler(ByteBuffer.class, (MessageHandler.Partial<ByteBuffer>)this::onMessage);
     }
 
     @Override
-    public void onMessage(String data) {
+    public void onMessage(String data, boolean last) {
         if (_logger.isDebugEnabled()) {
-            _logger.debug("WebSocket Text message on {}", this);
+            _logger.debug("WebSocket Text fragment, last={} on {}", last, this);
         }
+        onMessage(StandardCharsets.UTF_8.encode(data), last);
+    }
+
+    private void onMessage(ByteBuffer data, boolean last) {
         try {
             try {
                 Promise.Completable<Void> completable = new Promise.Completable<>();
-                _delegate.onMessage(data, completable);
+                _delegate.onMessage(data, last, completable);
                 // Wait, to apply backpressure to the client.
                 completable.get();
             } catch (ExecutionException x) {
@@ -108,6 +115,27 @@ public class WebSocketEndPoint extends Endpoint implements MessageHandler.Whole<
             });
         }
 
+        @Override
+        protected void send(ServerSession session, ByteBuffer data, Callback callback) {
+            if (_logger.isDebugEnabled()) {
+                _logger.debug("Sending {} bytes on {}", data.remaining(), this);
+            }
+            // Async write.
+            _wsSession.getAsyncRemote().sendBinary(data, result -> {
+                Throwable failure = result.getException();
+                if (failure == null) {
+                    callback.succeeded();
+                } else {
+                    callback.failed(failure);
+                }
+            });
+        }
+
+        @Override
+        protected boolean isBinary() {
+            return isBinaryProtocol(_wsSession.getNegotiatedSubprotocol());
+        }
+
         @Override
         public void close(int code, String reason) {
             try {
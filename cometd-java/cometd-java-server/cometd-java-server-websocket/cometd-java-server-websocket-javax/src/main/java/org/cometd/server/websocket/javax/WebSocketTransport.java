@@ -71,12 +71,23 @@ public class WebSocketTransport extends AbstractWebSocketTransport {
             maxMessageSize = container.getDefaultMaxTextMessageBufferSize();
         }
         container.setDefaultMaxTextMessageBufferSize((int)maxMessageSize);
+        container.setDefaultMaxBinaryMessageBufferSize((int)maxMessageSize);
+        // Messages are received in fragments, so the
+        // container does not enforce the max message size.
+        setMaxMessageSize((int)maxMessageSize);
 
         long idleTimeout = getOption(IDLE_TIMEOUT_OPTION, container.getDefaultMaxSessionIdleTimeout());
         container.setDefaultMaxSessionIdleTimeout(idleTimeout);
 
+        List<String> protocols = new ArrayList<>();
+        String binaryProtocol = getBinaryProtocol();
+        if (binaryProtocol != null) {
+            protocols.add(binaryProtocol);
+        }
         String protocol = getProtocol();
-        List<String> protocols = protocol == null ? null : List.of(protocol);
+        if (protocol != null) {
+            protocols.add(protocol);
+        }
 
         Configurator configurator = new Configurator(context);
 
@@ -197,12 +208,16 @@ public class WebSocketTransport extends AbstractWebSocketTransport {
         }
 
         private boolean checkProtocol(List<String> serverProtocols, List<String> clientProtocols) {
-            if (serverProtocols.isEmpty()) {
+            // The binary protocol is optional, so it
+            // cannot replace the configured protocols.
+            List<String> requiredProtocols = new ArrayList<>(serverProtocols);
+            requiredProtocols.remove(getBinaryProtocol());
+            if (requiredProtocols.isEmpty()) {
                 return true;
             }
 
             for (String clientProtocol : clientProtocols) {
-                if (serverProtocols.contains(clientProtocol)) {
+                if (requiredProtocols.contains(clientProtocol)) {
                     return true;
                 }
             }
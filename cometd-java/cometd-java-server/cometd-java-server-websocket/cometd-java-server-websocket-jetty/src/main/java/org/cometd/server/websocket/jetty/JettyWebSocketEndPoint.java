@@ -15,6 +15,8 @@
  */
 package org.cometd.server.websocket.jetty;
 
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import org.cometd.bayeux.Promise;
 import org.cometd.bayeux.server.BayeuxContext;
 import org.cometd.bayeux.server.ServerSession;
@@ -22,14 +24,15 @@ import org.cometd.server.websocket.common.AbstractWebSocketEndPoint;
 import org.eclipse.jetty.util.Callback;
 import org.eclipse.jetty.websocket.api.Session;
 import org.eclipse.jetty.websocket.api.SuspendToken;
-import org.eclipse.jetty.websocket.api.WebSocketListener;
+import org.eclipse.jetty.websocket.api.WebSocketPartialListener;
 import org.eclipse.jetty.websocket.api.WriteCallback;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-public class JettyWebSocketEndPoint extends AbstractWebSocketEndPoint implements WebSocketListener {
+public class JettyWebSocketEndPoint extends AbstractWebSocketEndPoint implements WebSocketPartialListener {
     private final Logger _logger = LoggerFactory.getLogger(getClass());
     private volatile Session _wsSession;
+    private volatile boolean _binary;
 
     public JettyWebSocketEndPoint(JettyWebSocketTransport transport, BayeuxContext context) {
         super(transport, context);
@@ -38,17 +41,28 @@ public class JettyWebSocketEndPoint extends AbstractWebSocketEndPoint implements
     @Override
     public void onWebSocketConnect(Session session) {
         _wsSession = session;
+        _binary = isBinaryProtocol(session.getUpgradeResponse().getAcceptedSubProtocol());
     }
 
     @Override
-    public void onWebSocketBinary(byte[] payload, int offset, int len) {
+    public void onWebSocketPartialBinary(ByteBuffer payload, boolean fin) {
+        onWebSocketPartial(payload, fin);
     }
 
     @Override
-    public void onWebSocketText(String data) {
+    public void onWebSocketPartialText(String payload, boolean fin) {
+        onWebSocketPartial(StandardCharsets.UTF_8.encode(payload), fin);
+    }
+
+    private void onWebSocketPartial(ByteBuffer fragment, boolean fin) {
         try {
-            SuspendToken suspendToken = _wsSession.suspend();
-            onMessage(data, Promise.from(v -> suspendToken.resume(), this::handleFailure));
+            if (fin) {
+                // Suspend to apply backpressure while the messages are processed.
+                SuspendToken suspendToken = _wsSession.suspend();
+                onMessage(fragment, true, Promise.from(v -> suspendToken.resume(), this::handleFailure));
+            } else {
+                onMessage(fragment, false, Promise.from(v -> {}, this::handleFailure));
+            }
         } catch (Throwable failure) {
             handleFailure(failure);
         }
@@ -84,6 +98,31 @@ public class JettyWebSocketEndPoint extends AbstractWebSocketEndPoint implements
         });
     }
 
+    @Override
+    protected void send(ServerSession session, ByteBuffer data, Callback callback) {
+        if (_logger.isDebugEnabled()) {
+            _logger.debug("Sending {} bytes on {}", data.remaining(), this);
+        }
+
+        // Async version.
+        _wsSession.getRemote().sendBytes(data, new WriteCallback() {
+            @Override
+            public void writeSuccess() {
+                callback.succeeded();
+            }
+
+            @Override
+            public void writeFailed(Throwable x) {
+                callback.failed(x);
+            }
+        });
+    }
+
+    @Override
+    protected boolean isBinary() {
+        return _binary;
+    }
+
     @Override
     public void close(int code, String reason) {
         if (_logger.isDebugEnabled()) {
@@ -68,6 +68,10 @@ public class JettyWebSocketTransport extends AbstractWebSocketTransport {
             maxMessageSize = container.getMaxTextMessageSize();
         }
         container.setMaxTextMessageSize(maxMessageSize);
+        container.setMaxBinaryMessageSize(maxMessageSize);
+        // Messages are received in fragments, so the
+        // container does not enforce the max message size.
+        setMaxMessageSize((int)maxMessageSize);
 
         long idleTimeout = getOption(IDLE_TIMEOUT_OPTION, container.getIdleTimeout().toMillis());
         container.setIdleTimeout(Duration.ofMillis(idleTimeout));
@@ -89,6 +93,11 @@ public class JettyWebSocketTransport extends AbstractWebSocketTransport {
                     }
                     response.setExtensions(negotiated);
 
+                    String binaryProtocol = getBinaryProtocol();
+                    if (binaryProtocol != null && request.hasSubProtocol(binaryProtocol)) {
+                        response.setAcceptedSubProtocol(binaryProtocol);
+                    }
+
                     modifyUpgrade(request, response);
 
                     List<String> allowedTransports = getBayeux().getAllowedTransports();
@@ -0,0 +1,163 @@
+/*
+ * Copyright (c) 2008-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.cometd.server.websocket;
+
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import jakarta.websocket.WebSocketContainer;
+import org.cometd.bayeux.Promise;
+import org.cometd.bayeux.client.ClientSessionChannel;
+import org.cometd.bayeux.server.ServerChannel;
+import org.cometd.client.BayeuxClient;
+import org.cometd.client.transport.ClientTransport;
+import org.cometd.client.websocket.javax.WebSocketTransport;
+import org.cometd.client.websocket.jetty.JettyWebSocketTransport;
+import org.cometd.server.websocket.common.AbstractWebSocketTransport;
+import org.eclipse.jetty.websocket.client.WebSocketClient;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Assumptions;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+
+public class BinaryProtocolTest extends ClientServerWebSocketTest {
+    private static final String BINARY_PROTOCOL = "cometd-binary";
+
+    private final AtomicInteger binaryFrames = new AtomicInteger();
+
+    @Override
+    protected ClientTransport newWebSocketTransport(String url, Map<String, Object> options, WebSocketContainer wsContainer) {
+        return new WebSocketTransport(url, options, null, wsContainer) {
+            @Override
+            protected WebSocketDelegate newDelegate() {
+                return new WebSocketDelegate() {
+                    @Override
+                    protected void onData(ByteBuffer data) {
+                        binaryFrames.incrementAndGet();
+                        super.onData(data);
+                    }
+                };
+            }
+        };
+    }
+
+    @Override
+    protected ClientTransport newJettyWebSocketTransport(String url, Map<String, Object> options, WebSocketClient wsClient) {
+        return new JettyWebSocketTransport(url, options, null, wsClient) {
+            @Override
+            protected Delegate newDelegate() {
+                return new JettyWebSocketDelegate() {
+                    @Override
+                    protected void onData(ByteBuffer data) {
+                        binaryFrames.incrementAndGet();
+                        super.onData(data);
+                    }
+                };
+            }
+        };
+    }
+
+    @ParameterizedTest
+    @MethodSource("wsTypes")
+    public void testBinaryFrames(String wsType) throws Exception {
+        // OkHttp does not support binary frames.
+        Assumptions.assumeFalse(wsType.equals(WEBSOCKET_OKHTTP));
+
+        Map<String, String> serverOptions = new HashMap<>();
+        serverOptions.put(AbstractWebSocketTransport.BINARY_PROTOCOL_OPTION, BINARY_PROTOCOL);
+        serverOptions.put(AbstractWebSocketTransport.MESSAGES_PER_FRAME_OPTION, "4");
+        prepareAndStart(wsType, serverOptions);
+
+        Map<String, Object> clientOptions = new HashMap<>();
+        clientOptions.put(org.cometd.client.websocket.common.AbstractWebSocketTransport.BINARY_PROTOCOL_OPTION, BINARY_PROTOCOL);
+        BayeuxClient client = new BayeuxClient(cometdURL, newWebSocketTransport(wsType, clientOptions));
+
+        testDelivery(client);
+        Assertions.assertTrue(binaryFrames.get() > 0);
+
+        disconnectBayeuxClient(client);
+    }
+
+    @ParameterizedTest
+    @MethodSource("wsTypes")
+    public void testBinaryProtocolNotRequestedByClient(String wsType) throws Exception {
+        Map<String, String> serverOptions = new HashMap<>();
+        serverOptions.put(AbstractWebSocketTransport.BINARY_PROTOCOL_OPTION, BINARY_PROTOCOL);
+        prepareAndStart(wsType, serverOptions);
+
+        BayeuxClient client = newBayeuxClient(wsType);
+
+        testDelivery(client);
+        Assertions.assertEquals(0, binaryFrames.get());
+
+        disconnectBayeuxClient(client);
+    }
+
+    @ParameterizedTest
+    @MethodSource("wsTypes")
+    public void testBinaryProtocolDoesNotReplaceRequiredProtocol(String wsType) throws Exception {
+        // Only the javax server transport enforces the configured protocol.
+        Assumptions.assumeTrue(wsType.equals(WEBSOCKET_JSR356));
+
+        Map<String, String> serverOptions = new HashMap<>();
+        serverOptions.put(AbstractWebSocketTransport.PROTOCOL_OPTION, "bayeux");
+        serverOptions.put(AbstractWebSocketTransport.BINARY_PROTOCOL_OPTION, BINARY_PROTOCOL);
+        prepareAndStart(wsType, serverOptions);
+
+        Map<String, Object> clientOptions = new HashMap<>();
+        clientOptions.put(org.cometd.client.websocket.common.AbstractWebSocketTransport.BINARY_PROTOCOL_OPTION, BINARY_PROTOCOL);
+        BayeuxClient client = new BayeuxClient(cometdURL, newWebSocketTransport(wsType, clientOptions));
+
+        CountDownLatch latch = new CountDownLatch(1);
+        client.handshake(message -> {
+            if (!message.isSuccessful()) {
+                latch.countDown();
+            }
+        });
+
+        Assertions.assertTrue(latch.await(5, TimeUnit.SECONDS));
+
+        disconnectBayeuxClient(client);
+    }
+
+    private void testDelivery(BayeuxClient client) throws Exception {
+        String channelName = "/binary";
+        int count = 10;
+        CountDownLatch messageLatch = new CountDownLatch(count);
+        CountDownLatch subscribeLatch = new CountDownLatch(1);
+        client.handshake(message -> {
+            if (message.isSuccessful()) {
+                ClientSessionChannel channel = client.getChannel(channelName);
+                channel.subscribe((c, m) -> {
+                    if ("€ data".equals(m.getData())) {
+                        messageLatch.countDown();
+                    }
+                }, m -> subscribeLatch.countDown());
+            }
+        });
+        Assertions.assertTrue(subscribeLatch.await(5, TimeUnit.SECONDS));
+
+        ServerChannel channel = bayeux.getChannel(channelName);
+        for (int i = 0; i < count; ++i) {
+            channel.publish(null, "€ data", Promise.noop());
+        }
+
+        Assertions.assertTrue(messageLatch.await(5, TimeUnit.SECONDS));
+    }
+}
@@ -0,0 +1,135 @@
+/*
+ * Copyright (c) 2008-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.cometd.server.websocket;
+
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import org.cometd.server.AbstractServerTransport;
+import org.eclipse.jetty.websocket.api.RemoteEndpoint;
+import org.eclipse.jetty.websocket.api.Session;
+import org.eclipse.jetty.websocket.api.WebSocketAdapter;
+import org.eclipse.jetty.websocket.client.WebSocketClient;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Assumptions;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+
+public class FragmentedMessageTest extends ClientServerWebSocketTest {
+    private static final String HANDSHAKE = "[{" +
+            "\"id\":\"1\"," +
+            "\"channel\":\"/meta/handshake\"," +
+            "\"version\":\"1.0\"," +
+            "\"supportedConnectionTypes\":[\"websocket\"]" +
+            "}]";
+
+    @ParameterizedTest
+    @MethodSource("wsTypes")
+    public void testFragmentedTextMessage(String wsType) throws Exception {
+        // The OkHttp client uses the same server as JSR356.
+        Assumptions.assumeFalse(wsType.equals(WEBSOCKET_OKHTTP));
+
+        prepareAndStart(wsType, Map.of());
+
+        Listener listener = new Listener();
+        Session session = connect(listener);
+        RemoteEndpoint remote = session.getRemote();
+        int half = HANDSHAKE.length() / 2;
+        remote.sendPartialString(HANDSHAKE.substring(0, half), false);
+        remote.sendPartialString(HANDSHAKE.substring(half), true);
+
+        String reply = listener.messages.poll(5, TimeUnit.SECONDS);
+        Assertions.assertNotNull(reply);
+        Assertions.assertTrue(reply.contains("\"successful\":true"), reply);
+
+        session.close();
+    }
+
+    @ParameterizedTest
+    @MethodSource("wsTypes")
+    public void testFragmentedBinaryMessage(String wsType) throws Exception {
+        Assumptions.assumeFalse(wsType.equals(WEBSOCKET_OKHTTP));
+
+        prepareAndStart(wsType, Map.of());
+
+        Listener listener = new Listener();
+        Session session = connect(listener);
+        RemoteEndpoint remote = session.getRemote();
+        byte[] bytes = HANDSHAKE.getBytes(StandardCharsets.UTF_8);
+        for (int i = 0; i < bytes.length; i += 16) {
+            int length = Math.min(16, bytes.length - i);
+            remote.sendPartialBytes(ByteBuffer.wrap(bytes, i, length), i + length == bytes.length);
+        }
+
+        String reply = listener.messages.poll(5, TimeUnit.SECONDS);
+        Assertions.assertNotNull(reply);
+        Assertions.assertTrue(reply.contains("\"successful\":true"), reply);
+
+        session.close();
+    }
+
+    @ParameterizedTest
+    @MethodSource("wsTypes")
+    public void testFragmentedMessageTooBig(String wsType) throws Exception {
+        Assumptions.assumeFalse(wsType.equals(WEBSOCKET_OKHTTP));
+
+        int maxMessageSize = 64;
+        prepareAndStart(wsType, Map.of(AbstractServerTransport.MAX_MESSAGE_SIZE_OPTION, String.valueOf(maxMessageSize)));
+
+        Listener listener = new Listener();
+        Session session = connect(listener);
+        RemoteEndpoint remote = session.getRemote();
+        // Each fragment is within the limit, but the whole message is not.
+        int half = HANDSHAKE.length() / 2;
+        Assertions.assertTrue(half < maxMessageSize);
+        Assertions.assertTrue(HANDSHAKE.length() > maxMessageSize);
+        remote.sendPartialString(HANDSHAKE.substring(0, half), false);
+        remote.sendPartialString(HANDSHAKE.substring(half), true);
+
+        Assertions.assertTrue(listener.closeLatch.await(5, TimeUnit.SECONDS));
+        Assertions.assertEquals(1009, listener.closeCode);
+        Assertions.assertNull(listener.messages.poll());
+    }
+
+    private Session connect(Listener listener) throws Exception {
+        WebSocketClient client = new WebSocketClient(httpClient);
+        httpClient.addBean(client, true);
+        client.start();
+        return client.connect(listener, URI.create(cometdURL.replaceFirst("^http", "ws"))).get(5, TimeUnit.SECONDS);
+    }
+
+    private static class Listener extends WebSocketAdapter {
+        private final BlockingQueue<String> messages = new LinkedBlockingQueue<>();
+        private final CountDownLatch closeLatch = new CountDownLatch(1);
+        private volatile int closeCode;
+
+        @Override
+        public void onWebSocketText(String message) {
+            messages.offer(message);
+        }
+
+        @Override
+        public void onWebSocketClose(int statusCode, String reason) {
+            closeCode = statusCode;
+            closeLatch.countDown();
+        }
+    }
+}
@@ -18,6 +18,7 @@ package org.cometd.tests;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
 import org.cometd.bayeux.Promise;
@@ -26,6 +27,7 @@ import org.cometd.bayeux.server.ServerMessage;
 import org.cometd.bayeux.server.ServerSession;
 import org.cometd.client.BayeuxClient;
 import org.cometd.client.ext.AckExtension;
+import org.cometd.server.BayeuxServerImpl;
 import org.cometd.server.ext.AcknowledgedMessagesExtension;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.params.ParameterizedTest;
@@ -83,4 +85,65 @@ public class AckExtensionTest extends AbstractClientServerTest {
 
         disconnectBayeuxClient(client);
     }
+
+    @ParameterizedTest
+    @MethodSource("transports")
+    public void testConcurrentDeliveryWithLockFreeSessionQueue(Transport transport) throws Exception {
+        Map<String, String> options = serverOptions(transport);
+        options.put(BayeuxServerImpl.LOCK_FREE_SESSION_QUEUE_OPTION, "true");
+        start(transport, options);
+        bayeux.addExtension(new AcknowledgedMessagesExtension());
+
+        String channelName = "/ack_concurrent";
+        int producers = 4;
+        int count = 250;
+
+        BayeuxClient client = newBayeuxClient(transport);
+        client.addExtension(new AckExtension());
+        List<String> received = new CopyOnWriteArrayList<>();
+        CountDownLatch readyLatch = new CountDownLatch(1);
+        CountDownLatch messageLatch = new CountDownLatch(producers * count);
+        client.handshake(hsReply -> {
+            if (hsReply.isSuccessful()) {
+                ClientSessionChannel clientChannel = client.getChannel(channelName);
+                clientChannel.subscribe((channel, message) -> {
+                    received.add((String)message.getData());
+                    messageLatch.countDown();
+                }, reply -> readyLatch.countDown());
+            }
+        });
+        Assertions.assertTrue(readyLatch.await(5, TimeUnit.SECONDS));
+
+        ServerSession serverSession = bayeux.getSession(client.getId());
+        CountDownLatch startLatch = new CountDownLatch(1);
+        for (int p = 0; p < producers; ++p) {
+            String prefix = p + "_";
+            new Thread(() -> {
+                try {
+                    startLatch.await();
+                    for (int i = 0; i < count; ++i) {
+                        serverSession.deliver(null, channelName, prefix + i, Promise.noop());
+                    }
+                } catch (InterruptedException x) {
+                    // Ignored.
+                }
+            }).start();
+        }
+        startLatch.countDown();
+
+        Assertions.assertTrue(messageLatch.await(15, TimeUnit.SECONDS));
+        // Wait for duplicates, if any.
+        Thread.sleep(500);
+
+        // Each message is delivered exactly once, in the order of its producer.
+        Assertions.assertEquals(producers * count, received.size());
+        int[] expected = new int[producers];
+        for (String data : received) {
+            String[] parts = data.split("_");
+            int producer = Integer.parseInt(parts[0]);
+            Assertions.assertEquals(expected[producer]++, Integer.parseInt(parts[1]));
+        }
+
+        disconnectBayeuxClient(client);
+    }
 }
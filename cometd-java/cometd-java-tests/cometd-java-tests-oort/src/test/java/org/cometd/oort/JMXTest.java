@@ -89,6 +89,7 @@ public class JMXTest {
         @SuppressWarnings("unchecked")
         Set<String> observedChannels = (Set<String>)mbeanServer.getAttribute(objectName, "observedChannels");
         Assertions.assertTrue(observedChannels.contains(channel));
+        Assertions.assertNotNull(mbeanServer.getAttribute(objectName, "channelMetrics"));
 
         domain = Seti.class.getPackage().getName();
         mbeanNames = mbeanServer.queryNames(ObjectName.getInstance(domain + ":*,type=seti"), null);
@@ -0,0 +1,173 @@
+/*
+ * Copyright (c) 2008-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.cometd.oort;
+
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.jetty.server.Server;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+
+public class OortDiscoveryTest extends OortTest {
+    private final List<OortDiscovery> discoveries = new ArrayList<>();
+    @TempDir
+    public Path directory;
+
+    private <T extends OortDiscovery> T startDiscovery(T discovery) throws Exception {
+        discoveries.add(discovery);
+        discovery.start();
+        return discovery;
+    }
+
+    @AfterEach
+    public void stopDiscoveries() throws Exception {
+        for (int i = discoveries.size() - 1; i >= 0; --i) {
+            discoveries.get(i).stop();
+        }
+    }
+
+    @ParameterizedTest
+    @MethodSource("transports")
+    public void testFileDiscovery(String serverTransport) throws Exception {
+        Server server1 = startServer(serverTransport, 0);
+        Oort oort1 = startOort(server1);
+        Server server2 = startServer(serverTransport, 0);
+        Oort oort2 = startOort(server2);
+
+        CountDownLatch joinedLatch = new CountDownLatch(2);
+        oort1.addCometListener(new CometJoinedListener(joinedLatch));
+        oort2.addCometListener(new CometJoinedListener(joinedLatch));
+
+        OortFileDiscovery discovery1 = new OortFileDiscovery(oort1, directory);
+        discovery1.setScanInterval(100);
+        startDiscovery(discovery1);
+        OortFileDiscovery discovery2 = new OortFileDiscovery(oort2, directory);
+        discovery2.setScanInterval(100);
+        startDiscovery(discovery2);
+
+        Assertions.assertTrue(joinedLatch.await(5, TimeUnit.SECONDS));
+        // The comets may join before both discoveries processed the files.
+        awaitCometURLs(discovery1, Set.of(oort2.getURL()));
+        awaitCometURLs(discovery2, Set.of(oort1.getURL()));
+
+        // Stopping the discovery of a comet deletes its file.
+        CountDownLatch leftLatch = new CountDownLatch(1);
+        oort1.addCometListener(new CometLeftListener(leftLatch));
+        discovery2.stop();
+
+        Assertions.assertTrue(leftLatch.await(5, TimeUnit.SECONDS));
+        awaitCometURLs(discovery1, Set.of());
+    }
+
+    @ParameterizedTest
+    @MethodSource("transports")
+    public void testFileDiscoveryExpiresFilesOfCrashedComets(String serverTransport) throws Exception {
+        Server server1 = startServer(serverTransport, 0);
+        Oort oort1 = startOort(server1);
+        Server server2 = startServer(serverTransport, 0);
+        Oort oort2 = startOort(server2);
+
+        long leaseTimeout = 1000;
+        // The stale file of a comet that crashed long ago.
+        Path staleFile = directory.resolve("stale.oort");
+        Files.writeString(staleFile, "http://localhost:1/cometd", StandardCharsets.UTF_8);
+        Files.setLastModifiedTime(staleFile, FileTime.fromMillis(System.currentTimeMillis() - 2 * leaseTimeout));
+        // The file of a comet that crashed just now, which is not renewed.
+        Path crashedFile = directory.resolve("crashed.oort");
+        Files.writeString(crashedFile, oort2.getURL(), StandardCharsets.UTF_8);
+
+        CountDownLatch joinedLatch = new CountDownLatch(1);
+        oort1.addCometListener(new CometJoinedListener(joinedLatch));
+        OortFileDiscovery discovery1 = new OortFileDiscovery(oort1, directory);
+        discovery1.setScanInterval(100);
+        discovery1.setLeaseTimeout(leaseTimeout);
+        startDiscovery(discovery1);
+
+        Assertions.assertTrue(joinedLatch.await(5, TimeUnit.SECONDS));
+        awaitCometURLs(discovery1, Set.of(oort2.getURL()));
+        Assertions.assertFalse(Files.exists(staleFile));
+
+        // The lease of the crashed comet expires.
+        CountDownLatch leftLatch = new CountDownLatch(1);
+        oort1.addCometListener(new CometLeftListener(leftLatch));
+        Assertions.assertTrue(leftLatch.await(5, TimeUnit.SECONDS));
+        awaitCometURLs(discovery1, Set.of());
+        Assertions.assertFalse(Files.exists(crashedFile));
+
+        // The file of the live comet is renewed, and not expired.
+        Thread.sleep(2 * leaseTimeout);
+        Assertions.assertTrue(Files.exists(directory.resolve(Oort.replacePunctuation(oort1.getURL(), '_') + ".oort")));
+    }
+
+    private void awaitCometURLs(OortDiscovery discovery, Set<String> expected) throws Exception {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!expected.equals(discovery.getCometURLs()) && System.nanoTime() < deadline) {
+            Thread.sleep(50);
+        }
+        Assertions.assertEquals(expected, discovery.getCometURLs());
+    }
+
+    @ParameterizedTest
+    @MethodSource("transports")
+    public void testSrvDiscovery(String serverTransport) throws Exception {
+        Server server1 = startServer(serverTransport, 0);
+        Oort oort1 = startOort(server1);
+        Server server2 = startServer(serverTransport, 0);
+        Oort oort2 = startOort(server2);
+
+        String name = "_cometd._tcp.example.com";
+        List<OortSrvDiscovery.Record> records = new CopyOnWriteArrayList<>();
+        records.add(OortSrvDiscovery.Record.parse("10 5 " + URI.create(oort1.getURL()).getPort() + " localhost."));
+        OortSrvDiscovery.Resolver resolver = n -> name.equals(n) ? records : List.of();
+
+        CountDownLatch joinedLatch = new CountDownLatch(2);
+        oort1.addCometListener(new CometJoinedListener(joinedLatch));
+        oort2.addCometListener(new CometJoinedListener(joinedLatch));
+
+        OortSrvDiscovery discovery1 = new OortSrvDiscovery(oort1, name, resolver);
+        discovery1.setRefreshInterval(100);
+        startDiscovery(discovery1);
+
+        // Only the local comet is resolved.
+        Thread.sleep(500);
+        awaitCometURLs(discovery1, Set.of());
+
+        records.add(new OortSrvDiscovery.Record(10, 5, URI.create(oort2.getURL()).getPort(), "localhost"));
+
+        Assertions.assertTrue(joinedLatch.await(5, TimeUnit.SECONDS));
+        awaitCometURLs(discovery1, Set.of(oort2.getURL()));
+
+        CountDownLatch leftLatch = new CountDownLatch(1);
+        oort1.addCometListener(new CometLeftListener(leftLatch));
+        records.remove(1);
+
+        Assertions.assertTrue(leftLatch.await(5, TimeUnit.SECONDS));
+        awaitCometURLs(discovery1, Set.of());
+    }
+}
@@ -18,6 +18,7 @@ package org.cometd.oort;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.CyclicBarrier;
 import java.util.concurrent.TimeUnit;
@@ -223,6 +224,53 @@ public class OortListTest extends AbstractOortObjectTest {
         oortList1.removeElementListener(addedListener);
     }
 
+    @ParameterizedTest
+    @MethodSource("transports")
+    public void testBatchWindow(String serverTransport) throws Exception {
+        prepare(serverTransport);
+
+        String name = "test";
+        OortObject.Factory<List<String>> factory = OortObjectFactories.forConcurrentList();
+        OortList<String> oortList1 = new OortList<>(oort1, name, factory);
+        OortList<String> oortList2 = new OortList<>(oort2, name, factory);
+        oortList1.setBatchWindow(500);
+        startOortObjects(oortList1, oortList2);
+
+        CountDownLatch latch = new CountDownLatch(1);
+        oortList2.addElementListener(new OortList.ElementListener<>() {
+            @Override
+            public void onAdded(OortObject.Info<List<String>> info, List<String> elements) {
+                if (elements.contains("last")) {
+                    latch.countDown();
+                }
+            }
+        });
+
+        OortObject.Result.Deferred<Boolean> result1 = new OortObject.Result.Deferred<>();
+        oortList1.addAndShare(result1, "A", "B");
+        OortObject.Result.Deferred<Boolean> result2 = new OortObject.Result.Deferred<>();
+        oortList1.addAndShare(result2, "C");
+        OortObject.Result.Deferred<Boolean> result3 = new OortObject.Result.Deferred<>();
+        oortList1.removeAndShare(result3, "B");
+        OortObject.Result.Deferred<Boolean> result4 = new OortObject.Result.Deferred<>();
+        oortList1.removeAndShare(result4, "X");
+        OortObject.Result.Deferred<Boolean> result5 = new OortObject.Result.Deferred<>();
+        oortList1.addAndShare(result5, "last");
+
+        Assertions.assertTrue(result1.get(5, TimeUnit.SECONDS));
+        Assertions.assertTrue(result2.get(5, TimeUnit.SECONDS));
+        Assertions.assertTrue(result3.get(5, TimeUnit.SECONDS));
+        Assertions.assertFalse(result4.get(5, TimeUnit.SECONDS));
+        Assertions.assertTrue(result5.get(5, TimeUnit.SECONDS));
+
+        Assertions.assertTrue(latch.await(5, TimeUnit.SECONDS));
+        List<String> expected = List.of("A", "C", "last");
+        Assertions.assertEquals(expected, oortList1.getInfo(oort1.getURL()).getObject());
+        Assertions.assertEquals(expected, oortList2.getInfo(oort1.getURL()).getObject());
+        Assertions.assertTrue(oortList2.isPresent("C"));
+        Assertions.assertFalse(oortList2.isPresent("B"));
+    }
+
     @ParameterizedTest
     @MethodSource("transports")
     public void testConcurrent(String serverTransport) throws Exception {
@@ -279,4 +327,34 @@ public class OortListTest extends AbstractOortObjectTest {
         Collections.sort(list2);
         Assertions.assertEquals(list1, list2);
     }
+
+    @ParameterizedTest
+    @MethodSource("transports")
+    public void testPatchKeepsElementPositions(String serverTransport) throws Exception {
+        prepare(serverTransport);
+
+        OortList<Long> oortList = new OortList<>(oort1, "test", OortObjectFactories.forConcurrentList());
+
+        List<Long> original = new ArrayList<>();
+        for (long i = 0; i < 1024; ++i) {
+            original.add(i);
+        }
+        // The copy misses an element in the middle of the list.
+        List<Long> copy = new ArrayList<>(original);
+        copy.remove(512);
+
+        Map<String, Object> diff = oortList.diff(original, oortList.digest(copy));
+        Assertions.assertNotNull(diff);
+        Object patched = oortList.patch(copy, diff.get(OortObject.Info.OBJECT_FIELD), diff.get(OortObject.Info.DELTA_FIELD));
+        Assertions.assertEquals(original, patched);
+
+        // The copy has the same elements, in a different order.
+        copy = new ArrayList<>(original);
+        Collections.swap(copy, 1, 1000);
+
+        diff = oortList.diff(original, oortList.digest(copy));
+        Assertions.assertNotNull(diff);
+        // The order cannot be patched, the whole list must be pulled.
+        Assertions.assertNull(oortList.patch(copy, diff.get(OortObject.Info.OBJECT_FIELD), diff.get(OortObject.Info.DELTA_FIELD)));
+    }
 }
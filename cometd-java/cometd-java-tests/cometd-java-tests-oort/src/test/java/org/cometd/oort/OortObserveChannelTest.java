@@ -18,14 +18,34 @@ package org.cometd.oort;
 import java.nio.ByteBuffer;
 import java.util.Arrays;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 import org.cometd.bayeux.BinaryData;
 import org.cometd.bayeux.Channel;
+import org.cometd.bayeux.Message;
+import org.cometd.bayeux.Promise;
+import org.cometd.bayeux.client.ClientSessionChannel;
 import org.cometd.bayeux.server.BayeuxServer;
+import org.cometd.bayeux.server.ServerChannel;
+import org.cometd.bayeux.server.ServerMessage;
+import org.cometd.bayeux.server.ServerSession;
 import org.cometd.client.BayeuxClient;
+import org.cometd.server.BayeuxServerImpl;
+import org.cometd.server.ServerSessionImpl;
 import org.cometd.server.ext.BinaryExtension;
 import org.eclipse.jetty.server.Server;
 import org.junit.jupiter.api.Assertions;
@@ -102,6 +122,304 @@ public class OortObserveChannelTest extends OortTest {
         Assertions.assertTrue(messageLatch3.await(5, TimeUnit.SECONDS));
     }
 
+    @ParameterizedTest
+    @MethodSource("transports")
+    public void testObserveChannelMetrics(String serverTransport) throws Exception {
+        Server server1 = startServer(serverTransport, 0);
+        Oort oort1 = startOort(server1, oort -> oort.setMetricsEnabled(true));
+        Server server2 = startServer(serverTransport, 0);
+        Oort oort2 = startOort(server2, oort -> oort.setMetricsEnabled(true));
+
+        CountDownLatch latch = new CountDownLatch(2);
+        CometJoinedListener listener = new CometJoinedListener(latch);
+        oort1.addCometListener(listener);
+        oort2.addCometListener(listener);
+        OortComet oortComet12 = oort1.observeComet(oort2.getURL());
+        Assertions.assertTrue(oortComet12.waitFor(5000, BayeuxClient.State.CONNECTED));
+        Assertions.assertTrue(latch.await(5, TimeUnit.SECONDS));
+        OortComet oortComet21 = oort2.findComet(oort1.getURL());
+        Assertions.assertTrue(oortComet21.waitFor(5000, BayeuxClient.State.CONNECTED));
+
+        // Oort1 observes the wild channel, so the publishes to Oort2 are forwarded to Oort1.
+        String channelName = "/metrics/*";
+        oort1.observeChannel(channelName);
+
+        // Wait a while to be sure to be subscribed
+        Thread.sleep(1000);
+
+        BayeuxClient client1 = startClient(oort1, null);
+        Assertions.assertTrue(client1.waitFor(5000, BayeuxClient.State.CONNECTED));
+        LatchListener subscribeLatch1 = new LatchListener();
+        client1.getChannel(Channel.META_SUBSCRIBE).addListener(subscribeLatch1);
+        int messages = 5;
+        LatchListener messageLatch1 = new LatchListener(messages);
+        client1.getChannel(channelName).subscribe(messageLatch1);
+        Assertions.assertTrue(subscribeLatch1.await(5, TimeUnit.SECONDS));
+
+        BayeuxClient client2 = startClient(oort2, null);
+        Assertions.assertTrue(client2.waitFor(5000, BayeuxClient.State.CONNECTED));
+        for (int i = 0; i < messages; ++i) {
+            client2.getChannel("/metrics/" + i).publish("data" + i);
+        }
+        Assertions.assertTrue(messageLatch1.await(5, TimeUnit.SECONDS));
+
+        OortMetrics.ChannelMetrics forwarded = oort2.getMetrics().getChannelMetrics(channelName);
+        Assertions.assertNotNull(forwarded);
+        Assertions.assertEquals(messages, forwarded.getMessagesForwarded());
+        Assertions.assertTrue(forwarded.getBytesForwarded() > 0);
+
+        OortMetrics.ChannelMetrics received = oort1.getMetrics().getChannelMetrics(channelName);
+        Assertions.assertNotNull(received);
+        Assertions.assertEquals(messages, received.getMessagesReceived());
+        Assertions.assertEquals(Map.of(oort2.getURL(), (long)messages), received.getMessagesReceivedByComet());
+        Assertions.assertEquals(messages, received.getLatency().getCount());
+
+        oort1.resetMetrics();
+        Assertions.assertNull(oort1.getMetrics().getChannelMetrics(channelName));
+    }
+
+    @ParameterizedTest
+    @MethodSource("transports")
+    public void testObserveChannelsWithCometLinks(String serverTransport) throws Exception {
+        int links = 3;
+        Server server1 = startServer(serverTransport, 0);
+        Oort oort1 = startOort(server1, oort -> oort.setCometLinks(links));
+        Server server2 = startServer(serverTransport, 0);
+        Oort oort2 = startOort(server2, oort -> oort.setCometLinks(links));
+
+        CountDownLatch latch = new CountDownLatch(2);
+        CometJoinedListener listener = new CometJoinedListener(latch);
+        oort1.addCometListener(listener);
+        oort2.addCometListener(listener);
+        OortComet oortComet12 = oort1.observeComet(oort2.getURL());
+        Assertions.assertTrue(oortComet12.waitFor(5000, BayeuxClient.State.CONNECTED));
+        Assertions.assertTrue(latch.await(5, TimeUnit.SECONDS));
+        OortComet oortComet21 = oort2.findComet(oort1.getURL());
+        Assertions.assertTrue(oortComet21.waitFor(5000, BayeuxClient.State.CONNECTED));
+
+        // Oort1 observes the channels, so the publishes to Oort2 are forwarded to Oort1.
+        int channels = 10;
+        for (int i = 0; i < channels; ++i) {
+            oort1.observeChannel("/links/" + i);
+        }
+
+        // Wait a while to be sure to be subscribed
+        Thread.sleep(1000);
+
+        // The channels are spread across the links.
+        Set<OortComet> comets = new HashSet<>();
+        for (int i = 0; i < channels; ++i) {
+            String channelName = "/links/" + i;
+            OortComet comet = oort1.getComet(oort2.getURL(), channelName);
+            Assertions.assertTrue(comet.isConnected());
+            Assertions.assertEquals(oort1.getCometLink(channelName), comet.getLink());
+            comets.add(comet);
+        }
+        Assertions.assertTrue(comets.size() > 1);
+        Assertions.assertTrue(comets.contains(oortComet12));
+
+        BayeuxClient client1 = startClient(oort1, null);
+        Assertions.assertTrue(client1.waitFor(5000, BayeuxClient.State.CONNECTED));
+        int messages = 20;
+        CountDownLatch messageLatch = new CountDownLatch(channels * messages);
+        Map<String, List<Object>> received = new ConcurrentHashMap<>();
+        LatchListener subscribeLatch1 = new LatchListener();
+        client1.getChannel(Channel.META_SUBSCRIBE).addListener(subscribeLatch1);
+        client1.getChannel("/links/*").subscribe((channel, message) -> {
+            received.computeIfAbsent(message.getChannel(), key -> new CopyOnWriteArrayList<>()).add(message.getData());
+            messageLatch.countDown();
+        });
+        Assertions.assertTrue(subscribeLatch1.await(5, TimeUnit.SECONDS));
+
+        BayeuxClient client2 = startClient(oort2, null);
+        Assertions.assertTrue(client2.waitFor(5000, BayeuxClient.State.CONNECTED));
+        client2.batch(() -> {
+            for (int j = 0; j < messages; ++j) {
+                for (int i = 0; i < channels; ++i) {
+                    client2.getChannel("/links/" + i).publish(String.valueOf(j));
+                }
+            }
+        });
+        Assertions.assertTrue(messageLatch.await(5, TimeUnit.SECONDS));
+
+        // The order of the messages of each channel is preserved.
+        List<Object> expected = IntStream.range(0, messages).mapToObj(String::valueOf).collect(Collectors.toList());
+        for (int i = 0; i < channels; ++i) {
+            Assertions.assertEquals(expected, received.get("/links/" + i));
+        }
+
+        // Deobserving the comet disconnects the links.
+        oort1.deobserveComet(oort2.getURL());
+        for (OortComet comet : comets) {
+            Assertions.assertTrue(comet.waitFor(5000, BayeuxClient.State.DISCONNECTED));
+        }
+    }
+
+    @ParameterizedTest
+    @MethodSource("transports")
+    public void testPublishWhileCometLinkRehandshakes(String serverTransport) throws Exception {
+        Server server1 = startServer(serverTransport, 0);
+        Oort oort1 = startOort(server1, oort -> oort.setCometLinks(2));
+        Server server2 = startServer(serverTransport, 0);
+        Oort oort2 = startOort(server2, oort -> oort.setCometLinks(2));
+        BayeuxServerImpl bayeux2 = (BayeuxServerImpl)oort2.getBayeuxServer();
+
+        // Delay the handshakes of the links, when requested.
+        AtomicBoolean delayLinkHandshakes = new AtomicBoolean();
+        CountDownLatch delayLatch = new CountDownLatch(1);
+        bayeux2.addExtension(new BayeuxServer.Extension() {
+            @Override
+            public void incoming(ServerSession from, ServerMessage.Mutable message, Promise<Boolean> promise) {
+                if (Channel.META_HANDSHAKE.equals(message.getChannel()) && isLink(message) && delayLinkHandshakes.get()) {
+                    delayLatch.countDown();
+                    new Thread(() -> {
+                        try {
+                            Thread.sleep(1000);
+                            promise.succeed(true);
+                        } catch (InterruptedException x) {
+                            promise.fail(x);
+                        }
+                    }).start();
+                } else {
+                    promise.succeed(true);
+                }
+            }
+
+            @SuppressWarnings("unchecked")
+            private boolean isLink(ServerMessage message) {
+                Map<String, Object> ext = message.getExt();
+                Map<String, Object> oortExt = ext == null ? null : (Map<String, Object>)ext.get(Oort.EXT_OORT_FIELD);
+                return oortExt != null && oortExt.containsKey(Oort.EXT_OORT_LINK_FIELD);
+            }
+        });
+
+        CountDownLatch latch = new CountDownLatch(2);
+        CometJoinedListener listener = new CometJoinedListener(latch);
+        oort1.addCometListener(listener);
+        oort2.addCometListener(listener);
+        OortComet oortComet12 = oort1.observeComet(oort2.getURL());
+        Assertions.assertTrue(oortComet12.waitFor(5000, BayeuxClient.State.CONNECTED));
+        Assertions.assertTrue(latch.await(5, TimeUnit.SECONDS));
+
+        String channelName = IntStream.range(0, 100)
+                .mapToObj(i -> "/order/" + i)
+                .filter(name -> oort1.getCometLink(name) == 1)
+                .findFirst()
+                .orElseThrow();
+        OortComet link = oort1.getComet(oort2.getURL(), channelName);
+        Assertions.assertNotSame(oortComet12, link);
+
+        BlockingQueue<Object> received = new LinkedBlockingQueue<>();
+        Set<String> senders = ConcurrentHashMap.newKeySet();
+        bayeux2.createChannelIfAbsent(channelName).getReference().addListener(new ServerChannel.MessageListener() {
+            @Override
+            public boolean onMessage(ServerSession from, ServerChannel channel, ServerMessage.Mutable message) {
+                senders.add(from.getId());
+                received.offer(message.getData());
+                return true;
+            }
+        });
+
+        // Publish immediately, the link may not be handshook yet.
+        int messages = 10;
+        int counter = 0;
+        for (int i = 0; i < messages; ++i) {
+            oort1.getComet(oort2.getURL(), channelName).getChannel(channelName).publish(counter++);
+        }
+        for (int i = 0; i < counter; ++i) {
+            Assertions.assertEquals((long)i, received.poll(5, TimeUnit.SECONDS));
+        }
+
+        // Make the link rehandshake, and publish while it is rehandshaking.
+        String linkId = link.getId();
+        delayLinkHandshakes.set(true);
+        ServerSessionImpl linkSession = (ServerSessionImpl)bayeux2.getSession(linkId);
+        bayeux2.removeServerSession(linkSession, false);
+        // Wake up the long poll, so that the link finds out that its session is gone.
+        linkSession.flush();
+        Assertions.assertTrue(delayLatch.await(5, TimeUnit.SECONDS));
+        for (int i = 0; i < messages; ++i) {
+            oort1.getComet(oort2.getURL(), channelName).getChannel(channelName).publish(counter++);
+        }
+        for (int i = counter - messages; i < counter; ++i) {
+            Assertions.assertEquals((long)i, received.poll(5, TimeUnit.SECONDS));
+        }
+        Assertions.assertNotEquals(linkId, link.getId());
+
+        // The main comet never carried the messages of the channel.
+        Assertions.assertEquals(Set.of(linkId, link.getId()), senders);
+        Assertions.assertFalse(senders.contains(oortComet12.getId()));
+    }
+
+    @ParameterizedTest
+    @MethodSource("transports")
+    public void testCometLinksSurviveMainCometRehandshake(String serverTransport) throws Exception {
+        Server server1 = startServer(serverTransport, 0);
+        Oort oort1 = startOort(server1, oort -> oort.setCometLinks(2));
+        Server server2 = startServer(serverTransport, 0);
+        Oort oort2 = startOort(server2, oort -> oort.setCometLinks(2));
+        BayeuxServerImpl bayeux2 = (BayeuxServerImpl)oort2.getBayeuxServer();
+
+        CountDownLatch latch = new CountDownLatch(2);
+        CometJoinedListener listener = new CometJoinedListener(latch);
+        oort1.addCometListener(listener);
+        oort2.addCometListener(listener);
+        OortComet oortComet12 = oort1.observeComet(oort2.getURL());
+        Assertions.assertTrue(oortComet12.waitFor(5000, BayeuxClient.State.CONNECTED));
+        Assertions.assertTrue(latch.await(5, TimeUnit.SECONDS));
+
+        String channelName = IntStream.range(0, 100)
+                .mapToObj(i -> "/links/" + i)
+                .filter(name -> oort1.getCometLink(name) == 1)
+                .findFirst()
+                .orElseThrow();
+        OortComet link = oort1.getComet(oort2.getURL(), channelName);
+        Assertions.assertNotSame(oortComet12, link);
+        Assertions.assertTrue(link.waitFor(5000, BayeuxClient.State.CONNECTED));
+        String linkId = link.getId();
+
+        // Make the main comet rehandshake.
+        CountDownLatch handshakeLatch = new CountDownLatch(1);
+        oortComet12.getChannel(Channel.META_HANDSHAKE).addListener((ClientSessionChannel.MessageListener)(channel, message) -> {
+            if (message.isSuccessful()) {
+                handshakeLatch.countDown();
+            }
+        });
+        String cometId = oortComet12.getId();
+        AtomicBoolean rehandshake = new AtomicBoolean(true);
+        bayeux2.addExtension(new BayeuxServer.Extension() {
+            @Override
+            public boolean sendMeta(ServerSession session, ServerMessage.Mutable reply) {
+                if (Channel.META_CONNECT.equals(reply.getChannel()) && session != null && cometId.equals(session.getId()) && rehandshake.compareAndSet(true, false)) {
+                    reply.setSuccessful(false);
+                    reply.getAdvice(true).put(Message.RECONNECT_FIELD, Message.RECONNECT_HANDSHAKE_VALUE);
+                }
+                return true;
+            }
+        });
+        // Wake up the long poll, so that the comet receives the advice;
+        // if the long poll is not held yet, the advice is sent on its timeout.
+        ((ServerSessionImpl)bayeux2.getSession(cometId)).flush();
+        Assertions.assertTrue(handshakeLatch.await(15, TimeUnit.SECONDS));
+        Assertions.assertTrue(oortComet12.waitFor(5000, BayeuxClient.State.CONNECTED));
+        Assertions.assertNotEquals(cometId, oortComet12.getId());
+
+        // The link is not replaced, nor disconnected.
+        Assertions.assertSame(link, oort1.getComet(oort2.getURL(), channelName));
+        Assertions.assertTrue(link.isConnected());
+        Assertions.assertEquals(linkId, link.getId());
+    }
+
+    private Oort startOort(Server server, Consumer<Oort> configurer) throws Exception {
+        String url = (String)server.getAttribute(OortConfigServlet.OORT_URL_PARAM);
+        BayeuxServer bayeuxServer = (BayeuxServer)server.getAttribute(BayeuxServer.ATTRIBUTE);
+        Oort oort = new Oort(bayeuxServer, url);
+        configurer.accept(oort);
+        oort.start();
+        oorts.add(oort);
+        return oort;
+    }
+
     @ParameterizedTest
     @MethodSource("transports")
     public void testObserveWildChannel(String serverTransport) throws Exception {
@@ -15,9 +15,14 @@
  */
 package org.cometd.oort;
 
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.params.ParameterizedTest;
@@ -264,6 +269,54 @@ public class OortServiceTest extends AbstractOortObjectTest {
         TimeUnit.MILLISECONDS.sleep(2 * timeout);
     }
 
+    @ParameterizedTest
+    @MethodSource("transports")
+    public void testActionIsForwardedToOwner(String serverTransport) throws Exception {
+        prepare(serverTransport);
+
+        OortRing ring1 = new OortRing(oort1);
+        ring1.start();
+        OortRing ring2 = new OortRing(oort2);
+        ring2.start();
+        Assertions.assertEquals(Set.of(oort1.getURL(), oort2.getURL()), ring1.getOortURLs());
+        Assertions.assertEquals(ring1.getOortURLs(), ring2.getOortURLs());
+
+        int keys = 32;
+        AtomicInteger forwards = new AtomicInteger();
+        Map<String, String> results = new ConcurrentHashMap<>();
+        CountDownLatch latch = new CountDownLatch(keys);
+        OwnerService service1 = new OwnerService(oort1, ring1, forwards, results, latch);
+        service1.start();
+        OwnerService service2 = new OwnerService(oort2, ring2, forwards, results, latch);
+        service2.start();
+
+        for (int i = 0; i < keys; ++i) {
+            String key = "key" + i;
+            Assertions.assertTrue(service1.forwardToOwner(key, key, key));
+        }
+        Assertions.assertTrue(latch.await(5, TimeUnit.SECONDS));
+        // Each action is routed only to its owner, not broadcast.
+        Assertions.assertEquals(keys, forwards.get());
+        for (int i = 0; i < keys; ++i) {
+            String key = "key" + i;
+            Assertions.assertEquals(ring1.getOortURL(key), results.get(key));
+        }
+        Assertions.assertEquals(ring1.getOortURLs(), new HashSet<>(results.values()));
+
+        // When a node leaves, the ring is rebalanced.
+        CountDownLatch leftLatch = new CountDownLatch(1);
+        oort1.addCometListener(new CometLeftListener(leftLatch));
+        service2.stop();
+        ring2.stop();
+        stopOort(oort2);
+        Assertions.assertTrue(leftLatch.await(5, TimeUnit.SECONDS));
+        Assertions.assertEquals(Set.of(oort1.getURL()), ring1.getOortURLs());
+        Assertions.assertTrue(ring1.isLocal("key0"));
+
+        service1.stop();
+        ring1.stop();
+    }
+
     private static class Service extends OortService<Boolean, String> {
         private final CountDownLatch latch;
         private volatile String context;
@@ -303,6 +356,45 @@ public class OortServiceTest extends AbstractOortObjectTest {
         }
     }
 
+    private static class OwnerService extends OortService<String, String> {
+        private final AtomicInteger forwards;
+        private final Map<String, String> results;
+        private final CountDownLatch latch;
+
+        private OwnerService(Oort oort, OortRing ring, AtomicInteger forwards, Map<String, String> results, CountDownLatch latch) {
+            super(oort, "owner");
+            this.forwards = forwards;
+            this.results = results;
+            this.latch = latch;
+            setRing(ring);
+        }
+
+        // Overridden for visibility.
+        @Override
+        protected boolean forwardToOwner(Object key, Object parameter, String context) {
+            return super.forwardToOwner(key, parameter, context);
+        }
+
+        @Override
+        protected Result<String> onForward(Request request) {
+            forwards.incrementAndGet();
+            if (getRing().isLocal(request.getData())) {
+                return Result.success(getOort().getURL());
+            }
+            return Result.ignore(null);
+        }
+
+        @Override
+        protected void onForwardSucceeded(String result, String context) {
+            results.put(context, result);
+            latch.countDown();
+        }
+
+        @Override
+        protected void onForwardFailed(Object failure, String context) {
+        }
+    }
+
     private static class BroadcastService extends OortService<Boolean, String> {
         private final CountDownLatch latch;
         private volatile String context;
@@ -23,8 +23,12 @@ import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.CyclicBarrier;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
 
+import org.cometd.bayeux.server.BayeuxServer;
+import org.cometd.bayeux.server.ServerMessage;
+import org.cometd.bayeux.server.ServerSession;
 import org.cometd.client.BayeuxClient;
 import org.cometd.server.AbstractServerTransport;
 import org.eclipse.jetty.server.Server;
@@ -248,6 +252,241 @@ public class OortStringMapTest extends AbstractOortObjectTest {
         oortMap1.removeEntryListener(putListener);
     }
 
+    @ParameterizedTest
+    @MethodSource("transports")
+    public void testBatchWindow(String serverTransport) throws Exception {
+        prepare(serverTransport);
+
+        String name = "test";
+        OortObject.Factory<ConcurrentMap<String, String>> factory = OortObjectFactories.forConcurrentMap();
+        OortStringMap<String> oortMap1 = new OortStringMap<>(oort1, name, factory);
+        OortStringMap<String> oortMap2 = new OortStringMap<>(oort2, name, factory);
+        oortMap1.setBatchWindow(500);
+        startOortObjects(oortMap1, oortMap2);
+
+        AtomicInteger messages = new AtomicInteger();
+        oort2.getBayeuxServer().addExtension(new BayeuxServer.Extension() {
+            @Override
+            public boolean rcv(ServerSession from, ServerMessage.Mutable message) {
+                if (oortMap1.getChannelName().equals(message.getChannel())) {
+                    messages.incrementAndGet();
+                }
+                return true;
+            }
+        });
+        CountDownLatch putLatch = new CountDownLatch(1);
+        oortMap2.addEntryListener(new OortMap.EntryListener<>() {
+            @Override
+            public void onPut(OortObject.Info<ConcurrentMap<String, String>> info, OortMap.Entry<String, String> entry) {
+                if ("last".equals(entry.getKey())) {
+                    putLatch.countDown();
+                }
+            }
+        });
+
+        int keys = 10;
+        int iterations = 20;
+        List<OortObject.Result.Deferred<String>> results = new ArrayList<>();
+        for (int i = 0; i < iterations; ++i) {
+            for (int k = 0; k < keys; ++k) {
+                OortObject.Result.Deferred<String> result = new OortObject.Result.Deferred<>();
+                oortMap1.putAndShare("key" + k, "value" + i, result);
+                results.add(result);
+            }
+        }
+        OortObject.Result.Deferred<String> removeResult = new OortObject.Result.Deferred<>();
+        oortMap1.removeAndShare("key0", removeResult);
+        OortObject.Result.Deferred<String> absentResult = new OortObject.Result.Deferred<>();
+        oortMap1.putIfAbsentAndShare("key1", "absent", absentResult);
+        oortMap1.putAndShare("last", "value", null);
+
+        // Every caller gets the result of its own update.
+        for (int i = 0; i < results.size(); ++i) {
+            String expected = i < keys ? null : "value" + (i / keys - 1);
+            Assertions.assertEquals(expected, results.get(i).get(5, TimeUnit.SECONDS));
+        }
+        String lastValue = "value" + (iterations - 1);
+        Assertions.assertEquals(lastValue, removeResult.get(5, TimeUnit.SECONDS));
+        Assertions.assertEquals(lastValue, absentResult.get(5, TimeUnit.SECONDS));
+
+        Assertions.assertTrue(putLatch.await(5, TimeUnit.SECONDS));
+        ConcurrentMap<String, String> map1 = oortMap1.getInfo(oort1.getURL()).getObject();
+        Assertions.assertEquals(keys, map1.size());
+        Assertions.assertNull(map1.get("key0"));
+        Assertions.assertEquals(map1, oortMap2.getInfo(oort1.getURL()).getObject());
+        Assertions.assertEquals(1, messages.get());
+    }
+
+    @ParameterizedTest
+    @MethodSource("transports")
+    public void testBatchWindowFlushedBeforeWholeObjectUpdate(String serverTransport) throws Exception {
+        prepare(serverTransport);
+
+        String name = "test";
+        OortObject.Factory<ConcurrentMap<String, String>> factory = OortObjectFactories.forConcurrentMap();
+        OortStringMap<String> oortMap1 = new OortStringMap<>(oort1, name, factory);
+        OortStringMap<String> oortMap2 = new OortStringMap<>(oort2, name, factory);
+        long batchWindow = 1000;
+        oortMap1.setBatchWindow(batchWindow);
+        startOortObjects(oortMap1, oortMap2);
+
+        oortMap1.putAndShare("key", "value", null);
+        ConcurrentMap<String, String> map = factory.newObject(null);
+        map.put("other", "value");
+        OortObject.Result.Deferred<ConcurrentMap<String, String>> result = new OortObject.Result.Deferred<>();
+        oortMap1.setAndShare(map, result);
+        Assertions.assertNotNull(result.get(5, TimeUnit.SECONDS));
+
+        // The pending item update must not be applied after the whole object update.
+        Thread.sleep(2 * batchWindow);
+        Map<String, String> expected = Map.of("other", "value");
+        Assertions.assertEquals(expected, oortMap1.getInfo(oort1.getURL()).getObject());
+        Assertions.assertEquals(expected, oortMap2.getInfo(oort1.getURL()).getObject());
+    }
+
+    @ParameterizedTest
+    @MethodSource("transports")
+    public void testResyncSendsOnlyDivergentEntries(String serverTransport) throws Exception {
+        prepare(serverTransport);
+
+        String name = "test";
+        OortObject.Factory<ConcurrentMap<String, String>> factory = OortObjectFactories.forConcurrentMap();
+        OortStringMap<String> oortMap1 = new OortStringMap<>(oort1, name, factory);
+        OortStringMap<String> oortMap2 = new OortStringMap<>(oort2, name, factory);
+        startOortObjects(oortMap1, oortMap2);
+
+        int size = 1024;
+        ConcurrentMap<String, String> map = factory.newObject(null);
+        for (int i = 0; i < size; ++i) {
+            map.put("key" + i, "value" + i);
+        }
+        CountDownLatch setLatch = new CountDownLatch(1);
+        oortMap2.addListener(new OortObject.Listener<>() {
+            @Override
+            public void onUpdated(OortObject.Info<ConcurrentMap<String, String>> oldInfo, OortObject.Info<ConcurrentMap<String, String>> newInfo) {
+                setLatch.countDown();
+            }
+        });
+        oortMap1.setAndShare(map, null);
+        Assertions.assertTrue(setLatch.await(5, TimeUnit.SECONDS));
+
+        // Drop an entry update, so that node2 must resync with node1.
+        String droppedKey = "dropped";
+        AtomicReference<Map<String, Object>> pushRef = new AtomicReference<>();
+        oort2.getBayeuxServer().addExtension(new BayeuxServer.Extension() {
+            @Override
+            public boolean rcv(ServerSession from, ServerMessage.Mutable message) {
+                Map<String, Object> data = message.getDataAsMap();
+                if (data == null) {
+                    return true;
+                }
+                if (oortMap1.getChannelName().equals(message.getChannel())) {
+                    Object entry = data.get(OortObject.Info.OBJECT_FIELD);
+                    return !(entry instanceof Map && droppedKey.equals(((Map<?, ?>)entry).get("oort.map.key")));
+                }
+                if (message.getChannel().endsWith(oortMap1.getChannelName()) && data.containsKey(OortObject.Info.DELTA_FIELD)) {
+                    pushRef.set(data);
+                }
+                return true;
+            }
+        });
+
+        CountDownLatch putLatch = new CountDownLatch(1);
+        oortMap2.addListener(new OortMap.DeltaListener<>(oortMap2));
+        oortMap2.addEntryListener(new OortMap.EntryListener<>() {
+            @Override
+            public void onPut(OortObject.Info<ConcurrentMap<String, String>> info, OortMap.Entry<String, String> entry) {
+                if (droppedKey.equals(entry.getKey())) {
+                    putLatch.countDown();
+                }
+            }
+        });
+        oortMap1.putAndShare(droppedKey, "value", null);
+        oortMap1.putAndShare("next", "value", null);
+
+        Assertions.assertTrue(putLatch.await(5, TimeUnit.SECONDS));
+        Assertions.assertEquals(oortMap1.getInfo(oort1.getURL()).getObject(), oortMap2.getInfo(oort1.getURL()).getObject());
+        Assertions.assertEquals("value", oortMap2.find(droppedKey));
+
+        Map<String, Object> push = pushRef.get();
+        Assertions.assertNotNull(push);
+        Map<?, ?> partial = (Map<?, ?>)push.get(OortObject.Info.OBJECT_FIELD);
+        Assertions.assertTrue(partial.containsKey(droppedKey));
+        Assertions.assertTrue(partial.size() < size / 2);
+    }
+
+    @ParameterizedTest
+    @MethodSource("transports")
+    public void testFindIndexUpdates(String serverTransport) throws Exception {
+        prepare(serverTransport);
+
+        String name = "test";
+        OortObject.Factory<ConcurrentMap<String, String>> factory = OortObjectFactories.forConcurrentMap();
+        OortStringMap<String> oortMap1 = new OortStringMap<>(oort1, name, factory);
+        OortStringMap<String> oortMap2 = new OortStringMap<>(oort2, name, factory);
+        startOortObjects(oortMap1, oortMap2);
+
+        String keyA = "keyA";
+        String keyB = "keyB";
+        CountDownLatch putLatch = new CountDownLatch(1);
+        oortMap1.addEntryListener(new OortMap.EntryListener<>() {
+            @Override
+            public void onPut(OortObject.Info<ConcurrentMap<String, String>> info, OortMap.Entry<String, String> entry) {
+                if (keyB.equals(entry.getKey())) {
+                    putLatch.countDown();
+                }
+            }
+        });
+        oortMap2.putAndShare(keyA, "valueA", null);
+        oortMap2.putAndShare(keyB, "valueB", null);
+        Assertions.assertTrue(putLatch.await(5, TimeUnit.SECONDS));
+        Assertions.assertEquals("valueA", oortMap1.find(keyA));
+
+        // Remove a single entry.
+        CountDownLatch removeLatch = new CountDownLatch(1);
+        oortMap1.addEntryListener(new OortMap.EntryListener<>() {
+            @Override
+            public void onRemoved(OortObject.Info<ConcurrentMap<String, String>> info, OortMap.Entry<String, String> entry) {
+                removeLatch.countDown();
+            }
+        });
+        oortMap2.removeAndShare(keyA, null);
+        Assertions.assertTrue(removeLatch.await(5, TimeUnit.SECONDS));
+        Assertions.assertNull(oortMap1.find(keyA));
+        Assertions.assertNull(oortMap1.findInfo(keyA));
+        Assertions.assertEquals("valueB", oortMap1.find(keyB));
+
+        // Replace the whole map.
+        CountDownLatch setLatch = new CountDownLatch(1);
+        oortMap1.addListener(new OortObject.Listener<>() {
+            @Override
+            public void onUpdated(OortObject.Info<ConcurrentMap<String, String>> oldInfo, OortObject.Info<ConcurrentMap<String, String>> newInfo) {
+                setLatch.countDown();
+            }
+        });
+        String keyC = "keyC";
+        ConcurrentMap<String, String> map = factory.newObject(null);
+        map.put(keyC, "valueC");
+        oortMap2.setAndShare(map, null);
+        Assertions.assertTrue(setLatch.await(5, TimeUnit.SECONDS));
+        Assertions.assertNull(oortMap1.find(keyB));
+        Assertions.assertEquals("valueC", oortMap1.find(keyC));
+        Assertions.assertEquals(oort2.getURL(), oortMap1.findInfo(keyC).getOortURL());
+
+        // The node leaves.
+        CountDownLatch leftLatch = new CountDownLatch(1);
+        oort1.addCometListener(new Oort.CometListener() {
+            @Override
+            public void cometLeft(Event event) {
+                leftLatch.countDown();
+            }
+        });
+        stopOort(oort2);
+        Assertions.assertTrue(leftLatch.await(5, TimeUnit.SECONDS));
+        Assertions.assertNull(oortMap1.find(keyC));
+        Assertions.assertNull(oortMap1.findInfo(keyC));
+    }
+
     @ParameterizedTest
     @MethodSource("transports")
     public void testConcurrent(String serverTransport) throws Exception {
@@ -137,6 +137,59 @@ public class SetiTest extends OortTest {
         Assertions.assertTrue(messageLatch.await(5, TimeUnit.SECONDS));
     }
 
+    @ParameterizedTest
+    @MethodSource("transports")
+    public void testSendMessageToMultipleUsersOnSameComet(String serverTransport) throws Exception {
+        Server server1 = startServer(serverTransport, 0);
+        Oort oort1 = startOort(server1);
+        Server server2 = startServer(serverTransport, 0);
+        Oort oort2 = startOort(server2);
+
+        CountDownLatch latch = new CountDownLatch(1);
+        oort2.addCometListener(new CometJoinedListener(latch));
+        OortComet oortComet12 = oort1.observeComet(oort2.getURL());
+        Assertions.assertTrue(oortComet12.waitFor(5000, BayeuxClient.State.CONNECTED));
+        Assertions.assertTrue(latch.await(5, TimeUnit.SECONDS));
+        OortComet oortComet21 = oort2.findComet(oort1.getURL());
+        Assertions.assertTrue(oortComet21.waitFor(5000, BayeuxClient.State.CONNECTED));
+
+        Seti seti1 = startSeti(oort1);
+        Seti seti2 = startSeti(oort2);
+
+        int users = 10;
+        String channel = "/test";
+        CountDownLatch presenceLatch = new CountDownLatch(users);
+        seti1.addPresenceListener(new UserPresentListener(presenceLatch));
+        CountDownLatch messageLatch = new CountDownLatch(users);
+        List<String> userIds = new ArrayList<>();
+        for (int i = 0; i < users; ++i) {
+            String userId = "user" + i;
+            userIds.add(userId);
+            LocalSession localSession = oort2.getBayeuxServer().newLocalSession(userId);
+            localSession.handshake();
+            localSession.getChannel(channel).addListener((ClientSessionChannel.MessageListener)(c, m) -> messageLatch.countDown());
+            seti2.associate(userId, localSession.getServerSession());
+        }
+        Assertions.assertTrue(presenceLatch.await(5, TimeUnit.SECONDS));
+
+        AtomicInteger setiMessages = new AtomicInteger();
+        oort2.getBayeuxServer().addExtension(new BayeuxServer.Extension() {
+            @Override
+            public boolean rcv(ServerSession from, ServerMessage.Mutable message) {
+                Map<String, Object> data = message.getDataAsMap();
+                if (message.getChannel().startsWith("/seti/") && data != null && channel.equals(data.get("channel"))) {
+                    setiMessages.incrementAndGet();
+                }
+                return true;
+            }
+        });
+
+        seti1.sendMessage(userIds, channel, "data");
+
+        Assertions.assertTrue(messageLatch.await(5, TimeUnit.SECONDS));
+        Assertions.assertEquals(1, setiMessages.get());
+    }
+
     @ParameterizedTest
     @MethodSource("transports")
     public void testAssociateWithAllChannelsSubscription(String serverTransport) throws Exception {
@@ -609,6 +662,101 @@ public class SetiTest extends OortTest {
         Assertions.assertTrue(presenceOffLatch.await(5, TimeUnit.SECONDS));
     }
 
+    @ParameterizedTest
+    @MethodSource("transports")
+    public void testPresenceSnapshotInChunksWhenNodeJoins(String serverTransport) throws Exception {
+        Server server1 = startServer(serverTransport, 0);
+        Oort oort1 = startOort(server1);
+        Seti seti1 = startSeti(oort1);
+        seti1.setPresenceChunkSize(3);
+        seti1.setCompressPresences(true);
+
+        int users = 10;
+        Set<String> userIds = new HashSet<>();
+        for (int i = 0; i < users; ++i) {
+            String userId = "user" + i;
+            userIds.add(userId);
+            LocalSession localSession = oort1.getBayeuxServer().newLocalSession(userId);
+            localSession.handshake();
+            seti1.associate(userId, localSession.getServerSession());
+        }
+
+        Server server2 = startServer(serverTransport, 0);
+        Oort oort2 = startOort(server2);
+        AtomicInteger chunks = new AtomicInteger();
+        oort2.getBayeuxServer().addExtension(new BayeuxServer.Extension() {
+            @Override
+            public boolean rcv(ServerSession from, ServerMessage.Mutable message) {
+                Map<String, Object> data = message.getDataAsMap();
+                if (message.getChannel().startsWith("/seti/") && data != null && data.get("userIdsData") != null) {
+                    chunks.incrementAndGet();
+                }
+                return true;
+            }
+        });
+        Seti seti2 = new Seti(oort2);
+        CountDownLatch presenceLatch = new CountDownLatch(users);
+        seti2.addPresenceListener(new UserPresentListener(presenceLatch));
+        seti2.start();
+        setis.add(seti2);
+
+        CountDownLatch latch = new CountDownLatch(1);
+        oort2.addCometListener(new CometJoinedListener(latch));
+        OortComet oortComet12 = oort1.observeComet(oort2.getURL());
+        Assertions.assertTrue(oortComet12.waitFor(5000, BayeuxClient.State.CONNECTED));
+        Assertions.assertTrue(latch.await(5, TimeUnit.SECONDS));
+        OortComet oortComet21 = oort2.findComet(oort1.getURL());
+        Assertions.assertTrue(oortComet21.waitFor(5000, BayeuxClient.State.CONNECTED));
+
+        Assertions.assertTrue(presenceLatch.await(5, TimeUnit.SECONDS));
+        Assertions.assertEquals(userIds, seti2.getUserIds());
+        // At least one snapshot of 4 chunks.
+        Assertions.assertTrue(chunks.get() >= 4);
+    }
+
+    @ParameterizedTest
+    @MethodSource("transports")
+    public void testNewerPresenceSnapshotSupersedesIncompleteSnapshot(String serverTransport) throws Exception {
+        Server server1 = startServer(serverTransport, 0);
+        Oort oort1 = startOort(server1);
+        Server server2 = startServer(serverTransport, 0);
+        Oort oort2 = startOort(server2);
+
+        CountDownLatch latch = new CountDownLatch(1);
+        oort2.addCometListener(new CometJoinedListener(latch));
+        OortComet oortComet12 = oort1.observeComet(oort2.getURL());
+        Assertions.assertTrue(oortComet12.waitFor(5000, BayeuxClient.State.CONNECTED));
+        Assertions.assertTrue(latch.await(5, TimeUnit.SECONDS));
+        OortComet oortComet21 = oort2.findComet(oort1.getURL());
+        Assertions.assertTrue(oortComet21.waitFor(5000, BayeuxClient.State.CONNECTED));
+
+        Seti seti1 = startSeti(oort1);
+
+        // Simulate the snapshots sent by a Seti on node2.
+        String oortURL = oort2.getURL();
+        // Snapshot 1 is incomplete when snapshot 2 starts.
+        seti1.receiveRemotePresence(newSnapshotChunk(oortURL, 1, false, "user1", "user2"));
+        seti1.receiveRemotePresence(newSnapshotChunk(oortURL, 2, false, "user3"));
+        // The last chunk of the superseded snapshot does not remove presences.
+        seti1.receiveRemotePresence(newSnapshotChunk(oortURL, 1, true, "user4"));
+        Assertions.assertEquals(Set.of("user1", "user2", "user3", "user4"), seti1.getUserIds());
+
+        // The last chunk of the most recent snapshot removes the presences not in it.
+        seti1.receiveRemotePresence(newSnapshotChunk(oortURL, 2, true, "user5"));
+        Assertions.assertEquals(Set.of("user3", "user5"), seti1.getUserIds());
+    }
+
+    private Map<String, Object> newSnapshotChunk(String oortURL, long snapshotId, boolean last, String... userIds) {
+        Map<String, Object> presence = new HashMap<>();
+        presence.put("userIds", List.of(userIds));
+        presence.put("oortURL", oortURL);
+        presence.put("presence", true);
+        presence.put("replace", false);
+        presence.put("snapshot", snapshotId);
+        presence.put("last", last);
+        return presence;
+    }
+
     @ParameterizedTest
     @MethodSource("transports")
     public void testPresenceFiresEventLocally(String serverTransport) throws Exception {
@@ -1174,6 +1322,50 @@ public class SetiTest extends OortTest {
         Assertions.assertEquals(0, seti2.getUserIds().size());
     }
 
+    @ParameterizedTest
+    @MethodSource("transports")
+    public void testConcurrentAssociationsOfSameUser(String serverTransport) throws Exception {
+        Server server1 = startServer(serverTransport, 0);
+        Oort oort1 = startOort(server1);
+        Seti seti1 = startSeti(oort1);
+
+        String userId = "user";
+        int threads = 64;
+        CyclicBarrier barrier = new CyclicBarrier(threads + 1);
+        CountDownLatch associated = new CountDownLatch(threads);
+        CountDownLatch disassociated = new CountDownLatch(threads);
+        for (int i = 0; i < threads; ++i) {
+            int index = i;
+            new Thread(() -> {
+                try {
+                    LocalSession localSession = oort1.getBayeuxServer().newLocalSession(String.valueOf(index));
+                    localSession.handshake();
+                    ServerSession session = localSession.getServerSession();
+
+                    barrier.await();
+                    if (seti1.associate(userId, session)) {
+                        associated.countDown();
+                    }
+
+                    barrier.await();
+                    if (seti1.disassociate(userId, session)) {
+                        disassociated.countDown();
+                    }
+                } catch (Throwable x) {
+                    x.printStackTrace();
+                }
+            }).start();
+        }
+
+        barrier.await();
+        Assertions.assertTrue(associated.await(5, TimeUnit.SECONDS));
+        Assertions.assertEquals(threads, seti1.getAssociationCount(userId));
+
+        barrier.await();
+        Assertions.assertTrue(disassociated.await(5, TimeUnit.SECONDS));
+        Assertions.assertFalse(seti1.isPresent(userId));
+    }
+
     @ParameterizedTest
     @MethodSource("transports")
     public void testDisassociationRemovesListeners(String serverTransport) throws Exception {